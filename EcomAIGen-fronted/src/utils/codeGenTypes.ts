@@ -40,6 +40,8 @@ export const CODE_GEN_TYPE_OPTIONS = Object.values(CODE_GEN_TYPE_CONFIG).map((co
  */
 export const formatCodeGenType = (type: string | undefined): string => {
   if (!type) return '未知类型'
+  // 创建应用后类型在后台识别，完成前为 pending
+  if (type === 'pending') return '类型识别中'
 
   const config = CODE_GEN_TYPE_CONFIG[type as CodeGenTypeEnum]
   return config ? config.label : type
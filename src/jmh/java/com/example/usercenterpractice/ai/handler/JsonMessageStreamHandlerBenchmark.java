@@ -0,0 +1,76 @@
+package com.example.usercenterpractice.ai.handler;
+
+import cn.hutool.json.JSONUtil;
+import com.example.usercenterpractice.ai.model.message.AiResponseMessage;
+import com.example.usercenterpractice.ai.model.message.StreamMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vue 工程模式消息处理的单片段耗时对比
+ * 旧方案：toJsonStr 序列化 + 两次 toBean 反序列化
+ * 新方案：直接传递类型化消息
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMessageStreamHandlerBenchmark {
+
+    private static final int CHUNKS = 1000;
+
+    private final JsonMessageStreamHandler handler = new JsonMessageStreamHandler();
+
+    private List<AiResponseMessage> messages;
+
+    @Setup
+    public void setUp() {
+        String[] tokens = {"<template>", "\n  <div", " class=\"", "app", "\">", "商品", "列表", "</div>", "\n", "const", " count", " = ref(0);"};
+        messages = new ArrayList<>(CHUNKS);
+        for (int i = 0; i < CHUNKS; i++) {
+            messages.add(new AiResponseMessage(tokens[i % tokens.length]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS)
+    public void jsonRoundTrip(Blackhole blackhole) {
+        StringBuilder history = new StringBuilder();
+        for (AiResponseMessage message : messages) {
+            String chunk = JSONUtil.toJsonStr(message);
+            StreamMessage streamMessage = JSONUtil.toBean(chunk, StreamMessage.class);
+            blackhole.consume(streamMessage.getType());
+            history.append(JSONUtil.toBean(chunk, AiResponseMessage.class).getData());
+        }
+        blackhole.consume(history);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS)
+    public void typed(Blackhole blackhole) {
+        StringBuilder history = new StringBuilder();
+        Set<String> seenToolIds = new HashSet<>();
+        for (AiResponseMessage message : messages) {
+            blackhole.consume(handler.handleMessage(message, history, seenToolIds));
+        }
+        blackhole.consume(history);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.usercenterpractice.ai.parser;
+
+import com.example.usercenterpractice.ai.model.MultiFileCodeResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式解析器与正则解析器的耗时对比（50KB ~ 500KB 的模拟 LLM 输出）
+ * 正则方案：按片段收集到 StringBuilder，流结束后对全文做正则匹配
+ * 流式方案：片段到达时推进状态机，流结束时直接取结果
+ * *Total 为整个流的耗时，*AtCompletion 为流结束后到拿到结果的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingCodeParserBenchmark {
+
+    @Param({"50", "200", "500"})
+    private int sizeKb;
+
+    private List<String> chunks;
+
+    private String content;
+
+    private StreamingMultiFileCodeParser fedParser;
+
+    @Setup
+    public void setUp() {
+        content = buildResponse(sizeKb * 1024);
+        chunks = splitIntoTokens(content);
+        fedParser = new StreamingMultiFileCodeParser();
+        chunks.forEach(fedParser::append);
+        MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(content);
+        MultiFileCodeResult actual = fedParser.getResult();
+        if (!expected.getHtmlCode().equals(actual.getHtmlCode()) || !expected.getCssCode().equals(actual.getCssCode())
+                || !expected.getJsCode().equals(actual.getJsCode())) {
+            throw new IllegalStateException("两种解析器的结果不一致: " + sizeKb + "KB");
+        }
+    }
+
+    @Benchmark
+    public MultiFileCodeResult regexTotal() {
+        StringBuilder builder = new StringBuilder();
+        for (String chunk : chunks) {
+            builder.append(chunk);
+        }
+        return new MultiFileCodeParser().parseCode(builder.toString());
+    }
+
+    @Benchmark
+    public MultiFileCodeResult streamingTotal() {
+        StreamingMultiFileCodeParser parser = new StreamingMultiFileCodeParser();
+        for (String chunk : chunks) {
+            parser.append(chunk);
+        }
+        return parser.getResult();
+    }
+
+    @Benchmark
+    public MultiFileCodeResult regexAtCompletion() {
+        return new MultiFileCodeParser().parseCode(content);
+    }
+
+    @Benchmark
+    public MultiFileCodeResult streamingAtCompletion() {
+        return fedParser.getResult();
+    }
+
+    private static String buildResponse(int targetSize) {
+        int blockSize = targetSize / 3;
+        StringBuilder builder = new StringBuilder("下面是完整的网站代码：\n\n```html\n");
+        appendLines(builder, blockSize, "    <div class=\"card\"><span>商品 %d</span></div>\n");
+        builder.append("```\n\n样式如下：\n\n```css\n");
+        appendLines(builder, blockSize, ".card-%d { margin: 8px; color: #333; }\n");
+        builder.append("```\n\n脚本如下：\n\n```js\n");
+        appendLines(builder, blockSize, "console.log(`card ${%d}`);\n");
+        builder.append("```\n\n生成完毕。");
+        return builder.toString();
+    }
+
+    private static void appendLines(StringBuilder builder, int size, String lineFormat) {
+        int target = builder.length() + size;
+        for (int i = 0; builder.length() < target; i++) {
+            builder.append(String.format(lineFormat, i));
+        }
+    }
+
+    /**
+     * 按 LLM 输出习惯切成 2 ~ 8 个字符的小片段
+     */
+    private static List<String> splitIntoTokens(String content) {
+        List<String> chunks = new ArrayList<>();
+        int i = 0;
+        int step = 2;
+        while (i < content.length()) {
+            int end = Math.min(content.length(), i + step);
+            chunks.add(content.substring(i, end));
+            i = end;
+            step = step % 8 + 2;
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.usercenterpractice.manager.stream;
+
+import com.example.usercenterpractice.ai.handler.StreamChunkCoalescer;
+import com.example.usercenterpractice.config.GenerationSessionConfig.DetachPolicy;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 并发生成流容量负载测试：在给定堆内存预算内能同时保持多少个生成流，并换算为每 GB 堆内存的流数量
+ * 1. platform：平台线程逐流阻塞（Tomcat 平台线程同步输出），线程栈在堆外，另按 -Xss 计入预留
+ * 2. virtual：虚拟线程逐流阻塞（vt 部署模式下的同步处理），线程栈位于堆内
+ * 3. reactive：响应式会话（当前生成链路），GenerationSession + 回放缓冲区 + 片段合并 + 一个观看者，流不占用线程
+ * 每个流输出 CHUNKS_PER_STREAM 个片段后保持打开、等待后续输出；按批打开流，直到堆内存增量达到预算、
+ * 达到流数量上限或无法继续创建线程为止。
+ * <p>
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.main=com.example.usercenterpractice.manager.stream.GenerationStreamCapacityLoadTest
+ * -Djmh.args="reactive 256"（参数依次为模式与堆内存预算 MB，省略模式时依次测试全部模式）
+ */
+public class GenerationStreamCapacityLoadTest {
+
+    private static final int CHUNKS_PER_STREAM = 20;
+
+    /**
+     * 每批打开的流数量范围，按已测得的每流内存与剩余预算调整，接近预算时减小批量
+     */
+    private static final int MIN_BATCH = 100;
+
+    private static final int MAX_BATCH = 20_000;
+
+    private static final int MAX_STREAMS = 500_000;
+
+    private static final String CHUNK = "<div class=\"card\">生成内容片段</div>";
+
+    private static final long MB = 1024L * 1024;
+
+    private static final long GB = 1024 * MB;
+
+    public static void main(String[] args) throws Exception {
+        List<String> modes = args.length > 0 ? List.of(args[0]) : List.of("platform", "virtual", "reactive");
+        long budgetBytes = (args.length > 1 ? Long.parseLong(args[1]) : 256) * MB;
+        for (String mode : modes) {
+            run(mode, budgetBytes);
+        }
+    }
+
+    private static void run(String mode, long budgetBytes) throws Exception {
+        BiConsumer<List<AutoCloseable>, Integer> opener = switch (mode) {
+            case "platform" -> (handles, batch) ->
+                    openBlockingStreams(handles, batch, Thread.ofPlatform().daemon().factory()::newThread);
+            case "virtual" -> (handles, batch) ->
+                    openBlockingStreams(handles, batch, Thread.ofVirtual().factory()::newThread);
+            case "reactive" -> new ReactiveOpener()::open;
+            default -> throw new IllegalArgumentException("未知模式: " + mode);
+        };
+        long stackBytes = "platform".equals(mode) ? threadStackBytes() : 0;
+        List<AutoCloseable> handles = new ArrayList<>();
+        long baseline = usedHeapAfterGc();
+        long used = 0;
+        String stopReason = "达到流数量上限";
+        try {
+            int batch = MIN_BATCH;
+            while (handles.size() < MAX_STREAMS) {
+                opener.accept(handles, Math.min(batch, MAX_STREAMS - handles.size()));
+                used = usedHeapAfterGc() - baseline;
+                long consumed = used + stackBytes * handles.size();
+                if (consumed >= budgetBytes) {
+                    stopReason = "达到内存预算";
+                    break;
+                }
+                long perStream = Math.max(1, consumed / handles.size());
+                batch = (int) Math.max(MIN_BATCH, Math.min(MAX_BATCH, (budgetBytes - consumed) / perStream / 2));
+            }
+        } catch (Throwable e) {
+            stopReason = "无法继续打开流: " + e;
+        }
+        int streams = handles.size();
+        long bytesPerStream = Math.max(1, used / Math.max(1, streams) + stackBytes);
+        System.out.printf("%-8s 并发流 %d（%s）; 堆内存增量 %d MB; 每流 %d B（含线程栈预留 %d B）; 每 GB 可保持流数 %d%n",
+                mode, streams, stopReason, used / MB, bytesPerStream, stackBytes, GB / bytesPerStream);
+        for (AutoCloseable handle : handles) {
+            handle.close();
+        }
+    }
+
+    /**
+     * 逐流阻塞模型：每个流一个线程，累积已输出内容后阻塞等待下一个片段
+     */
+    private static void openBlockingStreams(List<AutoCloseable> handles, int batch,
+                                            Function<Runnable, Thread> threadFactory) {
+        CountDownLatch parked = new CountDownLatch(batch);
+        for (int i = 0; i < batch; i++) {
+            SynchronousQueue<String> upstream = new SynchronousQueue<>();
+            Thread thread = threadFactory.apply(() -> {
+                StringBuilder response = new StringBuilder();
+                for (int c = 0; c < CHUNKS_PER_STREAM; c++) {
+                    response.append(CHUNK);
+                }
+                parked.countDown();
+                try {
+                    upstream.take();
+                } catch (InterruptedException ignored) {
+                    // 流结束
+                }
+            });
+            thread.start();
+            handles.add(thread::interrupt);
+        }
+        await(parked);
+    }
+
+    /**
+     * 响应式模型：会话订阅内容流，观看者接入实时流，不占用线程
+     */
+    private static class ReactiveOpener {
+
+        private final InMemorySseReplayStore replayStore =
+                new InMemorySseReplayStore(MAX_STREAMS, 2000, Duration.ofMinutes(10));
+
+        private int opened;
+
+        void open(List<AutoCloseable> handles, int batch) {
+            CountDownLatch received = new CountDownLatch(batch);
+            for (int i = 0; i < batch; i++) {
+                int index = opened++;
+                Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+                GenerationSession session = new GenerationSession("s" + index, (long) index, 1L, replayStore,
+                        DetachPolicy.FINISH, Duration.ZERO);
+                session.start(StreamChunkCoalescer.coalesce(content.asFlux(), 40, 2048, Schedulers.parallel()), () -> {
+                });
+                AtomicInteger events = new AtomicInteger();
+                session.attach(0).subscribe(record -> {
+                    if (events.incrementAndGet() == 1) {
+                        received.countDown();
+                    }
+                });
+                for (int c = 0; c < CHUNKS_PER_STREAM; c++) {
+                    content.tryEmitNext(CHUNK);
+                }
+                handles.add(content::tryEmitComplete);
+            }
+            // 等待合并窗口到期，缓冲内容全部进入会话
+            await(received);
+        }
+    }
+
+    private static long threadStackBytes() {
+        HotSpotDiagnosticMXBean diagnostic = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        return Long.parseLong(diagnostic.getVMOption("ThreadStackSize").getValue()) * 1024;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 2; i++) {
+            System.gc();
+            sleep(20);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("流未在 30 秒内进入等待状态");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.usercenterpractice.utils;
+
+import cn.hutool.json.JSONUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * SSE 编码器与原方案的对比
+ * 旧方案：Map.of("d", chunk) + JSONUtil.toJsonStr
+ * 新方案：SseEventEncoder 直接转义到复用缓冲区
+ * 单事件耗时与内存分配（加 -prof gc 查看 gc.alloc.rate.norm），以及 512 个流在 Reactor 调度线程上交错编码时的单事件耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseEventEncoderBenchmark {
+
+    private static final int CONCURRENT_STREAMS = 512;
+
+    private static final int CHUNKS_PER_STREAM = 2000;
+
+    private static final Function<String, ServerSentEvent<String>> LEGACY = chunk -> ServerSentEvent.<String>builder()
+            .data(JSONUtil.toJsonStr(Map.of("d", chunk)))
+            .build();
+
+    private List<String> chunks;
+
+    @Setup
+    public void setUp() {
+        chunks = buildChunks();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS_PER_STREAM)
+    public void hutoolPerEvent(Blackhole blackhole) {
+        for (String chunk : chunks) {
+            blackhole.consume(LEGACY.apply(chunk));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS_PER_STREAM)
+    public void encoderPerEvent(Blackhole blackhole) {
+        for (String chunk : chunks) {
+            blackhole.consume(SseEventEncoder.dataEvent(chunk));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_STREAMS * CHUNKS_PER_STREAM)
+    public Long hutoolConcurrentStreams() {
+        return runConcurrent(LEGACY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_STREAMS * CHUNKS_PER_STREAM)
+    public Long encoderConcurrentStreams() {
+        return runConcurrent(SseEventEncoder::dataEvent);
+    }
+
+    /**
+     * 模拟多个流在 Reactor 调度线程上交错编码
+     */
+    private Long runConcurrent(Function<String, ServerSentEvent<String>> mapper) {
+        return Flux.range(0, CONCURRENT_STREAMS)
+                .flatMap(stream -> Flux.fromIterable(chunks)
+                        .subscribeOn(Schedulers.parallel())
+                        .map(mapper), CONCURRENT_STREAMS)
+                .count()
+                .block();
+    }
+
+    /**
+     * 模拟 LLM 输出的小片段，包含中文、引号、换行等需要转义的内容
+     */
+    private static List<String> buildChunks() {
+        String[] tokens = {"<div", " class=\"", "card", "\">", "\n    ", "商品", "名称", "</div>", "\t", "console", ".log(", "'ok'", ");\n"};
+        List<String> chunks = new ArrayList<>(CHUNKS_PER_STREAM);
+        for (int i = 0; i < CHUNKS_PER_STREAM; i++) {
+            chunks.add(tokens[i % tokens.length]);
+        }
+        return chunks;
+    }
+}
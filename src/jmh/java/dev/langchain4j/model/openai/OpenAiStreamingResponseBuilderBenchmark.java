@@ -0,0 +1,136 @@
+package dev.langchain4j.model.openai;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.internal.chat.ChatCompletionChoice;
+import dev.langchain4j.model.openai.internal.chat.ChatCompletionResponse;
+import dev.langchain4j.model.openai.internal.chat.Delta;
+import dev.langchain4j.model.openai.internal.chat.FunctionCall;
+import dev.langchain4j.model.openai.internal.chat.ToolCall;
+import dev.langchain4j.model.openai.internal.shared.Usage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单写者响应累加器与线程安全的 {@link OpenAiStreamingResponseBuilder} 的耗时对比
+ * 回放两类模拟的流式响应：HTML 模式的纯文本输出（120KB）、Vue 工程模式的多个工具调用（6 个 x 20KB 文件内容）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenAiStreamingResponseBuilderBenchmark {
+
+    @Param({"html", "vue"})
+    private String scenario;
+
+    private List<ChatCompletionResponse> deltas;
+
+    @Setup
+    public void setUp() {
+        deltas = "html".equals(scenario) ? textCompletion(120 * 1024) : toolCallCompletion(6, 20 * 1024);
+        if (!threadSafe().equals(singleWriter())) {
+            throw new IllegalStateException("两种实现的结果不一致: " + scenario);
+        }
+    }
+
+    @Benchmark
+    public ChatResponse threadSafe() {
+        OpenAiStreamingResponseBuilder builder = new OpenAiStreamingResponseBuilder();
+        for (ChatCompletionResponse delta : deltas) {
+            builder.append(delta);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public ChatResponse singleWriter() {
+        SingleWriterOpenAiStreamingResponseBuilder builder = new SingleWriterOpenAiStreamingResponseBuilder();
+        for (ChatCompletionResponse delta : deltas) {
+            builder.append(delta);
+        }
+        return builder.build();
+    }
+
+    private static List<ChatCompletionResponse> textCompletion(int size) {
+        List<ChatCompletionResponse> deltas = new ArrayList<>();
+        StringBuilder content = new StringBuilder("```html\n");
+        for (int i = 0; content.length() < size; i++) {
+            content.append("    <div class=\"card\"><span>商品 ").append(i).append("</span></div>\n");
+        }
+        content.append("```");
+        for (String token : splitIntoTokens(content.toString())) {
+            deltas.add(chunk(Delta.builder().content(token).build(), null));
+        }
+        deltas.add(chunk(null, "stop"));
+        return deltas;
+    }
+
+    private static List<ChatCompletionResponse> toolCallCompletion(int toolCalls, int argumentsSize) {
+        List<ChatCompletionResponse> deltas = new ArrayList<>();
+        for (int index = 0; index < toolCalls; index++) {
+            deltas.add(chunk(Delta.builder().toolCalls(List.of(ToolCall.builder()
+                    .index(index)
+                    .id("call_" + index)
+                    .function(FunctionCall.builder().name("writeFile").build())
+                    .build())).build(), null));
+            StringBuilder arguments = new StringBuilder("{\"relativeFilePath\":\"src/pages/Page" + index + ".vue\",\"content\":\"");
+            for (int i = 0; arguments.length() < argumentsSize; i++) {
+                arguments.append("<div class=\\\"row-").append(i).append("\\\">{{ item.name }}</div>\\n");
+            }
+            arguments.append("\"}");
+            for (String token : splitIntoTokens(arguments.toString())) {
+                deltas.add(chunk(Delta.builder().toolCalls(List.of(ToolCall.builder()
+                        .index(index)
+                        .function(FunctionCall.builder().arguments(token).build())
+                        .build())).build(), null));
+            }
+        }
+        deltas.add(chunk(null, "tool_calls"));
+        return deltas;
+    }
+
+    /**
+     * 与真实流一致，每个片段都携带 id、model、created，最后一个片段携带 usage
+     */
+    private static ChatCompletionResponse chunk(Delta delta, String finishReason) {
+        return ChatCompletionResponse.builder()
+                .id("chatcmpl-benchmark")
+                .created(1_700_000_000L)
+                .model("deepseek-chat")
+                .systemFingerprint("fp_benchmark")
+                .usage(finishReason == null ? null : Usage.builder().promptTokens(1000).completionTokens(30000).totalTokens(31000).build())
+                .choices(List.of(ChatCompletionChoice.builder().index(0).delta(delta).finishReason(finishReason).build()))
+                .build();
+    }
+
+    /**
+     * 按 LLM 输出习惯切成 2 ~ 8 个字符的小片段
+     */
+    private static List<String> splitIntoTokens(String content) {
+        List<String> chunks = new ArrayList<>();
+        int i = 0;
+        int step = 2;
+        while (i < content.length()) {
+            int end = Math.min(content.length(), i + step);
+            chunks.add(content.substring(i, end));
+            i = end;
+            step = step % 8 + 2;
+        }
+        return chunks;
+    }
+}
@@ -6,9 +6,12 @@ import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
-import reactor.core.publisher.Flux;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 
-public interface AiCodeGeneratorService {
+/**
+ * AI 代码生成服务，每种代码生成类型共享一个代理，对话记忆按 @MemoryId（appId）解析
+ */
+public interface AiCodeGeneratorService extends ChatMemoryAccess {
 
 
 
@@ -33,20 +36,32 @@ HtmlCodeResult generateHtmlCode(@MemoryId Long memoryId, @UserMessage String use
 @SystemMessage(fromResource = "Prompt/codegen-multi-file-system-prompt.txt")
 MultiFileCodeResult generateMultiFileCode(String userMessage);
 
+    /**
+     * 生成多文件代码
+     *
+     * @param memoryId    应用 ID（用于对话记忆）
+     * @param userMessage 用户消息
+     * @return 生成的代码结果
+     */
+    @SystemMessage(fromResource = "Prompt/codegen-multi-file-system-prompt.txt")
+    MultiFileCodeResult generateMultiFileCode(@MemoryId Long memoryId, @UserMessage String userMessage);
+
 /**
  * 生成html代码(流式)
+ * @param appId 应用 ID（用于对话记忆）
  * @param userMessage 用户输入
- * @return 生成的代码结果
+ * @return TokenStream 流式响应（支持取消）
  */
 @SystemMessage(fromResource = "Prompt/codegen-html-system-prompt.txt")
-    Flux<String> generateHtmlCodeStream(String userMessage);
+    TokenStream generateHtmlCodeStream(@MemoryId long appId, @UserMessage String userMessage);
     /**
      * 生成多文件代码(流式)
+     * @param appId 应用 ID（用于对话记忆）
      * @param userMessage 用户输入
-     * @return 生成的代码结果
+     * @return TokenStream 流式响应（支持取消）
      */
     @SystemMessage(fromResource = "Prompt/codegen-multi-file-system-prompt.txt")
-    Flux<String> generateMultiFileCodeStream(String userMessage);
+    TokenStream generateMultiFileCodeStream(@MemoryId long appId, @UserMessage String userMessage);
 
 
     /**
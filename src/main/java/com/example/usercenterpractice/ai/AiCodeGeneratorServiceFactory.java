@@ -1,7 +1,11 @@
 package com.example.usercenterpractice.ai;
 
 import com.example.usercenterpractice.ai.guardrail.PromptSafetyInputGuardrail;
+import com.example.usercenterpractice.ai.memory.ChatMemoryCompactor;
+import com.example.usercenterpractice.ai.memory.TokenBudgetChatMemory;
+import com.example.usercenterpractice.ai.memory.ToolLoopChatMemory;
 import com.example.usercenterpractice.ai.tools.*;
+import com.example.usercenterpractice.config.ChatMemoryBudgetConfig;
 import com.example.usercenterpractice.exception.BusinessException;
 import com.example.usercenterpractice.exception.ErrorCode;
 import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
@@ -9,12 +13,20 @@ import com.example.usercenterpractice.service.ChatHistoryService;
 import com.example.usercenterpractice.utils.SpringContextUtil;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 
@@ -23,6 +35,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Configuration
@@ -38,100 +53,143 @@ public class AiCodeGeneratorServiceFactory {
     @Resource(name = "reasoningStreamingChatModel")
     private StreamingChatModel reasoningStreamingChatModel;
     @Resource
-    private RedisChatMemoryStore redisChatMemoryStore;
+    private ChatMemoryStore chatMemoryStore;
+    @Resource
+    private ChatMemoryCompactor chatMemoryCompactor;
+    @Resource
+    private ChatMemoryBudgetConfig chatMemoryBudgetConfig;
     @Resource
     @Lazy
     private ChatHistoryService chatHistoryService;
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ToolManager toolManager;
 
     @Bean
     public AiCodeGeneratorService aiCodeGeneratorService() {
-        return getAiCodeGeneratorService(0L);
+        return getAiCodeGeneratorService(CodeGenTypeEnum.HTML);
     }
 
-    @Resource
-    private ToolManager toolManager;
+    /**
+     * AI 服务代理，每种代码生成类型一个，所有应用共享（对话记忆按 @MemoryId 经 chatMemoryProvider 解析）
+     */
+    private final Map<CodeGenTypeEnum, AiCodeGeneratorService> services = new ConcurrentHashMap<>();
 
+    /**
+     * 对话记忆缓存，键为 appId_类型，按加载的历史消息数加权并限制总权重
+     * 条目被移除时同步从 AI 服务代理内部的记忆表中移除，下次访问时重新构建（存储中已有记忆时不再从数据库加载）。
+     * AI 服务代理内部的记忆表只在首次使用时调用 chatMemoryProvider，因此每次发起生成及每次读写记忆时都会访问本缓存以刷新过期时间
+     */
+    private Cache<String, ChatMemory> chatMemoryCache;
+
+    @PostConstruct
+    public void initChatMemoryCache() {
+        chatMemoryCache = Caffeine.newBuilder()
+                .maximumWeight(chatMemoryBudgetConfig.getCacheMaxWeight())
+                .weigher((String key, ChatMemory chatMemory) -> ((WeightedChatMemory) chatMemory).weight())
+                .expireAfterAccess(Duration.ofMinutes(chatMemoryBudgetConfig.getCacheExpireAfterAccessMinutes()))
+                .removalListener((String key, ChatMemory chatMemory, RemovalCause cause) -> {
+                    if (chatMemory != null) {
+                        WeightedChatMemory weightedChatMemory = (WeightedChatMemory) chatMemory;
+                        AiCodeGeneratorService service = services.get(weightedChatMemory.codeGenType());
+                        if (service != null) {
+                            service.evictChatMemory(weightedChatMemory.memoryId());
+                        }
+                    }
+                    log.debug("对话记忆被移除，缓存键: {}, 原因: {}", key, cause);
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, chatMemoryCache, "chat_memory_provider");
+    }
+
+    /**
+     * 根据代码生成类型获取服务
+     */
+    public AiCodeGeneratorService getAiCodeGeneratorService(CodeGenTypeEnum codeGenType) {
+        return services.computeIfAbsent(codeGenType, this::createAiCodeGeneratorService);
+    }
 
     /**
-     * AI 服务实例缓存
+     * 获取发起生成所用的服务，同时刷新该应用对话记忆的缓存过期时间（记忆已被移除时重新构建）
+     *
+     * @param codeGenType 代码生成类型
+     * @param appId       应用 ID
      */
-    private final Cache<String, AiCodeGeneratorService> serviceCache = Caffeine.newBuilder()
-            .maximumSize(1000)
-            .expireAfterWrite(Duration.ofMinutes(30))
-            .expireAfterAccess(Duration.ofMinutes(10))
-            .removalListener((key, value, cause) -> {
-                log.debug("AI 服务实例被移除，缓存键: {}, 原因: {}", key, cause);
-            })
-            .build();
+    public AiCodeGeneratorService getAiCodeGeneratorService(CodeGenTypeEnum codeGenType, long appId) {
+        resolveChatMemory(appId, codeGenType);
+        return getAiCodeGeneratorService(codeGenType);
+    }
 
     /**
-     * 根据 appId 获取服务（带缓存）这个方法是为了兼容历史逻辑
+     * 是否为应用在该类型下的首轮对话（记忆中没有用户消息），记忆未加载时从数据库加载
      */
-    public AiCodeGeneratorService getAiCodeGeneratorService(long appId) {
-        return getAiCodeGeneratorService(appId, CodeGenTypeEnum.HTML);
+    public boolean isFirstTurn(long appId, CodeGenTypeEnum codeGenType) {
+        WeightedChatMemory chatMemory = (WeightedChatMemory) resolveChatMemory(appId, codeGenType);
+        return chatMemory.storedMessages().stream().noneMatch(UserMessage.class::isInstance);
     }
 
     /**
-     * 根据 appId 和代码生成类型获取服务（带缓存）
+     * 将未经模型生成的一轮对话（如缓存回放）追加到记忆，使后续轮次有完整上下文
      */
-    public AiCodeGeneratorService getAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        String cacheKey = buildCacheKey(appId, codeGenType);
-        return serviceCache.get(cacheKey, key -> createAiCodeGeneratorService(appId, codeGenType));
+    public void appendTurn(long appId, CodeGenTypeEnum codeGenType, String userMessage, String aiResponse) {
+        ChatMemory chatMemory = resolveChatMemory(appId, codeGenType);
+        chatMemory.add(UserMessage.from(userMessage));
+        chatMemory.add(AiMessage.from(aiResponse));
     }
 
     /**
-     * 构建缓存键
+     * 解析对话记忆：未指定 @MemoryId 的方法使用 langchain4j 的默认记忆 ID，按 appId 0 处理
      */
-    private String buildCacheKey(long appId, CodeGenTypeEnum codeGenType) {
+    private ChatMemory resolveChatMemory(Object memoryId, CodeGenTypeEnum codeGenType) {
+        long appId = memoryId instanceof Number number ? number.longValue() : 0L;
+        return chatMemoryCache.get(cacheKey(appId, codeGenType),
+                key -> buildChatMemory(memoryId, appId, codeGenType));
+    }
+
+    private static String cacheKey(long appId, CodeGenTypeEnum codeGenType) {
         return appId + "_" + codeGenType.getValue();
     }
 
     /**
-     * 创建新的 AI 服务实例
+     * 根据 appId 构建独立的对话记忆，存储中没有该应用的记忆时从数据库批量加载历史对话（一次写入）
+     * 存储中已有记忆（如缓存条目被移除而存储仍保留）时直接沿用，避免数据库中只有用户与 AI 消息的历史覆盖工具调用记录。
+     * 存储按条数窗口保留，发送给模型前按生成类型的 token 预算压缩
      */
-    private AiCodeGeneratorService createAiCodeGeneratorService(long appId) {
-        log.info("为 appId: {} 创建新的 AI 服务实例", appId);
-        // 根据 appId 构建独立的对话记忆
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory
+    private ChatMemory buildChatMemory(Object memoryId, long appId, CodeGenTypeEnum codeGenType) {
+        int maxMessages = chatMemoryBudgetConfig.getMaxMessages();
+        MessageWindowChatMemory windowChatMemory = MessageWindowChatMemory
                 .builder()
                 .id(appId)
-                .chatMemoryStore(redisChatMemoryStore)
-                .maxMessages(20)
-                .build();
-        // 从数据库加载历史对话到记忆中
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
-        return AiServices.builder(AiCodeGeneratorService.class)
-                .chatModel(chatModel)
-                .streamingChatModel( openAiStreamingChatModel)
-                .chatMemory(chatMemory)
+                .chatMemoryStore(chatMemoryStore)
+                .maxMessages(maxMessages)
                 .build();
+        int stored = chatMemoryStore.getMessages(appId).size();
+        int loaded = stored > 0 ? stored : chatHistoryService.loadChatHistoryToMemory(appId, chatMemoryStore, maxMessages);
+        TokenBudgetChatMemory chatMemory = new TokenBudgetChatMemory(windowChatMemory, chatMemoryStore, maxMessages,
+                codeGenType, chatMemoryCompactor);
+        String cacheKey = cacheKey(appId, codeGenType);
+        return new WeightedChatMemory(chatMemory, memoryId, codeGenType, 1 + loaded,
+                () -> chatMemoryCache.getIfPresent(cacheKey));
     }
 
-
     /**
      * 创建新的 AI 服务实例
      */
-    private AiCodeGeneratorService createAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        // 根据 appId 构建独立的对话记忆
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory
-                .builder()
-                .id(appId)
-                .chatMemoryStore(redisChatMemoryStore)
-                .maxMessages(20)
-                .build();
-        // 从数据库加载历史对话到记忆中
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
-        // 根据代码生成类型选择不同的模型配置
+    private AiCodeGeneratorService createAiCodeGeneratorService(CodeGenTypeEnum codeGenType) {
+        log.info("创建 AI 服务实例，类型: {}", codeGenType.getValue());
         // 根据代码生成类型选择不同的模型配置
         return switch (codeGenType) {
             case VUE_PROJECT -> {
-                // 使用多例模式的 StreamingChatModel 解决并发问题
+                // 每种类型一个 StreamingChatModel 实例，与其他类型的请求互不影响
                 // 使用 deepseek-chat 模型，避免 reasoning_content 字段错误
                 StreamingChatModel streamingChatModel = SpringContextUtil.getBean("streamingChatModelPrototype", StreamingChatModel.class);
                 yield AiServices.builder(AiCodeGeneratorService.class)
                         .chatModel(chatModel)
                         .streamingChatModel(streamingChatModel)
-                        .chatMemoryProvider(memoryId -> chatMemory)
+                        .chatMemoryProvider(memoryId -> resolveChatMemory(memoryId, codeGenType))
                         .tools(toolManager.getAllTools())
                         .maxSequentialToolsInvocations(20)
                         .inputGuardrails(new PromptSafetyInputGuardrail())  // 添加输入护轨
@@ -141,12 +199,12 @@ public class AiCodeGeneratorServiceFactory {
                         .build();
             }
             case HTML, MULTI_FILE -> {
-                // 使用多例模式的 StreamingChatModel 解决并发问题
+                // 每种类型一个 StreamingChatModel 实例，与其他类型的请求互不影响
                 StreamingChatModel openAiStreamingChatModel = SpringContextUtil.getBean("streamingChatModelPrototype", StreamingChatModel.class);
                 yield AiServices.builder(AiCodeGeneratorService.class)
                         .chatModel(chatModel)
                         .streamingChatModel(openAiStreamingChatModel)
-                        .chatMemory(chatMemory)
+                        .chatMemoryProvider(memoryId -> resolveChatMemory(memoryId, codeGenType))
                         .inputGuardrails(new PromptSafetyInputGuardrail())
                         .build();
             }
@@ -156,5 +214,50 @@ public class AiCodeGeneratorServiceFactory {
 
     }
 
+    /**
+     * 带缓存权重的对话记忆，记录所属的记忆 ID 与生成类型以便移除时同步清理服务代理
+     * 读写记忆时经 touch 访问缓存条目，生成过程中的记忆不会因空闲过期被移除
+     */
+    private record WeightedChatMemory(TokenBudgetChatMemory delegate, Object memoryId, CodeGenTypeEnum codeGenType,
+                                      int weight, Runnable touch) implements ToolLoopChatMemory {
+
+        @Override
+        public Object id() {
+            return delegate.id();
+        }
+
+        @Override
+        public void add(ChatMessage message) {
+            touch.run();
+            delegate.add(message);
+        }
+
+        @Override
+        public List<ChatMessage> messages() {
+            touch.run();
+            return delegate.messages();
+        }
 
-}
\ No newline at end of file
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+
+        @Override
+        public List<ChatMessage> storedMessages() {
+            touch.run();
+            return delegate.storedMessages();
+        }
+
+        @Override
+        public List<ChatMessage> compact(List<ChatMessage> messages) {
+            return delegate.compact(messages);
+        }
+
+        @Override
+        public void addAll(List<ChatMessage> messages) {
+            touch.run();
+            delegate.addAll(messages);
+        }
+    }
+}
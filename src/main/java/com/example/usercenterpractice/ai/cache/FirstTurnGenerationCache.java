@@ -0,0 +1,115 @@
+package com.example.usercenterpractice.ai.cache;
+
+import com.example.usercenterpractice.ai.routing.CodeGenTypeClassifier;
+import com.example.usercenterpractice.config.FirstTurnCacheConfig;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 首轮生成结果缓存
+ * 以代码生成类型与用户 ID 为命名空间、规范化需求描述的 MinHash 签名为键，缓存首轮完整生成的原始响应文本；
+ * 近似重复的首轮需求命中后以片段流回放，仍经流式解析与保存流程落盘。仅在本节点内存中缓存。
+ * 需求描述与生成结果可能包含个人信息（姓名、联系方式等），缓存按用户隔离，只回放给提出过相同需求的用户本人。
+ */
+@Slf4j
+@Component
+public class FirstTurnGenerationCache {
+
+    @Resource
+    private FirstTurnCacheConfig firstTurnCacheConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private MinHashLshIndex<String> index;
+
+    @PostConstruct
+    public void init() {
+        index = new MinHashLshIndex<>(firstTurnCacheConfig.getShingleSize(), firstTurnCacheConfig.getNumHashes(),
+                firstTurnCacheConfig.getBands(), firstTurnCacheConfig.getMaxEntries(),
+                Duration.ofMinutes(firstTurnCacheConfig.getExpireMinutes()));
+        meterRegistry.gauge("code_gen.first_turn_cache.size", index, MinHashLshIndex::size);
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(firstTurnCacheConfig.getEnabled());
+    }
+
+    /**
+     * 查找该用户近似需求的缓存结果
+     *
+     * @return 缓存的响应文本，未命中时返回 null
+     */
+    public String get(CodeGenTypeEnum codeGenType, Long userId, String userMessage) {
+        String normalized = CodeGenTypeClassifier.normalize(userMessage);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        MinHashLshIndex.Match<String> match = index.findSimilar(namespace(codeGenType, userId), normalized,
+                firstTurnCacheConfig.getSimilarityThreshold());
+        meterRegistry.counter("code_gen.first_turn_cache.requests",
+                "type", codeGenType.getValue(), "result", match == null ? "miss" : "hit").increment();
+        if (match == null) {
+            return null;
+        }
+        log.info("首轮生成缓存命中，类型: {}, 相似度: {}", codeGenType.getValue(), String.format("%.2f", match.similarity()));
+        return match.value();
+    }
+
+    /**
+     * 记录生成流的完整文本，正常完成时写入缓存（失败或取消的生成不缓存）
+     */
+    public Flux<String> record(CodeGenTypeEnum codeGenType, Long userId, String userMessage, Flux<String> codeStream) {
+        String normalized = CodeGenTypeClassifier.normalize(userMessage);
+        if (normalized.isEmpty()) {
+            return codeStream;
+        }
+        return Flux.defer(() -> {
+            StringBuilder response = new StringBuilder();
+            return codeStream
+                    .doOnNext(response::append)
+                    .doOnComplete(() -> {
+                        // 不含代码块的响应（如拒答、澄清问题）不缓存
+                        if (response.length() <= firstTurnCacheConfig.getMaxResponseChars()
+                                && response.indexOf("```") >= 0) {
+                            index.put(namespace(codeGenType, userId), normalized, response.toString());
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 将缓存的响应文本切分为片段流回放
+     */
+    public Flux<String> replay(String response) {
+        int chunkChars = firstTurnCacheConfig.getReplayChunkChars();
+        List<String> chunks = new ArrayList<>(response.length() / chunkChars + 1);
+        int start = 0;
+        while (start < response.length()) {
+            int end = Math.min(response.length(), start + chunkChars);
+            // 不拆分代理对
+            if (end < response.length() && Character.isHighSurrogate(response.charAt(end - 1))) {
+                end++;
+            }
+            chunks.add(response.substring(start, end));
+            start = end;
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    /**
+     * 缓存命名空间：代码生成类型 + 用户 ID
+     */
+    private static String namespace(CodeGenTypeEnum codeGenType, Long userId) {
+        return codeGenType.getValue() + ":" + userId;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.usercenterpractice.ai.cache;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 MinHash + LSH 分桶的近似重复文本索引
+ * 文本按字符 n-gram 切分为 shingle 集合，签名为 numHashes 个哈希函数下的最小值，签名逐位相同的比例即 Jaccard 相似度的估计；
+ * 签名划分为 bands 段，任一段完全相同的条目成为候选，再按签名相似度校验阈值，查找代价与条目总数无关。
+ * 条目按命名空间隔离（如代码生成类型），由 Caffeine 按条目数与写入时长淘汰，淘汰时同步清理分桶。
+ *
+ * @param <V> 条目值类型
+ */
+public class MinHashLshIndex<V> {
+
+    private final int shingleSize;
+
+    private final int bands;
+
+    private final int rowsPerBand;
+
+    private final long[] seeds;
+
+    /**
+     * 条目 ID（命名空间 + 文本摘要）-> 条目
+     */
+    private final Cache<String, Entry<V>> entries;
+
+    /**
+     * 分桶键（命名空间 + 段号 + 段哈希）-> 条目 ID
+     */
+    private final Map<String, Set<String>> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param shingleSize 字符 n-gram 长度
+     * @param numHashes   签名长度，需为 bands 的整数倍
+     * @param bands       LSH 分段数，分段越多召回越高、候选越多
+     * @param maxEntries  最大条目数
+     * @param expire      条目写入后的过期时长
+     */
+    public MinHashLshIndex(int shingleSize, int numHashes, int bands, long maxEntries, Duration expire) {
+        if (shingleSize <= 0 || bands <= 0 || numHashes < bands || numHashes % bands != 0) {
+            throw new IllegalArgumentException("签名长度需为分段数的整数倍");
+        }
+        this.shingleSize = shingleSize;
+        this.bands = bands;
+        this.rowsPerBand = numHashes / bands;
+        // 固定种子，保证各节点、重启前后的签名一致
+        SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+        this.seeds = new long[numHashes];
+        for (int i = 0; i < numHashes; i++) {
+            seeds[i] = random.nextLong();
+        }
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(expire)
+                .removalListener((String id, Entry<V> entry, RemovalCause cause) -> {
+                    if (entry != null && cause != RemovalCause.REPLACED) {
+                        unindex(id, entry);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 写入条目，相同命名空间下文本完全相同时覆盖
+     */
+    public void put(String namespace, String text, V value) {
+        int[] signature = signature(text);
+        String id = namespace + ":" + DigestUtil.md5Hex(text);
+        Entry<V> entry = new Entry<>(namespace, signature, value);
+        entries.put(id, entry);
+        for (int band = 0; band < bands; band++) {
+            buckets.computeIfAbsent(bucketKey(namespace, signature, band), key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * 查找相似度不低于阈值的最相似条目
+     *
+     * @return 命中结果，没有满足阈值的条目时返回 null
+     */
+    public Match<V> findSimilar(String namespace, String text, double threshold) {
+        int[] signature = signature(text);
+        Set<String> candidates = new HashSet<>();
+        for (int band = 0; band < bands; band++) {
+            Set<String> bucket = buckets.get(bucketKey(namespace, signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        Match<V> best = null;
+        for (String id : candidates) {
+            Entry<V> entry = entries.getIfPresent(id);
+            if (entry == null || !entry.namespace().equals(namespace)) {
+                continue;
+            }
+            double similarity = similarity(signature, entry.signature());
+            if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                best = new Match<>(entry.value(), similarity);
+            }
+        }
+        return best;
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    /**
+     * MinHash 签名：各哈希函数下 shingle 哈希的最小值
+     */
+    int[] signature(String text) {
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingleCount = Math.max(1, text.length() - shingleSize + 1);
+        for (int start = 0; start < shingleCount; start++) {
+            long shingleHash = fnv1a(text, start, Math.min(text.length(), start + shingleSize));
+            for (int i = 0; i < seeds.length; i++) {
+                int hash = (int) mix64(shingleHash ^ seeds[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * 签名相似度：逐位相同的比例
+     */
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    private String bucketKey(String namespace, int[] signature, int band) {
+        int from = band * rowsPerBand;
+        int hash = 1;
+        for (int i = from; i < from + rowsPerBand; i++) {
+            hash = 31 * hash + signature[i];
+        }
+        return namespace + ":" + band + ":" + hash;
+    }
+
+    private void unindex(String id, Entry<V> entry) {
+        for (int band = 0; band < bands; band++) {
+            buckets.computeIfPresent(bucketKey(entry.namespace(), entry.signature(), band), (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static long fnv1a(String text, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * SplitMix64 的混合函数，由一个基础哈希派生出相互独立的哈希函数
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Entry<V>(String namespace, int[] signature, V value) {
+    }
+
+    /**
+     * 查找结果
+     *
+     * @param value      条目值
+     * @param similarity 估计的 Jaccard 相似度
+     */
+    public record Match<V>(V value, double similarity) {
+    }
+}
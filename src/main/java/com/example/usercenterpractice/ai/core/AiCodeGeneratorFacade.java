@@ -3,18 +3,28 @@ package com.example.usercenterpractice.ai.core;
 import cn.hutool.json.JSONUtil;
 import com.example.usercenterpractice.ai.AiCodeGeneratorService;
 import com.example.usercenterpractice.ai.AiCodeGeneratorServiceFactory;
+import com.example.usercenterpractice.ai.cache.FirstTurnGenerationCache;
 import com.example.usercenterpractice.ai.core.builder.VueProjectBuilder;
+import com.example.usercenterpractice.ai.guardrail.PromptSafetyInputGuardrail;
 import com.example.usercenterpractice.ai.model.HtmlCodeResult;
 import com.example.usercenterpractice.ai.model.MultiFileCodeResult;
 import com.example.usercenterpractice.ai.model.message.AiResponseMessage;
+import com.example.usercenterpractice.ai.model.message.StreamMessage;
 import com.example.usercenterpractice.ai.model.message.ToolExecutedMessage;
 import com.example.usercenterpractice.ai.model.message.ToolRequestMessage;
 import com.example.usercenterpractice.ai.parser.CodeParserExecutor;
+import com.example.usercenterpractice.ai.parser.StreamingCodeParser;
 import com.example.usercenterpractice.ai.saver.CodeFileSaverExecutor;
+import com.example.usercenterpractice.ai.stream.BoundedStreamBridge;
+import com.example.usercenterpractice.ai.stream.StreamBufferMetrics;
+import com.example.usercenterpractice.ai.stream.StreamCancellationMetrics;
+import com.example.usercenterpractice.ai.stream.StreamLatencyMetrics;
+import com.example.usercenterpractice.config.StreamBackpressureConfig;
 import com.example.usercenterpractice.constant.AppConstant;
 import com.example.usercenterpractice.exception.BusinessException;
 import com.example.usercenterpractice.exception.ErrorCode;
 import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.tool.ToolExecution;
@@ -22,8 +32,11 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Ai代码生成器门面类，组成生成和保存功能
@@ -32,12 +45,32 @@ import java.io.File;
 @Service
 public class AiCodeGeneratorFacade {
 
+    private static final PromptSafetyInputGuardrail PROMPT_SAFETY_GUARDRAIL = new PromptSafetyInputGuardrail();
+
     @Resource
     private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
     @Resource
     private VueProjectBuilder vueProjectBuilder;
 
+    @Resource
+    private StreamCancellationMetrics streamCancellationMetrics;
+
+    @Resource
+    private StreamBufferMetrics streamBufferMetrics;
+
+    @Resource
+    private StreamLatencyMetrics streamLatencyMetrics;
+
+    @Resource
+    private StreamBackpressureConfig streamBackpressureConfig;
+
+    @Resource
+    private FirstTurnGenerationCache firstTurnGenerationCache;
+
+    @Resource
+    private Scheduler blockingScheduler;
+
     /**
      * 统一入口：根据类型生成并保存代码（使用 appId）
      *
@@ -52,7 +85,7 @@ public class AiCodeGeneratorFacade {
         }
 
         // 根据 appId 动态获取 AI 服务实例
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(codeGenTypeEnum, appId);
 
         return switch (codeGenTypeEnum) {
             case HTML -> {
@@ -60,7 +93,7 @@ public class AiCodeGeneratorFacade {
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.HTML, appId);
             }
             case MULTI_FILE -> {
-                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(userMessage);
+                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(appId, userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.MULTI_FILE, appId);
             }
             default -> {
@@ -78,25 +111,32 @@ public class AiCodeGeneratorFacade {
      * @param appId           应用 ID
      */
     public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+        return generateAndSaveCodeStream(userMessage, codeGenTypeEnum, appId, null);
+    }
+
+    /**
+     * 统一入口：根据类型生成并保存代码（流式，使用 appId）
+     *
+     * @param userMessage     用户提示词
+     * @param codeGenTypeEnum 生成类型
+     * @param appId           应用 ID
+     * @param userId          发起生成的用户 ID，首轮生成缓存按用户隔离，为 null 时不使用首轮缓存
+     */
+    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId,
+                                                  Long userId) {
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
         }
 
         // 根据 appId 获取对应的 AI 服务实例
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(codeGenTypeEnum, appId);
 
         return switch (codeGenTypeEnum) {
-            case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
-            }
-            case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
-            }
+            case HTML, MULTI_FILE -> generateTextCodeStream(aiCodeGeneratorService, userMessage, codeGenTypeEnum, appId, userId);
             case VUE_PROJECT -> {
+                // 兼容字符串流的调用方，类型化消息在此处编码为 JSON
                 TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
-                yield processTokenStream(tokenStream, appId);
+                yield processTokenStream(tokenStream, appId).map(JSONUtil::toJsonStr);
             }
             default -> {
                 String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
@@ -105,6 +145,45 @@ public class AiCodeGeneratorFacade {
         };
     }
 
+    /**
+     * HTML、多文件模式流式生成
+     * 首轮对话先查找该用户近似需求的缓存结果，命中时回放缓存并追加到对话记忆；未命中时完整生成后写入缓存
+     */
+    private Flux<String> generateTextCodeStream(AiCodeGeneratorService aiCodeGeneratorService, String userMessage,
+                                                CodeGenTypeEnum codeGenType, Long appId, Long userId) {
+        boolean firstTurn = firstTurnGenerationCache.isEnabled() && userId != null
+                && aiCodeGeneratorServiceFactory.isFirstTurn(appId, codeGenType);
+        // 缓存回放不经过 AI 服务，需先通过与之相同的输入护轨；未通过时交由 AI 服务按原流程拒绝
+        if (firstTurn && PROMPT_SAFETY_GUARDRAIL.validate(UserMessage.from(userMessage)).isSuccess()) {
+            String cachedResponse = firstTurnGenerationCache.get(codeGenType, userId, userMessage);
+            if (cachedResponse != null) {
+                aiCodeGeneratorServiceFactory.appendTurn(appId, codeGenType, userMessage, cachedResponse);
+                return processCodeStream(firstTurnGenerationCache.replay(cachedResponse), codeGenType, appId);
+            }
+        }
+        TokenStream tokenStream = codeGenType == CodeGenTypeEnum.HTML
+                ? aiCodeGeneratorService.generateHtmlCodeStream(appId, userMessage)
+                : aiCodeGeneratorService.generateMultiFileCodeStream(appId, userMessage);
+        Flux<String> codeStream = processTextTokenStream(tokenStream, codeGenType);
+        if (firstTurn) {
+            codeStream = firstTurnGenerationCache.record(codeGenType, userId, userMessage, codeStream);
+        }
+        return processCodeStream(codeStream, codeGenType, appId);
+    }
+
+    /**
+     * Vue 工程模式流式生成，直接返回类型化消息流，避免进程内的 JSON 序列化与反序列化
+     *
+     * @param userMessage 用户提示词
+     * @param appId       应用 ID
+     * @return 类型化消息流（AI 响应、工具调用、工具执行结果）
+     */
+    public Flux<StreamMessage> generateVueProjectMessageStream(String userMessage, Long appId) {
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(CodeGenTypeEnum.VUE_PROJECT, appId);
+        TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
+        return processTokenStream(tokenStream, appId);
+    }
+
     /**
      * 通用流式代码处理方法（使用 appId）
      *
@@ -114,16 +193,26 @@ public class AiCodeGeneratorFacade {
      * @return 流式响应
      */
     private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
-        StringBuilder codeBuilder = new StringBuilder();
+        // 流式解析器随片段推进解析，完成时无需再对全文做正则匹配
+        StreamingCodeParser<?> codeParser = CodeParserExecutor.createStreamingParser(codeGenType);
+        // 代码块闭合即落盘，生成过程中即可预览已完成的文件
+        codeParser.setCodeBlockListener((language, code) -> {
+            try {
+                File savedFile = CodeFileSaverExecutor.executeBlockSaver(language, code, codeGenType, appId);
+                if (savedFile != null) {
+                    log.info("代码块已保存，路径为：{}", savedFile.getAbsolutePath());
+                }
+            } catch (Exception e) {
+                log.error("代码块保存失败: {}", e.getMessage());
+            }
+        });
         return codeStream.doOnNext(chunk -> {
-            // 实时收集代码片段
-            codeBuilder.append(chunk);
+            // 实时解析代码片段
+            codeParser.append(chunk);
         }).doOnComplete(() -> {
             // 流式返回完成后保存代码
             try {
-                String completeCode = codeBuilder.toString();
-                // 使用执行器解析代码
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
+                Object parsedResult = codeParser.getResult();
                 // 使用执行器保存代码
                 File savedDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
                 log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
@@ -134,39 +223,90 @@ public class AiCodeGeneratorFacade {
     }
 
     /**
-     * 将 TokenStream 转换为 Flux<String>，并传递工具调用信息
+     * 将 TokenStream 转换为纯文本流（HTML、MULTI_FILE）
      *
      * @param tokenStream TokenStream 对象
+     * @param codeGenType 代码生成类型
      * @return Flux<String> 流式响应
      */
-    private Flux<String> processTokenStream(TokenStream tokenStream , Long appId) {
+    private Flux<String> processTextTokenStream(TokenStream tokenStream, CodeGenTypeEnum codeGenType) {
+        return bridgeTokenStream(tokenStream, codeGenType, null)
+                .ofType(AiResponseMessage.class)
+                .map(AiResponseMessage::getData);
+    }
+
+    /**
+     * 将 TokenStream 转换为类型化消息流，并传递工具调用信息
+     *
+     * @param tokenStream TokenStream 对象
+     * @return Flux<StreamMessage> 流式响应
+     */
+    private Flux<StreamMessage> processTokenStream(TokenStream tokenStream , Long appId) {
+        return bridgeTokenStream(tokenStream, CodeGenTypeEnum.VUE_PROJECT, () -> {
+            // 执行 Vue 项目构建（在流结束前完成，确保预览时项目已就绪）
+            String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + "vue_project_" + appId;
+            vueProjectBuilder.buildProject(projectPath);
+        });
+    }
+
+    /**
+     * TokenStream 与 Flux 的桥接
+     * 经有界缓冲区按下游请求量发送，下游消费过慢时合并文本或暂停工具执行；
+     * 下游取消订阅时取消 TokenStream：中断上游 HTTP 流并跳过尚未执行的工具调用
+     *
+     * @param tokenStream TokenStream 对象
+     * @param codeGenType 代码生成类型
+     * @param onComplete  生成完成后、流结束前执行的阻塞操作，在阻塞调度器上执行而不占用模型流式线程，可为 null
+     * @return Flux<StreamMessage> 流式响应
+     */
+    private Flux<StreamMessage> bridgeTokenStream(TokenStream tokenStream, CodeGenTypeEnum codeGenType, Runnable onComplete) {
         return Flux.create(sink -> {
+            AtomicLong streamedChunks = new AtomicLong();
+            long startNanos = System.nanoTime();
+            BoundedStreamBridge bridge = new BoundedStreamBridge(sink,
+                    streamBackpressureConfig.getMaxBufferedBytes(),
+                    streamBackpressureConfig.getTextOverflowPolicy(),
+                    Duration.ofSeconds(streamBackpressureConfig.getPauseTimeoutSeconds()),
+                    streamBufferMetrics, tokenStream::cancel);
+            sink.onCancel(() -> {
+                tokenStream.cancel();
+                streamCancellationMetrics.recordCancelled(codeGenType, streamedChunks.get());
+                log.info("客户端取消订阅，已中止生成，类型: {}, 已输出片段数: {}", codeGenType.getValue(), streamedChunks.get());
+            });
             tokenStream.onPartialResponse((String partialResponse) -> {
-                        AiResponseMessage aiResponseMessage = new AiResponseMessage(partialResponse);
-                        sink.next(JSONUtil.toJsonStr(aiResponseMessage));
+                        if (streamedChunks.incrementAndGet() == 1) {
+                            streamLatencyMetrics.recordTimeToFirstToken(codeGenType, Duration.ofNanos(System.nanoTime() - startNanos));
+                        }
+                        bridge.nextText(partialResponse);
                     })
                     .onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
-                        ToolRequestMessage toolRequestMessage = new ToolRequestMessage(toolExecutionRequest);
-                        sink.next(JSONUtil.toJsonStr(toolRequestMessage));
+                        bridge.next(new ToolRequestMessage(toolExecutionRequest));
                     })
                     .onToolExecuted((ToolExecution toolExecution) -> {
-                        ToolExecutedMessage toolExecutedMessage = new ToolExecutedMessage(toolExecution);
-                        sink.next(JSONUtil.toJsonStr(toolExecutedMessage));
+                        bridge.next(new ToolExecutedMessage(toolExecution));
                     })
                     .onCompleteResponse((ChatResponse response) -> {
-                        // 执行 Vue 项目构建（同步执行，确保预览时项目已就绪）
-                        String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + "vue_project_" + appId;
-                        vueProjectBuilder.buildProject(projectPath);
-                        sink.complete();
+                        streamCancellationMetrics.recordCompleted(codeGenType, response);
+                        streamLatencyMetrics.recordInputTokens(codeGenType, response);
+                        if (onComplete == null) {
+                            bridge.complete();
+                            return;
+                        }
+                        blockingScheduler.schedule(() -> {
+                            try {
+                                onComplete.run();
+                            } catch (Exception e) {
+                                log.error("生成完成后的处理失败，类型: {}", codeGenType.getValue(), e);
+                            } finally {
+                                bridge.complete();
+                            }
+                        });
                     })
-
                     .onError((Throwable error) -> {
-                        error.printStackTrace();
-                        sink.error(error);
+                        log.error("生成失败，类型: {}", codeGenType.getValue(), error);
+                        bridge.error(error);
                     })
                     .start();
         });
     }
-
-
 }
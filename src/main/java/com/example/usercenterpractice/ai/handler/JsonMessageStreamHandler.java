@@ -15,6 +15,8 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -22,6 +24,7 @@ import java.util.Set;
 /**
  * JSON 消息流处理器
  * 处理 VUE_PROJECT 类型的复杂流式响应，包含工具调用信息
+ * 进程内直接传递类型化消息，JSON 编码只在 SSE 输出时进行一次
  */
 @Slf4j
 @Component
@@ -33,96 +36,104 @@ public class JsonMessageStreamHandler {
     @Resource
     private ToolManager toolManager;
 
+    @Resource
+    private Scheduler blockingScheduler;
+
     /**
      * 处理 TokenStream（VUE_PROJECT）
-     * 解析 JSON 消息并重组为完整的响应格式
+     * 将类型化消息重组为完整的响应格式
      *
-     * @param originFlux         原始流
+     * @param messageFlux        类型化消息流
      * @param chatHistoryService 聊天历史服务
      * @param appId              应用ID
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> messageFlux,
                                ChatHistoryService chatHistoryService,
                                long appId, User loginUser) {
         // 收集数据用于生成后端记忆格式
         StringBuilder chatHistoryStringBuilder = new StringBuilder();
         // 用于跟踪已经见过的工具ID，判断是否是第一次调用
         Set<String> seenToolIds = new HashSet<>();
-        return originFlux
-                .map(chunk -> {
-                    // 解析每个 JSON 消息块
-                    return handleJsonMessageChunk(chunk, chatHistoryStringBuilder, seenToolIds);
+        return messageFlux
+                .map(message -> {
+                    // 处理每个消息
+                    return handleMessage(message, chatHistoryStringBuilder, seenToolIds);
                 })
                 .filter(StrUtil::isNotEmpty) // 过滤空字串
-                .doOnComplete(() -> {
-                    // 流式响应完成后，添加 AI 消息到对话历史
+                .concatWith(Mono.<String>fromRunnable(() -> {
+                    // 流式响应完成后，添加 AI 消息到对话历史（不占用模型流式线程）
                     String aiResponse = chatHistoryStringBuilder.toString();
                     chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
                     // 构造 Vue 项目（同步执行，确保项目就绪）
                     String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + "/vue_project_" + appId;
                     vueProjectBuilder.buildProject(projectPath);
-                })
-                .doOnError(error -> {
+                }).subscribeOn(blockingScheduler))
+                .onErrorResume(error -> Mono.<String>fromRunnable(() -> {
                     // 如果AI回复失败，也要记录错误消息
                     String errorMessage = "AI回复失败: " + error.getMessage();
                     chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                });
+                }).subscribeOn(blockingScheduler).concatWith(Mono.error(error)));
     }
 
     /**
-     * 解析并收集 TokenStream 数据
+     * 将 JSON 字符串消息解析为对应的类型化消息（仅解析一次）
+     * 用于兼容仍以 JSON 字符串传递消息的调用方
+     *
+     * @param chunk JSON 消息块
+     * @return 类型化消息
      */
-    private String handleJsonMessageChunk(String chunk, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
-        // 解析 JSON
-        StreamMessage streamMessage = JSONUtil.toBean(chunk, StreamMessage.class);
-        StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
-        switch (typeEnum) {
-            case AI_RESPONSE -> {
-                AiResponseMessage aiMessage = JSONUtil.toBean(chunk, AiResponseMessage.class);
-                String data = aiMessage.getData();
-                // 直接拼接响应
-                chatHistoryStringBuilder.append(data);
-                return data;
-            }
-            case TOOL_REQUEST -> {
-                ToolRequestMessage toolRequestMessage = JSONUtil.toBean(chunk, ToolRequestMessage.class);
-                String toolId = toolRequestMessage.getId();
-                String toolName = toolRequestMessage.getName();
-                // 检查是否是第一次看到这个工具 ID
-                if (toolId != null && !seenToolIds.contains(toolId)) {
-                    // 第一次调用这个工具，记录 ID 并返回工具信息
-                    seenToolIds.add(toolId);
-                    // 根据工具名称获取工具实例
-                    BaseTool tool = toolManager.getTool(toolName);
-                    // 返回格式化的工具调用信息
-                    return tool.generateToolRequestResponse();
-                } else {
-                    // 不是第一次调用这个工具，直接返回空
-                    return "";
-                }
-            }
-            case TOOL_EXECUTED -> {
-                ToolExecutedMessage toolExecutedMessage = JSONUtil.toBean(chunk, ToolExecutedMessage.class);
-                String toolName = toolExecutedMessage.getName();
-                JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
-                // 根据工具名称获取工具实例并生成相应的结果格式
+    public static StreamMessage parseMessage(String chunk) {
+        JSONObject jsonObject = JSONUtil.parseObj(chunk);
+        StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(jsonObject.getStr("type"));
+        if (typeEnum == null) {
+            return jsonObject.toBean(StreamMessage.class);
+        }
+        return switch (typeEnum) {
+            case AI_RESPONSE -> jsonObject.toBean(AiResponseMessage.class);
+            case TOOL_REQUEST -> jsonObject.toBean(ToolRequestMessage.class);
+            case TOOL_EXECUTED -> jsonObject.toBean(ToolExecutedMessage.class);
+        };
+    }
+
+    /**
+     * 处理单个消息并收集 TokenStream 数据
+     */
+    String handleMessage(StreamMessage message, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
+        if (message instanceof AiResponseMessage aiMessage) {
+            String data = aiMessage.getData();
+            // 直接拼接响应
+            chatHistoryStringBuilder.append(data);
+            return data;
+        }
+        if (message instanceof ToolRequestMessage toolRequestMessage) {
+            String toolId = toolRequestMessage.getId();
+            String toolName = toolRequestMessage.getName();
+            // 检查是否是第一次看到这个工具 ID
+            if (toolId != null && !seenToolIds.contains(toolId)) {
+                // 第一次调用这个工具，记录 ID 并返回工具信息
+                seenToolIds.add(toolId);
+                // 根据工具名称获取工具实例
                 BaseTool tool = toolManager.getTool(toolName);
-                String result = tool.generateToolExecutedResult(jsonObject);
-                // 输出前端和要持久化的内容
-                String output = String.format("\n\n%s\n\n", result);
-                chatHistoryStringBuilder.append(output);
-                return output;
-            }
-            default -> {
-                log.error("不支持的消息类型: {}", typeEnum);
-                return "";
+                // 返回格式化的工具调用信息
+                return tool.generateToolRequestResponse();
             }
+            // 不是第一次调用这个工具，直接返回空
+            return "";
+        }
+        if (message instanceof ToolExecutedMessage toolExecutedMessage) {
+            String toolName = toolExecutedMessage.getName();
+            JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
+            // 根据工具名称获取工具实例并生成相应的结果格式
+            BaseTool tool = toolManager.getTool(toolName);
+            String result = tool.generateToolExecutedResult(jsonObject);
+            // 输出前端和要持久化的内容
+            String output = String.format("\n\n%s\n\n", result);
+            chatHistoryStringBuilder.append(output);
+            return output;
         }
+        log.error("不支持的消息类型: {}", message.getType());
+        return "";
     }
-
-
-
-
 }
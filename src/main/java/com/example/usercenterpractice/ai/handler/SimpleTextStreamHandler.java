@@ -5,6 +5,8 @@ import com.example.usercenterpractice.model.enums.ChatHistoryMessageTypeEnum;
 import com.example.usercenterpractice.service.ChatHistoryService;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 /**
  * 简单文本流处理器
@@ -13,6 +15,15 @@ import reactor.core.publisher.Flux;
 @Slf4j
 public class SimpleTextStreamHandler {
 
+    /**
+     * 执行对话历史写入等阻塞调用的调度器
+     */
+    private final Scheduler blockingScheduler;
+
+    public SimpleTextStreamHandler(Scheduler blockingScheduler) {
+        this.blockingScheduler = blockingScheduler;
+    }
+
     /**
      * 处理传统流（HTML, MULTI_FILE）
      * 直接收集完整的文本响应
@@ -33,15 +44,15 @@ public class SimpleTextStreamHandler {
                     aiResponseBuilder.append(chunk);
                     return chunk;
                 })
-                .doOnComplete(() -> {
-                    // 流式响应完成后，添加AI消息到对话历史
+                .concatWith(Mono.<String>fromRunnable(() -> {
+                    // 流式响应完成后，添加AI消息到对话历史（不占用模型流式线程）
                     String aiResponse = aiResponseBuilder.toString();
                     chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                })
-                .doOnError(error -> {
+                }).subscribeOn(blockingScheduler))
+                .onErrorResume(error -> Mono.<String>fromRunnable(() -> {
                     // 如果AI回复失败，也要记录错误消息
                     String errorMessage = "AI回复失败: " + error.getMessage();
                     chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                });
+                }).subscribeOn(blockingScheduler).concatWith(Mono.error(error)));
     }
 }
@@ -0,0 +1,267 @@
+package com.example.usercenterpractice.ai.handler;
+
+import com.example.usercenterpractice.config.StreamCoalesceConfig;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式片段合并器
+ * 位于业务流与 SSE 输出之间，按时间窗口或字节数（先到者为准）合并片段，
+ * 减少高并发下 SSE 事件数量与 Tomcat 的写入/flush 次数。
+ * 首个片段立即下发，不影响首字延迟。
+ */
+@Component
+public class StreamChunkCoalescer {
+
+    @Resource
+    private StreamCoalesceConfig streamCoalesceConfig;
+
+    /**
+     * 按代码生成类型的配置合并片段
+     *
+     * @param originFlux  原始流
+     * @param codeGenType 代码生成类型
+     * @return 合并后的流
+     */
+    public Flux<String> coalesce(Flux<String> originFlux, CodeGenTypeEnum codeGenType) {
+        if (!Boolean.TRUE.equals(streamCoalesceConfig.getEnabled())) {
+            return originFlux;
+        }
+        return coalesce(originFlux, streamCoalesceConfig.getWindowMillis(codeGenType),
+                streamCoalesceConfig.getMaxBytes(codeGenType), Schedulers.parallel());
+    }
+
+    /**
+     * 合并片段
+     *
+     * @param originFlux   原始流
+     * @param windowMillis 时间窗口（毫秒），小于等于 0 时原样返回
+     * @param maxBytes     字节上限（UTF-8），累计达到后立即下发
+     * @param scheduler    定时下发使用的调度器
+     * @return 合并后的流
+     */
+    public static Flux<String> coalesce(Flux<String> originFlux, long windowMillis, int maxBytes, Scheduler scheduler) {
+        if (windowMillis <= 0) {
+            return originFlux;
+        }
+        return Flux.create(sink -> {
+            CoalescingSubscriber subscriber = new CoalescingSubscriber(sink, windowMillis, maxBytes, scheduler);
+            sink.onRequest(n -> subscriber.onDownstreamRequest());
+            sink.onDispose(subscriber::dispose);
+            originFlux.subscribe(subscriber);
+        });
+    }
+
+    /**
+     * 估算 UTF-8 编码后的字节数
+     */
+    static int utf8Length(CharSequence content) {
+        int bytes = 0;
+        for (int i = 0, length = content.length(); i < length; i++) {
+            char c = content.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // 代理对两个 char 共 4 字节
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 单个流的合并订阅者，上游线程、定时线程与下游请求通过对象锁串行访问
+     * 只在下游有需求时下发；下游暂无需求时继续合并，待合并内容达到字节上限后停止向上游请求，背压由此传递到上游。
+     * 订阅上游时沿用下游的 Context，上游算子可以读取下游写入的 Context。
+     */
+    private static class CoalescingSubscriber extends BaseSubscriber<String> {
+
+        private final FluxSink<String> sink;
+
+        private final long windowMillis;
+
+        private final int maxBytes;
+
+        private final Scheduler scheduler;
+
+        private final StringBuilder pending = new StringBuilder();
+
+        private int pendingBytes;
+
+        private boolean firstEmitted;
+
+        /**
+         * 待合并内容已到下发时间（首个片段或时间窗口已到），有需求即下发
+         */
+        private boolean flushDue;
+
+        private boolean subscribed;
+
+        /**
+         * 已向上游请求、尚未收到的片段
+         */
+        private boolean awaiting;
+
+        private boolean upstreamDone;
+
+        private Throwable upstreamError;
+
+        private boolean terminated;
+
+        private Disposable flushTimer;
+
+        CoalescingSubscriber(FluxSink<String> sink, long windowMillis, int maxBytes, Scheduler scheduler) {
+            this.sink = sink;
+            this.windowMillis = windowMillis;
+            this.maxBytes = maxBytes;
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public Context currentContext() {
+            return Context.of(sink.contextView());
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            boolean requestMore;
+            synchronized (this) {
+                subscribed = true;
+                requestMore = claimUpstreamRequest();
+            }
+            if (requestMore) {
+                request(1);
+            }
+        }
+
+        @Override
+        protected void hookOnNext(String chunk) {
+            boolean requestMore;
+            synchronized (this) {
+                awaiting = false;
+                if (!terminated && chunk != null && !chunk.isEmpty()) {
+                    if (!firstEmitted) {
+                        // 首个片段不等待时间窗口
+                        firstEmitted = true;
+                        flushDue = true;
+                    }
+                    pending.append(chunk);
+                    pendingBytes += utf8Length(chunk);
+                    if (!flushDue && flushTimer == null) {
+                        flushTimer = scheduler.schedule(this::onTimer, windowMillis, TimeUnit.MILLISECONDS);
+                    }
+                    drain();
+                }
+                requestMore = claimUpstreamRequest();
+            }
+            if (requestMore) {
+                request(1);
+            }
+        }
+
+        @Override
+        protected synchronized void hookOnError(Throwable error) {
+            upstreamDone = true;
+            upstreamError = error;
+            drain();
+        }
+
+        @Override
+        protected synchronized void hookOnComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        protected synchronized void hookFinally(SignalType type) {
+            cancelTimer();
+        }
+
+        void onDownstreamRequest() {
+            boolean requestMore;
+            synchronized (this) {
+                drain();
+                requestMore = claimUpstreamRequest();
+            }
+            if (requestMore) {
+                request(1);
+            }
+        }
+
+        private void onTimer() {
+            boolean requestMore;
+            synchronized (this) {
+                flushTimer = null;
+                flushDue = true;
+                drain();
+                requestMore = claimUpstreamRequest();
+            }
+            if (requestMore) {
+                request(1);
+            }
+        }
+
+        /**
+         * 有下游需求时下发到期或已满的合并内容；上游结束且内容下发完毕后结束下游
+         */
+        private void drain() {
+            if (terminated) {
+                return;
+            }
+            if (!pending.isEmpty() && sink.requestedFromDownstream() > 0
+                    && (flushDue || pendingBytes >= maxBytes || upstreamDone)) {
+                flush();
+            }
+            if (upstreamDone && pending.isEmpty()) {
+                terminated = true;
+                cancelTimer();
+                if (upstreamError != null) {
+                    sink.error(upstreamError);
+                } else {
+                    sink.complete();
+                }
+            }
+        }
+
+        /**
+         * 合并内容未达字节上限时继续向上游逐个请求片段
+         */
+        private boolean claimUpstreamRequest() {
+            if (!subscribed || awaiting || upstreamDone || terminated || pendingBytes >= maxBytes) {
+                return false;
+            }
+            awaiting = true;
+            return true;
+        }
+
+        private void flush() {
+            cancelTimer();
+            flushDue = false;
+            String merged = pending.toString();
+            pending.setLength(0);
+            pendingBytes = 0;
+            sink.next(merged);
+        }
+
+        private synchronized void cancelTimer() {
+            if (flushTimer != null) {
+                flushTimer.dispose();
+                flushTimer = null;
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.usercenterpractice.ai.handler;
 
+import com.example.usercenterpractice.ai.model.message.StreamMessage;
 import com.example.usercenterpractice.model.domain.User;
 import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
 import com.example.usercenterpractice.service.ChatHistoryService;
@@ -7,6 +8,7 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
 /**
  * 流处理器执行器
@@ -21,6 +23,9 @@ public class StreamHandlerExecutor {
     @Resource
     private JsonMessageStreamHandler jsonMessageStreamHandler;
 
+    @Resource
+    private Scheduler blockingScheduler;
+
     /**
      * 创建流处理器并处理聊天历史记录
      *
@@ -35,10 +40,26 @@ public class StreamHandlerExecutor {
                                   ChatHistoryService chatHistoryService,
                                   long appId, User loginUser, CodeGenTypeEnum codeGenType) {
         return switch (codeGenType) {
-            case VUE_PROJECT -> // 使用注入的组件实例
-                    jsonMessageStreamHandler.handle(originFlux, chatHistoryService, appId, loginUser);
-            case HTML, MULTI_FILE -> // 简单文本处理器不需要依赖注入
-                    new SimpleTextStreamHandler().handle(originFlux, chatHistoryService, appId, loginUser);
+            case VUE_PROJECT -> // 兼容 JSON 字符串流，每个消息块只解析一次
+                    jsonMessageStreamHandler.handle(originFlux.map(JsonMessageStreamHandler::parseMessage),
+                            chatHistoryService, appId, loginUser);
+            case HTML, MULTI_FILE -> // 简单文本处理器不需要依赖注入，只需传入阻塞调度器
+                    new SimpleTextStreamHandler(blockingScheduler).handle(originFlux, chatHistoryService, appId, loginUser);
         };
     }
+
+    /**
+     * 处理类型化消息流（VUE_PROJECT）并记录聊天历史
+     *
+     * @param messageFlux        类型化消息流
+     * @param chatHistoryService 聊天历史服务
+     * @param appId              应用ID
+     * @param loginUser          登录用户
+     * @return 处理后的流
+     */
+    public Flux<String> doExecuteMessages(Flux<StreamMessage> messageFlux,
+                                          ChatHistoryService chatHistoryService,
+                                          long appId, User loginUser) {
+        return jsonMessageStreamHandler.handle(messageFlux, chatHistoryService, appId, loginUser);
+    }
 }
@@ -0,0 +1,244 @@
+package com.example.usercenterpractice.ai.http;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static dev.langchain4j.http.client.sse.ServerSentEventListenerUtils.ignoringExceptions;
+
+/**
+ * 所有 OpenAI 兼容模型共享的 HTTP 客户端
+ * 基于单个 JDK HttpClient：连接池与 keep-alive 在各模型、各应用间复用，端点支持时经 ALPN 协商 HTTP/2 多路复用。
+ * 流式请求在虚拟线程上阻塞读取 SSE；JDK 客户端没有响应体读取超时，这里由巡检线程关闭空闲超过读取超时的流。
+ * JDK 客户端不暴露连接池内部状态，指标记录进行中的请求与流（HTTP/2 下即复用连接上的流）及请求耗时。
+ */
+@Slf4j
+public class PooledAiHttpClient implements HttpClient, AutoCloseable {
+
+    private final java.net.http.HttpClient httpClient;
+
+    private final Duration readTimeout;
+
+    private final ExecutorService streamingExecutor;
+
+    private final ScheduledExecutorService idleStreamReaper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+
+    private final Set<ActiveStream> activeStreams = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param httpClient    底层 JDK 客户端（单例）
+     * @param readTimeout   同步请求与流式请求等待响应头的超时，以及流式响应的空闲超时
+     * @param meterRegistry 指标注册表，可为 null
+     */
+    public PooledAiHttpClient(java.net.http.HttpClient httpClient, Duration readTimeout, MeterRegistry meterRegistry) {
+        this.httpClient = httpClient;
+        this.readTimeout = readTimeout;
+        this.meterRegistry = meterRegistry;
+        this.streamingExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-http-stream-", 0).factory());
+        this.idleStreamReaper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("ai-http-idle-reaper").daemon().factory());
+        this.idleStreamReaper.scheduleWithFixedDelay(this::closeIdleStreams, 1, 1, TimeUnit.SECONDS);
+        if (meterRegistry != null) {
+            Gauge.builder("code_gen.ai_http.active", activeRequests, AtomicInteger::get)
+                    .description("进行中的模型 HTTP 请求数")
+                    .tag("kind", "request")
+                    .register(meterRegistry);
+            Gauge.builder("code_gen.ai_http.active", activeStreams, Set::size)
+                    .description("进行中的模型 HTTP 请求数")
+                    .tag("kind", "stream")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) throws HttpException {
+        long startNanos = System.nanoTime();
+        activeRequests.incrementAndGet();
+        String outcome = "error";
+        try {
+            HttpResponse<String> response = httpClient.send(toJdkRequest(request), HttpResponse.BodyHandlers.ofString());
+            if (!isSuccessful(response.statusCode())) {
+                outcome = "http_error";
+                throw new HttpException(response.statusCode(), response.body());
+            }
+            outcome = "success";
+            return toSuccessfulResponse(response, response.body());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            activeRequests.decrementAndGet();
+            record("request", outcome, startNanos);
+        }
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        java.net.http.HttpRequest jdkRequest = toJdkRequest(request);
+        streamingExecutor.execute(() -> {
+            long startNanos = System.nanoTime();
+            ActiveStream stream = null;
+            String outcome = "error";
+            try {
+                HttpResponse<InputStream> response = httpClient.send(jdkRequest, HttpResponse.BodyHandlers.ofInputStream());
+                if (!isSuccessful(response.statusCode())) {
+                    String body;
+                    try (InputStream inputStream = response.body()) {
+                        body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                    }
+                    outcome = "http_error";
+                    ignoringExceptions(() -> listener.onError(new HttpException(response.statusCode(), body)));
+                    return;
+                }
+                stream = new ActiveStream(response.body());
+                activeStreams.add(stream);
+                ignoringExceptions(() -> listener.onOpen(toSuccessfulResponse(response, null)));
+                parser.parse(stream, listener);
+                outcome = stream.idleTimedOut.get() ? "idle_timeout" : "success";
+                ignoringExceptions(listener::onClose);
+            } catch (Exception e) {
+                if (stream != null && stream.idleTimedOut.get()) {
+                    outcome = "idle_timeout";
+                }
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                ignoringExceptions(() -> listener.onError(e));
+            } finally {
+                if (stream != null) {
+                    activeStreams.remove(stream);
+                    closeQuietly(stream);
+                }
+                record("stream", outcome, startNanos);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        idleStreamReaper.shutdownNow();
+        streamingExecutor.shutdownNow();
+        activeStreams.forEach(PooledAiHttpClient::closeQuietly);
+    }
+
+    private java.net.http.HttpRequest toJdkRequest(HttpRequest request) {
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(request.url()))
+                .timeout(readTimeout);
+        if (request.headers() != null) {
+            request.headers().forEach((name, values) -> {
+                // Host、Content-Length 等由 JDK 客户端管理，不允许设置
+                if (!"content-length".equalsIgnoreCase(name) && !"host".equalsIgnoreCase(name)) {
+                    values.forEach(value -> builder.header(name, value));
+                }
+            });
+        }
+        java.net.http.HttpRequest.BodyPublisher bodyPublisher = request.body() == null
+                ? java.net.http.HttpRequest.BodyPublishers.noBody()
+                : java.net.http.HttpRequest.BodyPublishers.ofString(request.body(), StandardCharsets.UTF_8);
+        return builder.method(request.method().name(), bodyPublisher).build();
+    }
+
+    private static SuccessfulHttpResponse toSuccessfulResponse(HttpResponse<?> response, String body) {
+        Map<String, List<String>> headers = response.headers().map();
+        return SuccessfulHttpResponse.builder()
+                .statusCode(response.statusCode())
+                .headers(headers)
+                .body(body)
+                .build();
+    }
+
+    private static boolean isSuccessful(int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    /**
+     * 关闭空闲超过读取超时的流，解除阻塞的读取
+     */
+    private void closeIdleStreams() {
+        long now = System.nanoTime();
+        for (ActiveStream stream : activeStreams) {
+            if (now - stream.lastActivityNanos > readTimeout.toNanos() && stream.idleTimedOut.compareAndSet(false, true)) {
+                log.warn("模型流式响应空闲超过 {} 秒，关闭连接", readTimeout.toSeconds());
+                closeQuietly(stream);
+            }
+        }
+    }
+
+    private void record(String kind, String outcome, long startNanos) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.builder("code_gen.ai_http.requests")
+                .description("模型 HTTP 请求耗时，流式请求为整个流的时长")
+                .tag("kind", kind)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+            // 关闭失败无需处理
+        }
+    }
+
+    /**
+     * 记录最近一次读取时间的响应流
+     */
+    private static class ActiveStream extends FilterInputStream {
+
+        private final AtomicBoolean idleTimedOut = new AtomicBoolean();
+
+        private volatile long lastActivityNanos = System.nanoTime();
+
+        ActiveStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            lastActivityNanos = System.nanoTime();
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            lastActivityNanos = System.nanoTime();
+            return count;
+        }
+    }
+}
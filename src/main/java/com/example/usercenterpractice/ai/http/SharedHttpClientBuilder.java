@@ -0,0 +1,50 @@
+package com.example.usercenterpractice.ai.http;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+
+import java.time.Duration;
+
+/**
+ * 始终返回同一个 HTTP 客户端的 HttpClientBuilder
+ * 超时在共享客户端上统一配置，模型构建时传入的超时被忽略
+ */
+public class SharedHttpClientBuilder implements HttpClientBuilder {
+
+    private final HttpClient httpClient;
+
+    private final Duration connectTimeout;
+
+    private final Duration readTimeout;
+
+    public SharedHttpClientBuilder(HttpClient httpClient, Duration connectTimeout, Duration readTimeout) {
+        this.httpClient = httpClient;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public HttpClientBuilder connectTimeout(Duration timeout) {
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public HttpClientBuilder readTimeout(Duration timeout) {
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        return httpClient;
+    }
+}
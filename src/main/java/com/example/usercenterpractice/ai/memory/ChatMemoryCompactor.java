@@ -0,0 +1,242 @@
+package com.example.usercenterpractice.ai.memory;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.example.usercenterpractice.config.ChatMemoryBudgetConfig;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对话记忆压缩器
+ * 按 token 预算压缩发送给模型的记忆（不修改存储）：
+ * 1. 此前轮次的工具输出一律省略为占位说明（文件内容等已在磁盘上，模型可通过工具重新读取）
+ * 2. 仍超出预算时，当前轮次只保留最近若干条工具输出原文
+ * 3. 仍超出预算时，将此前轮次交给路由模型压缩为摘要并缓存，摘要并入系统消息
+ */
+@Slf4j
+@Component
+public class ChatMemoryCompactor {
+
+    private static final String SUMMARY_PROMPT = """
+            你是对话摘要助手。请将以下用户与 AI 代码生成助手之间的历史对话压缩为简洁的中文摘要，
+            保留用户的需求与偏好、已生成或修改的文件及其作用、尚未完成的事项，省略代码细节。只输出摘要正文。
+            """;
+
+    /**
+     * 摘要输入中单条消息的最大字符数
+     */
+    private static final int SUMMARY_MESSAGE_MAX_CHARS = 2000;
+
+    @Resource(name = "routingChatModel")
+    private ChatModel routingChatModel;
+
+    @Resource
+    private ChatMemoryBudgetConfig chatMemoryBudgetConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 记忆 ID + 被压缩消息的摘要值 -> 摘要
+     */
+    private Cache<String, String> summaryCache;
+
+    @PostConstruct
+    public void init() {
+        summaryCache = Caffeine.newBuilder()
+                .maximumSize(chatMemoryBudgetConfig.getSummaryCacheSize())
+                .build();
+    }
+
+    /**
+     * 按预算压缩记忆并记录压缩前后的提示词 token 数
+     *
+     * @param memoryId    记忆 ID
+     * @param codeGenType 代码生成类型
+     * @param messages    存储中的完整记忆
+     * @return 发送给模型的记忆
+     */
+    public List<ChatMessage> compact(Object memoryId, CodeGenTypeEnum codeGenType, List<ChatMessage> messages) {
+        int rawTokens = estimateTokens(messages);
+        recordPromptTokens(codeGenType, "raw", rawTokens);
+        if (!Boolean.TRUE.equals(chatMemoryBudgetConfig.getEnabled())) {
+            return messages;
+        }
+        int maxTokens = chatMemoryBudgetConfig.getMaxTokens(codeGenType);
+        int currentTurnStart = currentTurnStart(messages);
+        // 1. 省略此前轮次的工具输出
+        List<ChatMessage> compacted = elideToolResults(messages, currentTurnStart, 0);
+        // 2. 当前轮次只保留最近的工具输出
+        if (estimateTokens(compacted) > maxTokens) {
+            compacted = elideToolResults(compacted, messages.size(), chatMemoryBudgetConfig.getKeepRecentToolResults());
+        }
+        // 3. 此前轮次压缩为摘要
+        if (estimateTokens(compacted) > maxTokens) {
+            compacted = summarizePreviousTurns(memoryId, codeGenType, compacted, currentTurnStart);
+        }
+        recordPromptTokens(codeGenType, "compacted", estimateTokens(compacted));
+        return compacted;
+    }
+
+    /**
+     * 将 end 之前的工具输出替换为占位说明，keepRecent 条最近的工具输出保留原文
+     */
+    static List<ChatMessage> elideToolResults(List<ChatMessage> messages, int end, int keepRecent) {
+        int kept = 0;
+        List<ChatMessage> result = new ArrayList<>(messages);
+        for (int i = end - 1; i >= 0; i--) {
+            if (!(result.get(i) instanceof ToolExecutionResultMessage toolResult)) {
+                continue;
+            }
+            if (kept < keepRecent) {
+                kept++;
+                continue;
+            }
+            if (toolResult.text() != null && toolResult.text().length() > 200) {
+                result.set(i, ToolExecutionResultMessage.from(toolResult.id(), toolResult.toolName(),
+                        "[已省略早先的工具输出，共 " + toolResult.text().length() + " 字符，如需内容请重新调用工具读取]"));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 当前轮次起点：最后一条用户消息的位置
+     */
+    static int currentTurnStart(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 估算 token 数：ASCII 约 4 字符 1 个 token，其他字符（如中文）按 1 字符 1 个 token 计，另加每条消息的固定开销
+     */
+    static int estimateTokens(List<ChatMessage> messages) {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += 4 + estimateTokens(messageText(message));
+        }
+        return tokens;
+    }
+
+    static int estimateTokens(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (text.charAt(i) < 0x80) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + other;
+    }
+
+    private List<ChatMessage> summarizePreviousTurns(Object memoryId, CodeGenTypeEnum codeGenType,
+                                                     List<ChatMessage> messages, int currentTurnStart) {
+        SystemMessage systemMessage = null;
+        List<ChatMessage> previous = new ArrayList<>();
+        for (int i = 0; i < currentTurnStart; i++) {
+            if (messages.get(i) instanceof SystemMessage system) {
+                systemMessage = system;
+            } else {
+                previous.add(messages.get(i));
+            }
+        }
+        if (previous.isEmpty()) {
+            return messages;
+        }
+        String transcript = transcript(previous);
+        String cacheKey = memoryId + ":" + DigestUtil.md5Hex(transcript);
+        String summary;
+        try {
+            summary = summaryCache.get(cacheKey, key -> {
+                meterRegistry.counter("code_gen.memory.summaries", "type", codeGenType.getValue()).increment();
+                return routingChatModel.chat(SystemMessage.from(SUMMARY_PROMPT), UserMessage.from(transcript))
+                        .aiMessage().text();
+            });
+        } catch (Exception e) {
+            // 摘要失败时直接丢弃此前轮次，保证请求不超出预算
+            log.warn("对话记忆摘要失败，丢弃此前轮次, memoryId: {}", memoryId, e);
+            summary = null;
+        }
+        List<ChatMessage> result = new ArrayList<>();
+        String summarySection = summary == null ? null : "## 此前对话摘要\n" + summary;
+        if (systemMessage != null) {
+            result.add(summarySection == null ? systemMessage
+                    : SystemMessage.from(systemMessage.text() + "\n\n" + summarySection));
+        } else if (summarySection != null) {
+            result.add(SystemMessage.from(summarySection));
+        }
+        result.addAll(messages.subList(currentTurnStart, messages.size()));
+        return result;
+    }
+
+    private static String transcript(List<ChatMessage> messages) {
+        StringBuilder transcript = new StringBuilder();
+        for (ChatMessage message : messages) {
+            String role = switch (message) {
+                case UserMessage ignored -> "用户";
+                case AiMessage ignored -> "AI";
+                case ToolExecutionResultMessage toolResult -> "工具结果(" + toolResult.toolName() + ")";
+                default -> "系统";
+            };
+            String text = messageText(message);
+            if (text.length() > SUMMARY_MESSAGE_MAX_CHARS) {
+                text = text.substring(0, SUMMARY_MESSAGE_MAX_CHARS) + "...";
+            }
+            transcript.append(role).append(": ").append(text).append('\n');
+        }
+        return transcript.toString();
+    }
+
+    private static String messageText(ChatMessage message) {
+        return switch (message) {
+            case SystemMessage system -> system.text();
+            case UserMessage user -> user.hasSingleText() ? user.singleText() : "";
+            case ToolExecutionResultMessage toolResult -> toolResult.text();
+            case AiMessage ai -> {
+                StringBuilder text = new StringBuilder(ai.text() == null ? "" : ai.text());
+                if (ai.toolExecutionRequests() != null) {
+                    for (ToolExecutionRequest request : ai.toolExecutionRequests()) {
+                        text.append(' ').append(request.name()).append(request.arguments());
+                    }
+                }
+                yield text.toString();
+            }
+            default -> "";
+        };
+    }
+
+    private void recordPromptTokens(CodeGenTypeEnum codeGenType, String stage, int tokens) {
+        DistributionSummary.builder("code_gen.prompt.tokens")
+                .description("发送给模型的记忆 token 数（估算），raw 为压缩前，compacted 为压缩后")
+                .tag("type", codeGenType.getValue())
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(tokens);
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.usercenterpractice.ai.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 基于 Redis List 的对话记忆存储：每条消息为一个列表元素
+ * MessageWindowChatMemory 每次更新都传入完整窗口，这里与上次读写的快照比对：
+ * 若只是在末尾追加（窗口满时头部同时淘汰），则只 RPUSH 新消息并 LTRIM 维护窗口，写入量与历史长度无关；
+ * 否则（清空、替换、无快照）整体重写。追加前在脚本中校验长度与末尾元素，远端被其他节点修改时同样退回整体重写。
+ * 每次写入刷新键的过期时间（小于等于 0 表示不过期）。读写的消息字节数按操作类型记录到 code_gen.chat_memory.redis.bytes。
+ */
+public class RedisListChatMemoryStore implements ChatMemoryStore {
+
+    private static final String KEY_PREFIX = "code_gen:chat_memory:";
+
+    /**
+     * KEYS[1] 列表键；ARGV[1] 期望长度；ARGV[2] 期望末尾元素；ARGV[3] 保留条数；ARGV[4] 过期秒数；ARGV[5..] 追加的消息
+     */
+    private static final RedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>("""
+            local len = redis.call('LLEN', KEYS[1])
+            if len ~= tonumber(ARGV[1]) then return 0 end
+            if len > 0 and redis.call('LINDEX', KEYS[1], -1) ~= ARGV[2] then return 0 end
+            for i = 5, #ARGV do redis.call('RPUSH', KEYS[1], ARGV[i]) end
+            redis.call('LTRIM', KEYS[1], -tonumber(ARGV[3]), -1)
+            if tonumber(ARGV[4]) > 0 then redis.call('EXPIRE', KEYS[1], ARGV[4]) end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS[1] 列表键；ARGV[1] 过期秒数；ARGV[2..] 全部消息
+     */
+    private static final RedisScript<Long> REWRITE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('DEL', KEYS[1])
+            for i = 2, #ARGV do redis.call('RPUSH', KEYS[1], ARGV[i]) end
+            if #ARGV > 1 and tonumber(ARGV[1]) > 0 then redis.call('EXPIRE', KEYS[1], ARGV[1]) end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Duration ttl;
+
+    /**
+     * 记忆 ID -> 最近一次与 Redis 一致的消息列表及末尾元素 JSON
+     */
+    private final Cache<String, Snapshot> snapshots;
+
+    private final Counter readBytes;
+
+    private final Counter appendBytes;
+
+    private final Counter rewriteBytes;
+
+    public RedisListChatMemoryStore(StringRedisTemplate stringRedisTemplate, Duration ttl, long maxSnapshots) {
+        this(stringRedisTemplate, ttl, maxSnapshots, null);
+    }
+
+    /**
+     * @param meterRegistry 字节数指标注册表，可为 null
+     */
+    public RedisListChatMemoryStore(StringRedisTemplate stringRedisTemplate, Duration ttl, long maxSnapshots,
+                                    MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.readBytes = bytesCounter(meterRegistry, "read");
+        this.appendBytes = bytesCounter(meterRegistry, "append");
+        this.rewriteBytes = bytesCounter(meterRegistry, "rewrite");
+        this.ttl = ttl;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maxSnapshots);
+        if (ttl.isPositive()) {
+            builder.expireAfterAccess(ttl);
+        }
+        this.snapshots = builder.build();
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String key = String.valueOf(memoryId);
+        List<String> values = stringRedisTemplate.opsForList().range(KEY_PREFIX + key, 0, -1);
+        if (values == null || values.isEmpty()) {
+            snapshots.put(key, Snapshot.EMPTY);
+            return List.of();
+        }
+        List<ChatMessage> messages = new ArrayList<>(values.size());
+        long bytes = 0;
+        for (String value : values) {
+            bytes += utf8Length(value);
+            messages.add(ChatMessageDeserializer.messageFromJson(value));
+        }
+        increment(readBytes, bytes);
+        snapshots.put(key, new Snapshot(List.copyOf(messages), values.get(values.size() - 1)));
+        return messages;
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String key = String.valueOf(memoryId);
+        List<ChatMessage> current = List.copyOf(messages);
+        Snapshot snapshot = snapshots.getIfPresent(key);
+        List<ChatMessage> appended = snapshot == null || current.isEmpty() ? null : appendedTail(snapshot.messages(), current);
+        if (appended != null && appended.isEmpty() && snapshot.messages().size() == current.size()) {
+            // 内容未变化，仅刷新过期时间
+            if (ttl.isPositive()) {
+                stringRedisTemplate.expire(KEY_PREFIX + key, ttl);
+            }
+            return;
+        }
+        String lastJson;
+        if (appended != null) {
+            List<String> args = new ArrayList<>(appended.size() + 4);
+            args.add(String.valueOf(snapshot.messages().size()));
+            args.add(snapshot.lastJson());
+            args.add(String.valueOf(current.size()));
+            args.add(String.valueOf(ttl.toSeconds()));
+            lastJson = snapshot.lastJson();
+            long bytes = 0;
+            for (ChatMessage message : appended) {
+                lastJson = ChatMessageSerializer.messageToJson(message);
+                bytes += utf8Length(lastJson);
+                args.add(lastJson);
+            }
+            Long result = stringRedisTemplate.execute(APPEND_SCRIPT, List.of(KEY_PREFIX + key), args.toArray());
+            increment(appendBytes, bytes);
+            if (Long.valueOf(1L).equals(result)) {
+                snapshots.put(key, new Snapshot(current, lastJson));
+                return;
+            }
+        }
+        // 无可用快照、非追加修改或远端已变化：整体重写
+        List<String> args = new ArrayList<>(current.size() + 1);
+        args.add(String.valueOf(ttl.toSeconds()));
+        lastJson = "";
+        long bytes = 0;
+        for (ChatMessage message : current) {
+            lastJson = ChatMessageSerializer.messageToJson(message);
+            bytes += utf8Length(lastJson);
+            args.add(lastJson);
+        }
+        stringRedisTemplate.execute(REWRITE_SCRIPT, List.of(KEY_PREFIX + key), args.toArray());
+        increment(rewriteBytes, bytes);
+        snapshots.put(key, current.isEmpty() ? Snapshot.EMPTY : new Snapshot(current, lastJson));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String key = String.valueOf(memoryId);
+        stringRedisTemplate.delete(KEY_PREFIX + key);
+        snapshots.put(key, Snapshot.EMPTY);
+    }
+
+    /**
+     * 判断 current 是否为 previous 去掉头部若干条（窗口淘汰）后在末尾追加消息的结果
+     *
+     * @return 末尾追加的消息；不是追加关系时返回 null
+     */
+    static List<ChatMessage> appendedTail(List<ChatMessage> previous, List<ChatMessage> current) {
+        for (int dropped = 0; dropped <= previous.size(); dropped++) {
+            int kept = previous.size() - dropped;
+            if (kept > current.size()) {
+                continue;
+            }
+            if (kept == 0 && dropped > 0) {
+                // 旧消息全部被淘汰时无法与整体替换区分，按重写处理
+                return null;
+            }
+            if (regionEquals(previous, dropped, current, kept)) {
+                return current.subList(kept, current.size());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 字符串的 UTF-8 字节数，不做实际编码
+     */
+    static long utf8Length(String value) {
+        long bytes = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static Counter bytesCounter(MeterRegistry meterRegistry, String op) {
+        if (meterRegistry == null) {
+            return null;
+        }
+        return Counter.builder("code_gen.chat_memory.redis.bytes")
+                .description("对话记忆在 Redis 上读写的消息字节数")
+                .baseUnit("bytes")
+                .tag("op", op)
+                .register(meterRegistry);
+    }
+
+    private static void increment(Counter counter, long bytes) {
+        if (counter != null) {
+            counter.increment(bytes);
+        }
+    }
+
+    private static boolean regionEquals(List<ChatMessage> previous, int offset, List<ChatMessage> current, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!Objects.equals(previous.get(offset + i), current.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Snapshot(List<ChatMessage> messages, String lastJson) {
+
+        static final Snapshot EMPTY = new Snapshot(List.of(), "");
+    }
+}
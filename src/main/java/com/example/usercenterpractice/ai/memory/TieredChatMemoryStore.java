@@ -0,0 +1,242 @@
+package com.example.usercenterpractice.ai.memory;
+
+import cn.hutool.core.util.IdUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级对话记忆存储：本地 Caffeine 近端缓存 + 远端存储（Redis）
+ * 工具调用循环中 MessageWindowChatMemory 每条消息都会读写一次存储，近端缓存使读取不再访问 Redis；
+ * 写入支持直写与延迟合并写两种策略，写入远端后通过 Redis 发布/订阅通知其他节点失效本地缓存。
+ * 延迟写在节点宕机时可能丢失最近的记忆，但对话历史以数据库为准，服务实例重建时会重新加载；
+ * 远端写入失败时保留待写记忆并按退避间隔重试，期间本地版本为准。
+ */
+@Slf4j
+public class TieredChatMemoryStore implements ChatMemoryStore, AutoCloseable {
+
+    /**
+     * 失效通知频道，消息格式为 节点ID:记忆ID
+     */
+    public static final String INVALIDATION_CHANNEL = "code_gen:chat_memory:invalidate";
+
+    /**
+     * 写入失败后的最长重试间隔
+     */
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+
+    private final ChatMemoryStore delegate;
+
+    private final WritePolicy writePolicy;
+
+    private final Duration writeBehindDelay;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 记忆 ID（字符串形式，与 Redis 键一致）-> 消息列表（不可变）
+     */
+    private final Cache<String, List<ChatMessage>> nearCache;
+
+    /**
+     * 延迟写模式下尚未写入远端的记忆，保留原始记忆 ID 对象用于写入远端
+     */
+    private final Map<String, PendingWrite> dirty = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flushExecutor;
+
+    /**
+     * @param delegate            远端存储
+     * @param writePolicy         写入策略
+     * @param maxEntries          近端缓存最大条目数
+     * @param expireAfterAccess   近端缓存条目空闲过期时长
+     * @param writeBehindDelay    延迟写的合并窗口
+     * @param stringRedisTemplate 用于发布失效通知，为 null 时不通知（单节点）
+     * @param meterRegistry       缓存指标注册表，可为 null
+     */
+    public TieredChatMemoryStore(ChatMemoryStore delegate, WritePolicy writePolicy, long maxEntries,
+                                 Duration expireAfterAccess, Duration writeBehindDelay,
+                                 StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.writePolicy = writePolicy;
+        this.writeBehindDelay = writeBehindDelay;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "chat_memory_near_cache");
+        }
+        this.flushExecutor = writePolicy == WritePolicy.WRITE_BEHIND
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("chat-memory-flush").daemon().factory())
+                : null;
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String key = String.valueOf(memoryId);
+        return nearCache.get(key, k -> {
+            // 延迟写尚未落盘的记忆以本地为准
+            PendingWrite pending = dirty.get(k);
+            return pending != null ? pending.messages() : List.copyOf(delegate.getMessages(memoryId));
+        });
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String key = String.valueOf(memoryId);
+        List<ChatMessage> snapshot = List.copyOf(messages);
+        nearCache.put(key, snapshot);
+        if (writePolicy == WritePolicy.WRITE_BEHIND) {
+            // 窗口内的多次更新合并为一次远端写入
+            if (dirty.put(key, new PendingWrite(memoryId, snapshot, 0)) == null) {
+                scheduleFlush(key, writeBehindDelay.toMillis());
+            }
+            return;
+        }
+        delegate.updateMessages(memoryId, snapshot);
+        publishInvalidation(key);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String key = String.valueOf(memoryId);
+        dirty.remove(key);
+        nearCache.invalidate(key);
+        delegate.deleteMessages(memoryId);
+        publishInvalidation(key);
+    }
+
+    /**
+     * 处理其他节点发布的失效通知
+     *
+     * @param message 节点ID:记忆ID
+     */
+    public void onInvalidation(String message) {
+        int separatorIndex = message.indexOf(':');
+        if (separatorIndex <= 0 || nodeId.equals(message.substring(0, separatorIndex))) {
+            return;
+        }
+        String key = message.substring(separatorIndex + 1);
+        // 本节点有未落盘的更新时保留本地版本，落盘后会覆盖远端
+        if (!dirty.containsKey(key)) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 写入全部延迟写的记忆（应用关闭时调用）
+     */
+    @Override
+    public void close() {
+        if (flushExecutor == null) {
+            return;
+        }
+        // 取消尚未到期的定时写入，等待进行中的写入结束后在当前线程统一写入
+        flushExecutor.shutdownNow();
+        try {
+            flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (String key : List.copyOf(dirty.keySet())) {
+            flush(key);
+        }
+    }
+
+    private void scheduleFlush(String key, long delayMillis) {
+        if (flushExecutor.isShutdown()) {
+            // 关闭过程中由 close 统一写入
+            return;
+        }
+        try {
+            flushExecutor.schedule(() -> flush(key), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("对话记忆写入线程已关闭, memoryId: {}", key);
+        }
+    }
+
+    private void flush(String key) {
+        PendingWrite pending = dirty.remove(key);
+        if (pending == null) {
+            return;
+        }
+        try {
+            delegate.updateMessages(pending.memoryId(), pending.messages());
+            publishInvalidation(key);
+        } catch (Exception e) {
+            // 窗口内有更新的记忆时已重新排期，由更新的版本覆盖；否则放回待写并退避重试
+            PendingWrite retry = pending.nextAttempt();
+            if (dirty.putIfAbsent(key, retry) == null) {
+                long retryDelayMillis = retry.retryDelayMillis(writeBehindDelay.toMillis());
+                log.error("对话记忆写入远端失败，{} 毫秒后重试, memoryId: {}, 第 {} 次", retryDelayMillis, key,
+                        retry.attempts(), e);
+                scheduleFlush(key, retryDelayMillis);
+            } else {
+                log.error("对话记忆写入远端失败，已有更新的版本待写入, memoryId: {}", key, e);
+            }
+        }
+    }
+
+    private void publishInvalidation(String key) {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + ":" + key);
+        } catch (Exception e) {
+            log.warn("对话记忆失效通知发布失败, memoryId: {}", key, e);
+        }
+    }
+
+    /**
+     * 待写入远端的记忆
+     *
+     * @param memoryId 原始记忆 ID，远端存储可能依赖其类型
+     * @param messages 消息列表（不可变）
+     * @param attempts 已失败的写入次数
+     */
+    private record PendingWrite(Object memoryId, List<ChatMessage> messages, int attempts) {
+
+        PendingWrite nextAttempt() {
+            return new PendingWrite(memoryId, messages, attempts + 1);
+        }
+
+        /**
+         * 按失败次数指数退避，不超过最长重试间隔
+         */
+        long retryDelayMillis(long baseDelayMillis) {
+            long delay = Math.max(baseDelayMillis, 100) << Math.min(attempts - 1, 10);
+            return Math.min(delay, MAX_RETRY_DELAY_MILLIS);
+        }
+    }
+
+    public enum WritePolicy {
+        /**
+         * 每次更新同步写入远端
+         */
+        WRITE_THROUGH,
+        /**
+         * 本地更新后在合并窗口结束时写入远端
+         */
+        WRITE_BEHIND
+    }
+}
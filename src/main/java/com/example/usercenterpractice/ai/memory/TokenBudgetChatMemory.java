@@ -0,0 +1,98 @@
+package com.example.usercenterpractice.ai.memory;
+
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按 token 预算压缩的对话记忆
+ * 存储仍由消息窗口记忆维护（条数硬上限），读取时经压缩器按预算省略工具输出或摘要此前轮次，压缩结果不回写存储
+ */
+public class TokenBudgetChatMemory implements ToolLoopChatMemory {
+
+    private final ChatMemory delegate;
+
+    private final ChatMemoryStore store;
+
+    private final int maxMessages;
+
+    private final CodeGenTypeEnum codeGenType;
+
+    private final ChatMemoryCompactor compactor;
+
+    /**
+     * @param delegate    消息窗口记忆
+     * @param store       消息窗口记忆使用的存储，用于批量追加
+     * @param maxMessages 消息窗口大小
+     * @param codeGenType 代码生成类型
+     * @param compactor   记忆压缩器
+     */
+    public TokenBudgetChatMemory(ChatMemory delegate, ChatMemoryStore store, int maxMessages,
+                                 CodeGenTypeEnum codeGenType, ChatMemoryCompactor compactor) {
+        this.delegate = delegate;
+        this.store = store;
+        this.maxMessages = maxMessages;
+        this.codeGenType = codeGenType;
+        this.compactor = compactor;
+    }
+
+    @Override
+    public Object id() {
+        return delegate.id();
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        delegate.add(message);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        return compactor.compact(delegate.id(), codeGenType, delegate.messages());
+    }
+
+    @Override
+    public List<ChatMessage> storedMessages() {
+        return delegate.messages();
+    }
+
+    @Override
+    public List<ChatMessage> compact(List<ChatMessage> messages) {
+        return compactor.compact(delegate.id(), codeGenType, messages);
+    }
+
+    @Override
+    public void addAll(List<ChatMessage> messages) {
+        List<ChatMessage> current = new ArrayList<>(store.getMessages(delegate.id()));
+        current.addAll(messages);
+        evictToWindow(current, maxMessages);
+        store.updateMessages(delegate.id(), current);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    /**
+     * 与消息窗口记忆相同的淘汰规则：保留系统消息，从最早的消息开始淘汰，淘汰带工具调用的 AI 消息时一并淘汰其工具结果
+     */
+    static void evictToWindow(List<ChatMessage> messages, int maxMessages) {
+        while (messages.size() > maxMessages) {
+            int evictIndex = messages.get(0) instanceof SystemMessage ? 1 : 0;
+            ChatMessage evicted = messages.remove(evictIndex);
+            if (evicted instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                while (messages.size() > evictIndex && messages.get(evictIndex) instanceof ToolExecutionResultMessage) {
+                    messages.remove(evictIndex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.usercenterpractice.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+
+import java.util.List;
+
+/**
+ * 支持工具调用循环的对话记忆
+ * 一次生成的多轮工具调用中，流式响应处理器在进程内维护工作消息列表，每轮只批量写入一次存储，不再逐条读写并重新读取完整记忆
+ */
+public interface ToolLoopChatMemory extends ChatMemory {
+
+    /**
+     * 存储中的完整记忆（未压缩），作为工作消息列表的初始内容
+     */
+    List<ChatMessage> storedMessages();
+
+    /**
+     * 按预算压缩进程内的工作消息列表，得到发送给模型的消息
+     */
+    List<ChatMessage> compact(List<ChatMessage> messages);
+
+    /**
+     * 批量追加一轮的消息：读取、写入存储各一次
+     */
+    void addAll(List<ChatMessage> messages);
+}
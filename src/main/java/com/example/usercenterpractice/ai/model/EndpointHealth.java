@@ -0,0 +1,129 @@
+package com.example.usercenterpractice.ai.model;
+
+import java.util.Arrays;
+
+/**
+ * 模型端点的健康状态：熔断器与首 token 延迟采样
+ * 连续失败达到阈值后熔断，熔断期内不参与对冲与故障转移；熔断期结束后半开，只放行一个探测请求，成功则恢复，失败则重新熔断。
+ * 首 token 延迟保留最近若干次的样本，用于计算对冲延迟。同一端点的状态在该端点的所有模型实例间共享。
+ */
+public class EndpointHealth {
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+
+    private final int failureThreshold;
+
+    private final long openDurationNanos;
+
+    private final long[] ttftSamples;
+
+    private int sampleCount;
+
+    private int nextSample;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAtNanos;
+
+    private boolean probeInFlight;
+
+    /**
+     * @param name              端点名称
+     * @param failureThreshold  熔断前允许的连续失败次数
+     * @param openDurationNanos 熔断时长（纳秒）
+     * @param sampleWindow      保留的首 token 延迟样本数
+     */
+    public EndpointHealth(String name, int failureThreshold, long openDurationNanos, int sampleWindow) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDurationNanos;
+        this.ttftSamples = new long[Math.max(1, sampleWindow)];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 申请向该端点发起请求：未熔断时总是允许，半开时只允许一个探测请求
+     *
+     * @return 是否允许
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) {
+                    yield false;
+                }
+                probeInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+        probeInFlight = false;
+    }
+
+    /**
+     * 请求被取消（对冲落败或客户端断开），既不算成功也不算失败，只释放半开探测名额
+     */
+    public synchronized void recordCancelled() {
+        probeInFlight = false;
+    }
+
+    public synchronized boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    /**
+     * 记录一次首 token 延迟。对冲落败被取消的请求以已等待时长作为下界记录
+     *
+     * @param ttftMillis 首 token 延迟（毫秒）
+     */
+    public synchronized void recordTtft(long ttftMillis) {
+        ttftSamples[nextSample] = ttftMillis;
+        nextSample = (nextSample + 1) % ttftSamples.length;
+        sampleCount = Math.min(sampleCount + 1, ttftSamples.length);
+    }
+
+    /**
+     * 近期首 token 延迟的分位数
+     *
+     * @param percentile 分位（0~1）
+     * @param minSamples 最少样本数
+     * @return 分位数（毫秒），样本不足时返回 -1
+     */
+    public synchronized long ttftPercentile(double percentile, int minSamples) {
+        if (sampleCount == 0 || sampleCount < minSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(ttftSamples, sampleCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sampleCount) - 1;
+        return sorted[Math.max(0, Math.min(sampleCount - 1, index))];
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.usercenterpractice.ai.model;
+
+import cn.hutool.core.util.StrUtil;
+import com.example.usercenterpractice.config.ModelHedgingConfig;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * 对冲模型工厂
+ * 为配置了备用端点的流式模型按各自的对冲策略创建 {@link HedgingStreamingChatModel}。各端点的熔断器与首 token 延迟样本按端点名称共享，
+ * 多例模型 Bean 的各个实例看到同一份端点健康状态；对冲定时器在全部实例间共享。
+ */
+@Slf4j
+@Component
+public class HedgingModelFactory {
+
+    @Resource
+    private ModelHedgingConfig modelHedgingConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 端点名称 -> 健康状态
+     */
+    private final Map<String, EndpointHealth> healths = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * 按配置包装流式模型
+     *
+     * @param role            模型配置名，如 streaming-chat-model，同时作为主端点名称
+     * @param primary         主端点模型
+     * @param endpointFactory 根据备用端点配置创建模型
+     * @return 未开启或未配置备用端点时返回主端点模型本身
+     */
+    public StreamingChatModel wrap(String role, StreamingChatModel primary,
+                                   Function<ModelHedgingConfig.Endpoint, StreamingChatModel> endpointFactory) {
+        List<ModelHedgingConfig.Endpoint> secondaries = modelHedgingConfig.getRoleEndpoints(role);
+        if (!modelHedgingConfig.isRoleEnabled(role) || secondaries.isEmpty()) {
+            return primary;
+        }
+        List<ModelEndpoint> endpoints = new ArrayList<>(secondaries.size() + 1);
+        endpoints.add(new ModelEndpoint(role, primary, health(role)));
+        for (ModelHedgingConfig.Endpoint secondary : secondaries) {
+            String name = StrUtil.blankToDefault(secondary.getName(), role + "-" + endpoints.size());
+            endpoints.add(new ModelEndpoint(name, endpointFactory.apply(secondary), health(name)));
+        }
+        return new HedgingStreamingChatModel(role, endpoints, modelHedgingConfig.getRolePolicy(role), scheduler(),
+                meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private EndpointHealth health(String name) {
+        return healths.computeIfAbsent(name, key -> {
+            EndpointHealth health = new EndpointHealth(key, modelHedgingConfig.getFailureThreshold(),
+                    Duration.ofSeconds(modelHedgingConfig.getOpenDurationSeconds()).toNanos(),
+                    modelHedgingConfig.getSampleWindow());
+            Gauge.builder("code_gen.model.circuit.open", health, h -> h.isOpen() ? 1 : 0)
+                    .description("模型端点是否处于熔断状态")
+                    .tag("endpoint", key)
+                    .register(meterRegistry);
+            return health;
+        });
+    }
+
+    private ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            synchronized (this) {
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(
+                            Thread.ofPlatform().name("model-hedge-timer").daemon().factory());
+                }
+            }
+        }
+        return scheduler;
+    }
+}
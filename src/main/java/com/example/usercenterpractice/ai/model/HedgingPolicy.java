@@ -0,0 +1,14 @@
+package com.example.usercenterpractice.ai.model;
+
+/**
+ * 对冲策略
+ *
+ * @param percentile         对冲延迟取主端点近期首 token 延迟的分位（0~1）
+ * @param minSamples         使用分位数所需的最少样本数，不足时使用默认延迟
+ * @param defaultDelayMillis 默认对冲延迟（毫秒）
+ * @param minDelayMillis     对冲延迟下限（毫秒）
+ * @param maxDelayMillis     对冲延迟上限（毫秒）
+ */
+public record HedgingPolicy(double percentile, int minSamples, long defaultDelayMillis,
+                            long minDelayMillis, long maxDelayMillis) {
+}
@@ -0,0 +1,407 @@
+package com.example.usercenterpractice.ai.model;
+
+import com.example.usercenterpractice.ai.stream.CancellationToken;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 对冲与故障转移的流式模型
+ * 先向主端点发起请求，若首个事件（文本或工具调用片段）在主端点近期首 token 延迟的指定分位数内仍未到达，
+ * 则向下一个可用的备用端点发起对冲请求，先产生首个事件的请求胜出，其余请求通过各自的取消令牌中断上游连接。
+ * 首个事件之前失败的请求计入端点熔断器，且没有其他请求在进行时立即转移到下一个可用端点；胜出后的失败直接返回给调用方。
+ * 参数错误（InvalidRequestException）与端点无关，不转移也不计入熔断。熔断中的端点不参与对冲与转移，全部熔断时仍使用主端点。
+ */
+@Slf4j
+public class HedgingStreamingChatModel implements StreamingChatModel {
+
+    private final String role;
+
+    private final List<ModelEndpoint> endpoints;
+
+    private final HedgingPolicy policy;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param role          模型角色（用于指标标签），如 streaming-chat-model
+     * @param endpoints     端点列表，第一个为主端点
+     * @param policy        对冲策略
+     * @param scheduler     对冲定时器
+     * @param meterRegistry 指标注册表
+     */
+    public HedgingStreamingChatModel(String role, List<ModelEndpoint> endpoints, HedgingPolicy policy,
+                                     ScheduledExecutorService scheduler, MeterRegistry meterRegistry) {
+        this.role = role;
+        this.endpoints = List.copyOf(endpoints);
+        this.policy = policy;
+        this.scheduler = scheduler;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        // 各端点模型自行合并默认参数并通知监听器
+        new HedgedCall(chatRequest, handler, CancellationToken.current()).start();
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return primary().defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return primary().listeners();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return primary().provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return primary().supportedCapabilities();
+    }
+
+    private StreamingChatModel primary() {
+        return endpoints.get(0).model();
+    }
+
+    /**
+     * 对冲延迟：主端点近期首 token 延迟的分位数，样本不足时使用默认值，并限制在上下限之间
+     */
+    long hedgeDelayMillis(EndpointHealth health) {
+        long percentile = health.ttftPercentile(policy.percentile(), policy.minSamples());
+        long delay = percentile < 0 ? policy.defaultDelayMillis() : percentile;
+        return Math.max(policy.minDelayMillis(), Math.min(policy.maxDelayMillis(), delay));
+    }
+
+    private void recordOutcome(String outcome) {
+        meterRegistry.counter("code_gen.model.hedge", "role", role, "outcome", outcome).increment();
+    }
+
+    /**
+     * 判断失败是否由端点引起（计入熔断并可转移到其他端点）
+     */
+    static boolean isEndpointFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InvalidRequestException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一次调用：管理各端点上的请求，保证调用方只收到胜出请求的事件，且完成或失败只回调一次
+     */
+    private final class HedgedCall {
+
+        private final ChatRequest chatRequest;
+
+        private final StreamingChatResponseHandler handler;
+
+        private final CancellationToken parentToken;
+
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+
+        private final List<Attempt> attempts = new ArrayList<>();
+
+        private int nextEndpoint;
+
+        private boolean finished;
+
+        private ScheduledFuture<?> hedgeTimer;
+
+        private HedgedCall(ChatRequest chatRequest, StreamingChatResponseHandler handler, CancellationToken parentToken) {
+            this.chatRequest = chatRequest;
+            this.handler = handler;
+            this.parentToken = parentToken;
+        }
+
+        void start() {
+            ModelEndpoint endpoint;
+            synchronized (this) {
+                endpoint = nextAvailableEndpoint();
+                if (endpoint == null) {
+                    // 全部熔断时仍使用主端点，熔断器不应拒绝所有请求
+                    endpoint = endpoints.get(0);
+                    nextEndpoint = 1;
+                }
+            }
+            Attempt attempt = launch(endpoint, false);
+            if (endpoints.size() > 1 && !attempt.done) {
+                long delay = hedgeDelayMillis(endpoint.health());
+                synchronized (this) {
+                    if (!finished && winner.get() == null) {
+                        hedgeTimer = scheduler.schedule(this::hedge, delay, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+        }
+
+        private void hedge() {
+            ModelEndpoint endpoint;
+            synchronized (this) {
+                if (finished || winner.get() != null || isCallCancelled()) {
+                    return;
+                }
+                endpoint = nextAvailableEndpoint();
+            }
+            if (endpoint == null) {
+                return;
+            }
+            recordOutcome("fired");
+            log.info("首 token 超时，发起对冲请求, 模型: {}, 端点: {}", role, endpoint.name());
+            launch(endpoint, true);
+        }
+
+        private Attempt launch(ModelEndpoint endpoint, boolean hedge) {
+            Attempt attempt = new Attempt(this, endpoint, hedge);
+            synchronized (this) {
+                attempts.add(attempt);
+            }
+            if (parentToken != null) {
+                // 调用方取消时一并取消各端点上的请求
+                parentToken.register(attempt.parentCancellation);
+            }
+            try {
+                attempt.token.runBound(() -> endpoint.model().chat(chatRequest, attempt));
+            } catch (Exception e) {
+                attempt.onError(e);
+            }
+            return attempt;
+        }
+
+        /**
+         * 由请求的首个事件调用，返回该请求是否为（或成为）胜出者
+         */
+        boolean claim(Attempt attempt) {
+            Attempt current = winner.get();
+            if (current != null) {
+                return current == attempt;
+            }
+            if (!winner.compareAndSet(null, attempt)) {
+                return winner.get() == attempt;
+            }
+            List<Attempt> losers;
+            synchronized (this) {
+                cancelHedgeTimer();
+                losers = new ArrayList<>(attempts);
+                losers.remove(attempt);
+            }
+            attempt.endpoint.health().recordTtft(attempt.elapsedMillis());
+            Timer.builder("code_gen.model.ttft")
+                    .description("各模型端点的首个事件延迟")
+                    .tag("endpoint", attempt.endpoint.name())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(attempt.elapsedMillis(), TimeUnit.MILLISECONDS);
+            for (Attempt loser : losers) {
+                // 落败请求的真实首 token 延迟不低于已等待的时长，作为删失样本记录，
+                // 否则样本只来自胜出的（较快的）请求，分位数持续偏低，对冲延迟逐步降到下限
+                if (!loser.done) {
+                    loser.endpoint.health().recordTtft(loser.elapsedMillis());
+                }
+                loser.cancel();
+            }
+            if (attempt.hedge) {
+                recordOutcome("hedge_won");
+            } else if (!losers.isEmpty()) {
+                recordOutcome("primary_won");
+            }
+            return true;
+        }
+
+        void onComplete(Attempt attempt, ChatResponse completeResponse) {
+            attempt.finish();
+            attempt.endpoint.health().recordSuccess();
+            synchronized (this) {
+                finished = true;
+            }
+            handler.onCompleteResponse(completeResponse);
+        }
+
+        void onError(Attempt attempt, Throwable error) {
+            if (attempt.done) {
+                return;
+            }
+            attempt.finish();
+            if (isCallCancelled() || attempt.token.isCancelled()) {
+                attempt.endpoint.health().recordCancelled();
+                return;
+            }
+            boolean endpointFailure = isEndpointFailure(error);
+            if (endpointFailure) {
+                attempt.endpoint.health().recordFailure();
+                meterRegistry.counter("code_gen.model.endpoint.failures", "endpoint", attempt.endpoint.name()).increment();
+            } else {
+                attempt.endpoint.health().recordCancelled();
+            }
+            Attempt current = winner.get();
+            if (current != null && current != attempt) {
+                return;
+            }
+            ModelEndpoint failover = null;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                if (current == null && endpointFailure) {
+                    if (attempts.stream().anyMatch(other -> !other.done)) {
+                        // 仍有请求在进行（如对冲请求），等待其结果
+                        return;
+                    }
+                    failover = nextAvailableEndpoint();
+                }
+                if (failover == null) {
+                    finished = true;
+                    cancelHedgeTimer();
+                }
+            }
+            if (failover != null) {
+                recordOutcome("failover");
+                log.warn("模型端点请求失败，转移到端点: {}, 模型: {}, 错误: {}", failover.name(), role, error.getMessage());
+                launch(failover, false);
+                return;
+            }
+            handler.onError(error);
+        }
+
+        StreamingChatResponseHandler handler() {
+            return handler;
+        }
+
+        private ModelEndpoint nextAvailableEndpoint() {
+            while (nextEndpoint < endpoints.size()) {
+                ModelEndpoint endpoint = endpoints.get(nextEndpoint++);
+                if (endpoint.health().tryAcquire()) {
+                    return endpoint;
+                }
+            }
+            return null;
+        }
+
+        private void cancelHedgeTimer() {
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+                hedgeTimer = null;
+            }
+        }
+
+        private boolean isCallCancelled() {
+            return parentToken != null && parentToken.isCancelled();
+        }
+
+        private void unregister(Attempt attempt) {
+            if (parentToken != null) {
+                parentToken.unregister(attempt.parentCancellation);
+            }
+        }
+    }
+
+    /**
+     * 一个端点上的请求，只有胜出的请求会把事件转发给调用方
+     */
+    private static final class Attempt implements StreamingChatResponseHandler {
+
+        private final HedgedCall call;
+
+        private final ModelEndpoint endpoint;
+
+        private final boolean hedge;
+
+        private final CancellationToken token = new CancellationToken();
+
+        /**
+         * 注册到调用方取消令牌上的回调，需保持同一实例以便移除
+         */
+        private final Runnable parentCancellation = token::cancel;
+
+        private final long startNanos = System.nanoTime();
+
+        private volatile boolean done;
+
+        private Attempt(HedgedCall call, ModelEndpoint endpoint, boolean hedge) {
+            this.call = call;
+            this.endpoint = endpoint;
+            this.hedge = hedge;
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (call.claim(this)) {
+                call.handler().onPartialResponse(partialResponse);
+            }
+        }
+
+        @Override
+        public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+            if (call.claim(this)) {
+                call.handler().onPartialToolExecutionRequest(index, partialToolExecutionRequest);
+            }
+        }
+
+        @Override
+        public void onCompleteToolExecutionRequest(int index, ToolExecutionRequest completeToolExecutionRequest) {
+            if (call.claim(this)) {
+                call.handler().onCompleteToolExecutionRequest(index, completeToolExecutionRequest);
+            }
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            if (!done && call.claim(this)) {
+                call.onComplete(this, completeResponse);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            call.onError(this, error);
+        }
+
+        long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * 对冲落败：中断上游连接，不计入熔断
+         */
+        void cancel() {
+            if (done) {
+                return;
+            }
+            finish();
+            token.cancel();
+            endpoint.health().recordCancelled();
+        }
+
+        void finish() {
+            done = true;
+            call.unregister(this);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.usercenterpractice.ai.model;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+
+/**
+ * 模型端点：端点名称、该端点上的流式模型及其共享的健康状态
+ *
+ * @param name   端点名称（用于指标标签与日志）
+ * @param model  流式模型
+ * @param health 健康状态
+ */
+public record ModelEndpoint(String name, StreamingChatModel model, EndpointHealth health) {
+}
@@ -0,0 +1,161 @@
+package com.example.usercenterpractice.ai.parser;
+
+import java.util.Locale;
+
+/**
+ * Markdown 代码块增量扫描器
+ * 以状态机方式识别 ```lang ... ``` 代码块，片段到达时即推进解析，代码块闭合时回调监听器。
+ * 适用于 LLM 流式输出，避免在流结束后再对全文做一次正则匹配。
+ * <p>
+ * 非线程安全，每个流使用独立实例。
+ */
+public class CodeFenceScanner {
+
+    /**
+     * 代码块闭合监听器
+     */
+    @FunctionalInterface
+    public interface FenceListener {
+
+        /**
+         * 代码块闭合时回调
+         *
+         * @param language 代码块语言标识（已转小写并去除空白）
+         * @param code     代码块内容（未 trim）
+         */
+        void onFenceClosed(String language, String code);
+    }
+
+    private enum State {
+        /**
+         * 代码块外的普通文本
+         */
+        TEXT,
+        /**
+         * 开始标记 ``` 之后、换行之前的语言标识
+         */
+        INFO,
+        /**
+         * 代码块内容
+         */
+        CODE
+    }
+
+    private static final int FENCE_LENGTH = 3;
+
+    private final FenceListener listener;
+
+    private final StringBuilder infoBuilder = new StringBuilder();
+
+    private final StringBuilder codeBuilder = new StringBuilder();
+
+    private State state = State.TEXT;
+
+    /**
+     * 当前连续的反引号数量
+     */
+    private int backtickCount;
+
+    private String language;
+
+    public CodeFenceScanner(FenceListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 追加一个流式片段
+     *
+     * @param chunk 片段内容
+     */
+    public void append(CharSequence chunk) {
+        if (chunk == null) {
+            return;
+        }
+        int length = chunk.length();
+        int i = 0;
+        while (i < length) {
+            switch (state) {
+                case TEXT -> i = scanText(chunk, i, length);
+                case INFO -> i = scanInfo(chunk, i, length);
+                case CODE -> i = scanCode(chunk, i, length);
+            }
+        }
+    }
+
+    /**
+     * 当前是否处于未闭合的代码块中
+     */
+    public boolean isInsideFence() {
+        return state == State.CODE;
+    }
+
+    private int scanText(CharSequence chunk, int i, int length) {
+        while (i < length) {
+            char c = chunk.charAt(i++);
+            if (c != '`') {
+                backtickCount = 0;
+                continue;
+            }
+            if (++backtickCount == FENCE_LENGTH) {
+                backtickCount = 0;
+                infoBuilder.setLength(0);
+                state = State.INFO;
+                return i;
+            }
+        }
+        return i;
+    }
+
+    private int scanInfo(CharSequence chunk, int i, int length) {
+        while (i < length) {
+            char c = chunk.charAt(i++);
+            if (c == '\n') {
+                language = infoBuilder.toString().trim().toLowerCase(Locale.ROOT);
+                codeBuilder.setLength(0);
+                backtickCount = 0;
+                state = State.CODE;
+                return i;
+            }
+            if (c == '`') {
+                if (infoBuilder.isEmpty()) {
+                    // ```` 等更长的开始标记，继续视为标记的一部分
+                    continue;
+                }
+                // 行内出现反引号说明不是代码块开始标记，回到普通文本重新识别
+                backtickCount = 1;
+                state = State.TEXT;
+                return i;
+            }
+            infoBuilder.append(c);
+        }
+        return i;
+    }
+
+    private int scanCode(CharSequence chunk, int i, int length) {
+        while (i < length) {
+            char c = chunk.charAt(i);
+            if (c == '`') {
+                i++;
+                if (++backtickCount == FENCE_LENGTH) {
+                    backtickCount = 0;
+                    state = State.TEXT;
+                    listener.onFenceClosed(language, codeBuilder.toString());
+                    return i;
+                }
+                continue;
+            }
+            // 不足三个的反引号属于代码内容
+            for (; backtickCount > 0; backtickCount--) {
+                codeBuilder.append('`');
+            }
+            // 批量追加到下一个反引号之前的内容
+            int end = i + 1;
+            while (end < length && chunk.charAt(end) != '`') {
+                end++;
+            }
+            codeBuilder.append(chunk, i, end);
+            i = end;
+        }
+        return i;
+    }
+}
@@ -30,4 +30,18 @@ public class CodeParserExecutor {
             default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
         };
     }
+
+    /**
+     * 创建流式代码解析器（有状态，每个流一个实例）
+     *
+     * @param codeGenType 代码生成类型
+     * @return 流式解析器（结果为 HtmlCodeResult 或 MultiFileCodeResult）
+     */
+    public static StreamingCodeParser<?> createStreamingParser(CodeGenTypeEnum codeGenType) {
+        return switch (codeGenType) {
+            case HTML -> new StreamingHtmlCodeParser();
+            case MULTI_FILE -> new StreamingMultiFileCodeParser();
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        };
+    }
 }
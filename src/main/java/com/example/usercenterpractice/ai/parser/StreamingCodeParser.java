@@ -0,0 +1,32 @@
+package com.example.usercenterpractice.ai.parser;
+
+/**
+ * 流式代码解析器策略接口
+ * 随 LLM 输出片段逐步推进解析，流结束时直接取结果，无需再对全文做一次解析
+ * <p>
+ * 实例有状态，每个流使用独立实例
+ */
+public interface StreamingCodeParser<T> extends CodeParser<T> {
+
+    /**
+     * 追加一个流式片段
+     *
+     * @param chunk 片段内容
+     */
+    void append(String chunk);
+
+    /**
+     * 获取当前已解析的结果
+     *
+     * @return 解析后的结果对象
+     */
+    T getResult();
+
+    /**
+     * 设置代码块闭合监听器
+     * 代码块完整到达时回调，每种语言只回调第一个代码块（与 {@link #getResult()} 一致），内容已 trim
+     *
+     * @param listener 监听器，语言标识统一为 html / css / js
+     */
+    void setCodeBlockListener(CodeFenceScanner.FenceListener listener);
+}
@@ -0,0 +1,68 @@
+package com.example.usercenterpractice.ai.parser;
+
+import com.example.usercenterpractice.ai.model.HtmlCodeResult;
+
+/**
+ * HTML 单文件流式代码解析器
+ * 与 {@link HtmlCodeParser} 结果一致：取第一个 html 代码块，没有代码块时将整个内容作为 HTML
+ */
+public class StreamingHtmlCodeParser implements StreamingCodeParser<HtmlCodeResult> {
+
+    private final CodeFenceScanner scanner = new CodeFenceScanner(this::onFenceClosed);
+
+    /**
+     * 原始内容，用于没有代码块时的兜底
+     */
+    private final StringBuilder rawContent = new StringBuilder();
+
+    private String htmlCode;
+
+    private CodeFenceScanner.FenceListener codeBlockListener;
+
+    @Override
+    public void append(String chunk) {
+        if (chunk == null) {
+            return;
+        }
+        rawContent.append(chunk);
+        scanner.append(chunk);
+    }
+
+    @Override
+    public HtmlCodeResult getResult() {
+        HtmlCodeResult result = new HtmlCodeResult();
+        if (htmlCode != null && !htmlCode.trim().isEmpty()) {
+            result.setHtmlCode(htmlCode.trim());
+        } else {
+            // 如果没有找到代码块，将整个内容作为HTML
+            result.setHtmlCode(rawContent.toString().trim());
+        }
+        return result;
+    }
+
+    @Override
+    public void setCodeBlockListener(CodeFenceScanner.FenceListener listener) {
+        this.codeBlockListener = listener;
+    }
+
+    @Override
+    public HtmlCodeResult parseCode(String codeContent) {
+        StreamingHtmlCodeParser parser = new StreamingHtmlCodeParser();
+        parser.append(codeContent);
+        return parser.getResult();
+    }
+
+    private void onFenceClosed(String language, String code) {
+        // 只取第一个 html 代码块
+        if (htmlCode == null && "html".equals(language)) {
+            htmlCode = code;
+            notifyCodeBlock(language, code);
+        }
+    }
+
+    private void notifyCodeBlock(String language, String code) {
+        if (codeBlockListener != null && !code.trim().isEmpty()) {
+            codeBlockListener.onFenceClosed(language, code.trim());
+        }
+    }
+}
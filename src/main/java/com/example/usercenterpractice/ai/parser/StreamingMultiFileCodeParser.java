@@ -0,0 +1,87 @@
+package com.example.usercenterpractice.ai.parser;
+
+import com.example.usercenterpractice.ai.model.MultiFileCodeResult;
+
+/**
+ * 多文件流式代码解析器（HTML + CSS + JS）
+ * 与 {@link MultiFileCodeParser} 结果一致：每种语言取第一个代码块
+ */
+public class StreamingMultiFileCodeParser implements StreamingCodeParser<MultiFileCodeResult> {
+
+    private final CodeFenceScanner scanner = new CodeFenceScanner(this::onFenceClosed);
+
+    private String htmlCode;
+
+    private String cssCode;
+
+    private String jsCode;
+
+    private CodeFenceScanner.FenceListener codeBlockListener;
+
+    @Override
+    public void append(String chunk) {
+        scanner.append(chunk);
+    }
+
+    @Override
+    public MultiFileCodeResult getResult() {
+        MultiFileCodeResult result = new MultiFileCodeResult();
+        // 设置HTML代码
+        if (htmlCode != null && !htmlCode.trim().isEmpty()) {
+            result.setHtmlCode(htmlCode.trim());
+        }
+        // 设置CSS代码
+        if (cssCode != null && !cssCode.trim().isEmpty()) {
+            result.setCssCode(cssCode.trim());
+        }
+        // 设置JS代码
+        if (jsCode != null && !jsCode.trim().isEmpty()) {
+            result.setJsCode(jsCode.trim());
+        }
+        return result;
+    }
+
+    @Override
+    public void setCodeBlockListener(CodeFenceScanner.FenceListener listener) {
+        this.codeBlockListener = listener;
+    }
+
+    @Override
+    public MultiFileCodeResult parseCode(String codeContent) {
+        StreamingMultiFileCodeParser parser = new StreamingMultiFileCodeParser();
+        parser.append(codeContent);
+        return parser.getResult();
+    }
+
+    private void onFenceClosed(String language, String code) {
+        switch (language) {
+            case "html" -> {
+                if (htmlCode == null) {
+                    htmlCode = code;
+                    notifyCodeBlock("html", code);
+                }
+            }
+            case "css" -> {
+                if (cssCode == null) {
+                    cssCode = code;
+                    notifyCodeBlock("css", code);
+                }
+            }
+            case "js", "javascript" -> {
+                if (jsCode == null) {
+                    jsCode = code;
+                    notifyCodeBlock("js", code);
+                }
+            }
+            default -> {
+                // 其他语言的代码块忽略
+            }
+        }
+    }
+
+    private void notifyCodeBlock(String language, String code) {
+        if (codeBlockListener != null && !code.trim().isEmpty()) {
+            codeBlockListener.onFenceClosed(language, code.trim());
+        }
+    }
+}
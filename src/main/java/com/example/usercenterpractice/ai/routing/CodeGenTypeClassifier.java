@@ -0,0 +1,103 @@
+package com.example.usercenterpractice.ai.routing;
+
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 代码生成类型的本地轻量分类器
+ * 对规范化后的需求描述做关键词（含中文词组）加权打分，置信度为最高分在各类型总分中的占比。
+ * 规则与路由提示词（codegen-routing-system-prompt.txt）的判断规则保持一致：简单展示页选 HTML，
+ * 多页面但交互简单选 MULTI_FILE，涉及复杂交互、数据管理的选 VUE_PROJECT。
+ */
+public class CodeGenTypeClassifier {
+
+    /**
+     * 需求描述超过该长度时视为较复杂，向 Vue 工程倾斜
+     */
+    private static final int LONG_PROMPT_LENGTH = 200;
+
+    private static final Map<CodeGenTypeEnum, Map<String, Double>> KEYWORDS = new EnumMap<>(CodeGenTypeEnum.class);
+
+    static {
+        KEYWORDS.put(CodeGenTypeEnum.HTML, Map.ofEntries(
+                Map.entry("html", 1.5), Map.entry("单页", 1.5), Map.entry("一个页面", 2.0), Map.entry("单个页面", 2.0),
+                Map.entry("简单", 2.0), Map.entry("静态", 1.5), Map.entry("落地页", 2.0), Map.entry("landing", 2.0),
+                Map.entry("展示", 1.0), Map.entry("介绍", 1.0), Map.entry("个人主页", 1.5), Map.entry("名片", 2.0),
+                Map.entry("祝福", 2.0), Map.entry("生日", 1.5), Map.entry("倒计时", 1.5), Map.entry("小游戏", 1.0),
+                Map.entry("贺卡", 2.0), Map.entry("邀请函", 2.0), Map.entry("海报", 1.5), Map.entry("计算器", 1.5),
+                Map.entry("时钟", 1.5)));
+        KEYWORDS.put(CodeGenTypeEnum.MULTI_FILE, Map.ofEntries(
+                Map.entry("多个页面", 2.0), Map.entry("多页", 1.5), Map.entry("分离", 2.0), Map.entry("css文件", 2.0),
+                Map.entry("js文件", 2.0), Map.entry("官网", 1.5), Map.entry("企业", 1.0), Map.entry("公司", 1.0),
+                Map.entry("作品集", 1.5), Map.entry("博客", 1.5), Map.entry("网站", 1.0), Map.entry("导航", 1.0),
+                Map.entry("关于我们", 1.5), Map.entry("联系我们", 1.5), Map.entry("portfolio", 1.5), Map.entry("website", 1.0)));
+        KEYWORDS.put(CodeGenTypeEnum.VUE_PROJECT, Map.ofEntries(
+                Map.entry("vue", 3.0), Map.entry("项目", 1.0), Map.entry("系统", 2.0), Map.entry("管理", 2.0),
+                Map.entry("后台", 2.0), Map.entry("登录", 2.0), Map.entry("注册", 1.5), Map.entry("购物车", 2.0),
+                Map.entry("路由", 2.0), Map.entry("组件", 1.5), Map.entry("状态管理", 2.0), Map.entry("dashboard", 2.0),
+                Map.entry("admin", 2.0), Map.entry("crud", 2.0), Map.entry("数据", 1.0), Map.entry("交互", 1.0),
+                Map.entry("电商", 2.0), Map.entry("商城", 2.0), Map.entry("平台", 1.5), Map.entry("用户中心", 2.0),
+                Map.entry("表单", 1.0), Map.entry("筛选", 1.5), Map.entry("分页", 1.5), Map.entry("单页应用", 2.0),
+                Map.entry("spa", 2.0), Map.entry("图表", 1.5), Map.entry("增删改查", 2.0)));
+    }
+
+    /**
+     * 规范化需求描述：转小写、去除标点与空白，使表述相同但格式不同的需求命中同一缓存
+     */
+    public static String normalize(String prompt) {
+        if (prompt == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(prompt.length());
+        prompt.toLowerCase(Locale.ROOT).codePoints()
+                .filter(Character::isLetterOrDigit)
+                .forEach(normalized::appendCodePoint);
+        return normalized.toString();
+    }
+
+    /**
+     * 分类
+     *
+     * @param normalizedPrompt 规范化后的需求描述
+     * @return 分类结果，没有命中任何关键词时置信度为 0
+     */
+    public Classification classify(String normalizedPrompt) {
+        Map<CodeGenTypeEnum, Double> scores = new EnumMap<>(CodeGenTypeEnum.class);
+        for (Map.Entry<CodeGenTypeEnum, Map<String, Double>> typeKeywords : KEYWORDS.entrySet()) {
+            double score = 0;
+            for (Map.Entry<String, Double> keyword : typeKeywords.getValue().entrySet()) {
+                if (normalizedPrompt.contains(keyword.getKey())) {
+                    score += keyword.getValue();
+                }
+            }
+            scores.put(typeKeywords.getKey(), score);
+        }
+        if (normalizedPrompt.length() > LONG_PROMPT_LENGTH) {
+            scores.merge(CodeGenTypeEnum.VUE_PROJECT, 1.0, Double::sum);
+        }
+        CodeGenTypeEnum best = CodeGenTypeEnum.HTML;
+        double bestScore = 0;
+        double total = 0;
+        for (Map.Entry<CodeGenTypeEnum, Double> score : scores.entrySet()) {
+            total += score.getValue();
+            if (score.getValue() > bestScore) {
+                best = score.getKey();
+                bestScore = score.getValue();
+            }
+        }
+        return new Classification(best, bestScore, total > 0 ? bestScore / total : 0);
+    }
+
+    /**
+     * 分类结果
+     *
+     * @param type       得分最高的类型
+     * @param score      最高得分
+     * @param confidence 最高得分在总分中的占比
+     */
+    public record Classification(CodeGenTypeEnum type, double score, double confidence) {
+    }
+}
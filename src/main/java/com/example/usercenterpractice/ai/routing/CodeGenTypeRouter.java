@@ -0,0 +1,108 @@
+package com.example.usercenterpractice.ai.routing;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.example.usercenterpractice.ai.AiCodeGenTypeRoutingService;
+import com.example.usercenterpractice.config.CodeGenRoutingConfig;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码生成类型路由
+ * 依次查询规范化需求描述的结果缓存、本地关键词分类器，仅在分类器置信度不足时调用路由模型；
+ * 路由模型调用失败时退回分类器结果（不缓存）。按结果来源记录路由耗时，来源分布即缓存与分类器的命中率。
+ */
+@Slf4j
+@Component
+public class CodeGenTypeRouter {
+
+    /**
+     * 延迟注入：路由服务 Bean 创建时需从 SpringContextUtil 获取多例路由模型，须在上下文就绪后再初始化
+     */
+    @Resource
+    @Lazy
+    private AiCodeGenTypeRoutingService aiCodeGenTypeRoutingService;
+
+    @Resource
+    private CodeGenRoutingConfig codeGenRoutingConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final CodeGenTypeClassifier classifier = new CodeGenTypeClassifier();
+
+    /**
+     * 规范化需求描述的摘要值 -> 路由结果
+     */
+    private Cache<String, CodeGenTypeEnum> routeCache;
+
+    @PostConstruct
+    public void init() {
+        routeCache = Caffeine.newBuilder()
+                .maximumSize(codeGenRoutingConfig.getCacheMaxSize())
+                .expireAfterWrite(Duration.ofMinutes(codeGenRoutingConfig.getCacheExpireMinutes()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, routeCache, "code_gen_routing");
+    }
+
+    /**
+     * 根据需求描述选择代码生成类型
+     *
+     * @param userPrompt 用户输入的需求描述
+     * @return 代码生成类型
+     */
+    public CodeGenTypeEnum route(String userPrompt) {
+        long startNanos = System.nanoTime();
+        String normalizedPrompt = CodeGenTypeClassifier.normalize(userPrompt);
+        String cacheKey = DigestUtil.md5Hex(normalizedPrompt);
+        CodeGenTypeEnum cached = routeCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            record("cache", startNanos);
+            return cached;
+        }
+        CodeGenTypeClassifier.Classification classification = classifier.classify(normalizedPrompt);
+        if (Boolean.TRUE.equals(codeGenRoutingConfig.getClassifierEnabled())
+                && classification.confidence() >= codeGenRoutingConfig.getConfidenceThreshold()
+                && classification.score() >= codeGenRoutingConfig.getMinScore()) {
+            routeCache.put(cacheKey, classification.type());
+            record("classifier", startNanos);
+            return classification.type();
+        }
+        CodeGenTypeEnum routed;
+        try {
+            routed = aiCodeGenTypeRoutingService.routeCodeGenType(userPrompt);
+        } catch (Exception e) {
+            log.warn("路由模型调用失败，使用本地分类结果: {}", classification.type().getValue(), e);
+            record("fallback", startNanos);
+            return classification.type();
+        }
+        if (routed == null) {
+            record("fallback", startNanos);
+            return classification.type();
+        }
+        routeCache.put(cacheKey, routed);
+        record("llm", startNanos);
+        return routed;
+    }
+
+    private void record(String source, long startNanos) {
+        Timer.builder("code_gen.routing")
+                .description("代码生成类型路由耗时，source 为结果来源：cache / classifier / llm / fallback")
+                .tag("source", source)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.usercenterpractice.ai.routing;
+
+import com.example.usercenterpractice.config.CodeGenRoutingConfig;
+import com.example.usercenterpractice.exception.BusinessException;
+import com.example.usercenterpractice.exception.ErrorCode;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.UnaryOperator;
+
+/**
+ * 代码生成类型后台路由执行器
+ * 应用以待定类型入库后在有界线程池中路由，生成代码时通过 {@link #await} 等待本节点进行中的路由任务；
+ * 本节点没有对应任务（服务重启、由其他节点创建或任务失败）时在调用线程中同步路由。
+ * 路由结果通过 persist 回调写回数据库，回调返回最终生效的类型（多个节点并发路由时以先写入者为准）。
+ */
+@Slf4j
+@Component
+public class CodeGenTypeRoutingExecutor {
+
+    @Resource
+    private CodeGenTypeRouter codeGenTypeRouter;
+
+    @Resource
+    private CodeGenRoutingConfig codeGenRoutingConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 应用 ID -> 进行中的路由任务
+     */
+    private final Map<Long, CompletableFuture<CodeGenTypeEnum>> pending = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int threads = codeGenRoutingConfig.getAsyncThreads();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(codeGenRoutingConfig.getAsyncQueueCapacity()),
+                Thread.ofPlatform().name("code-gen-routing-", 0).daemon().factory());
+        executor.allowCoreThreadTimeOut(true);
+        meterRegistry.gauge("code_gen.routing.pending", pending, Map::size);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 未完成的应用保持待定类型，生成代码时会同步路由
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交后台路由任务，线程池已满时在调用线程中同步路由
+     *
+     * @param appId      应用 ID
+     * @param initPrompt 应用初始化需求描述
+     * @param persist    将路由结果写回数据库，返回最终生效的类型
+     * @return 路由任务
+     */
+    public CompletableFuture<CodeGenTypeEnum> submit(Long appId, String initPrompt, UnaryOperator<CodeGenTypeEnum> persist) {
+        CompletableFuture<CodeGenTypeEnum> future = new CompletableFuture<>();
+        pending.put(appId, future);
+        Runnable task = () -> run(appId, initPrompt, persist, future);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("后台路由线程池已满，同步路由, appId: {}", appId);
+            meterRegistry.counter("code_gen.routing.rejected").increment();
+            task.run();
+        }
+        return future;
+    }
+
+    /**
+     * 等待应用的路由结果
+     *
+     * @param appId      应用 ID
+     * @param initPrompt 应用初始化需求描述，本节点没有进行中的任务时用于同步路由
+     * @param persist    将路由结果写回数据库，返回最终生效的类型
+     * @return 代码生成类型
+     */
+    public CodeGenTypeEnum await(Long appId, String initPrompt, UnaryOperator<CodeGenTypeEnum> persist) {
+        CompletableFuture<CodeGenTypeEnum> future = pending.get(appId);
+        if (future != null) {
+            try {
+                return future.get(codeGenRoutingConfig.getAwaitTimeoutSeconds(), TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "应用类型识别超时，请稍后重试");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "应用类型识别被中断");
+            } catch (ExecutionException e) {
+                log.warn("后台路由失败，同步路由, appId: {}", appId, e.getCause());
+            }
+        }
+        return persist.apply(codeGenTypeRouter.route(initPrompt));
+    }
+
+    private void run(Long appId, String initPrompt, UnaryOperator<CodeGenTypeEnum> persist,
+                     CompletableFuture<CodeGenTypeEnum> future) {
+        try {
+            future.complete(persist.apply(codeGenTypeRouter.route(initPrompt)));
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            pending.remove(appId, future);
+        }
+    }
+}
@@ -40,4 +40,21 @@ public class CodeFileSaverExecutor {
         };
     }
 
+    /**
+     * 执行单个代码块保存（流式生成过程中代码块闭合即落盘）
+     *
+     * @param language    代码块语言标识（html / css / js）
+     * @param code        代码块内容
+     * @param codeGenType 代码生成类型
+     * @param appId       应用 ID
+     * @return 保存的文件，语言不属于当前类型时返回 null
+     */
+    public static File executeBlockSaver(String language, String code, CodeGenTypeEnum codeGenType, Long appId) {
+        return switch (codeGenType) {
+            case HTML -> htmlCodeFileSaver.saveCodeBlock(language, code, appId);
+            case MULTI_FILE -> multiFileCodeFileSaver.saveCodeBlock(language, code, appId);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        };
+    }
+
 }
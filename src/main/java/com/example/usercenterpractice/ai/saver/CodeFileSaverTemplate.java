@@ -9,6 +9,13 @@ import com.example.usercenterpractice.exception.ErrorCode;
 import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 /**
  * 抽象代码文件保存器 - 模板方法模式
@@ -45,6 +52,24 @@ public abstract class CodeFileSaverTemplate<T> {
         return new File(baseDirPath);
     }
 
+    /**
+     * 保存单个已闭合的代码块（流式生成过程中逐个落盘，便于边生成边预览）
+     *
+     * @param language 代码块语言标识（html / css / js）
+     * @param code     代码块内容
+     * @param appId    应用 ID
+     * @return 保存的文件，语言不属于当前类型时返回 null
+     */
+    public final File saveCodeBlock(String language, String code, Long appId) {
+        String filename = getFileName(language);
+        if (filename == null) {
+            return null;
+        }
+        String baseDirPath = buildUniqueDir(appId);
+        writeToFile(baseDirPath, filename, code);
+        return new File(baseDirPath, filename);
+    }
+
     /**
      * 构建基于 appId 的目录路径
      *
@@ -85,8 +110,20 @@ public abstract class CodeFileSaverTemplate<T> {
      */
     protected final void writeToFile(String dirPath, String filename, String content) {
         if (StrUtil.isNotBlank(content)) {
-            String filePath = dirPath + File.separator + filename;
-            FileUtil.writeUtf8String(content, filePath);
+            // 先写临时文件再原子替换，预览时不会读到写了一半的文件
+            Path targetPath = Paths.get(dirPath, filename);
+            Path tempPath = targetPath.resolveSibling(filename + "." + IdUtil.fastSimpleUUID() + ".tmp");
+            try {
+                Files.writeString(tempPath, content, StandardCharsets.UTF_8);
+                try {
+                    Files.move(tempPath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                FileUtil.del(tempPath);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件写入失败: " + filename);
+            }
         }
     }
 
@@ -97,6 +134,14 @@ public abstract class CodeFileSaverTemplate<T> {
      */
     protected abstract CodeGenTypeEnum getCodeType();
 
+    /**
+     * 根据代码块语言获取保存的文件名（由子类实现）
+     *
+     * @param language 代码块语言标识（html / css / js）
+     * @return 文件名，不属于当前类型时返回 null
+     */
+    protected abstract String getFileName(String language);
+
     /**
      * 保存文件的具体实现（由子类实现）
      *
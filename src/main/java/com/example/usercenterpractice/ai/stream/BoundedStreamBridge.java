@@ -0,0 +1,338 @@
+package com.example.usercenterpractice.ai.stream;
+
+import com.example.usercenterpractice.ai.model.message.AiResponseMessage;
+import com.example.usercenterpractice.ai.model.message.StreamMessage;
+import com.example.usercenterpractice.ai.model.message.ToolExecutedMessage;
+import com.example.usercenterpractice.ai.model.message.ToolRequestMessage;
+import com.example.usercenterpractice.config.StreamBackpressureConfig.TextOverflowPolicy;
+import com.example.usercenterpractice.exception.BusinessException;
+import com.example.usercenterpractice.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界的 TokenStream 桥接缓冲区
+ * 仅在下游有请求量时向 FluxSink 发送消息，其余消息暂存在按字节计量的缓冲区中：
+ * <ul>
+ *     <li>暂存期间相邻的 AI 文本片段合并为一条消息，省去逐 token 消息对象的开销</li>
+ *     <li>缓冲区超出上限后，工具调用回调阻塞生产线程（即暂停工具执行），文本按溢出策略合并或同样暂停</li>
+ *     <li>暂停超过上限时长后中止生成</li>
+ * </ul>
+ * 生产方为模型流式线程，消费方为下游请求线程，队列由锁保护，发送由 wip 计数串行化。
+ */
+@Slf4j
+public class BoundedStreamBridge {
+
+    /**
+     * 单条消息的对象开销估算（消息对象、字符串对象头等）
+     */
+    static final int MESSAGE_OVERHEAD_BYTES = 64;
+
+    private final FluxSink<StreamMessage> sink;
+
+    private final long maxBufferedBytes;
+
+    private final TextOverflowPolicy textOverflowPolicy;
+
+    private final long pauseTimeoutNanos;
+
+    private final StreamBufferMetrics metrics;
+
+    private final Runnable onOverflow;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition drained = lock.newCondition();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private final ArrayDeque<StreamMessage> queue = new ArrayDeque<>();
+
+    /**
+     * 队列末尾尚未成为消息的合并文本
+     */
+    private final StringBuilder pendingText = new StringBuilder();
+
+    private volatile long bufferedBytes;
+
+    private volatile long peakBufferedBytes;
+
+    private boolean completed;
+
+    private boolean terminated;
+
+    /**
+     * @param sink               下游 FluxSink
+     * @param maxBufferedBytes   缓冲字节上限
+     * @param textOverflowPolicy 超限后文本片段的处理策略
+     * @param pauseTimeout       生产方最长暂停时长
+     * @param metrics            缓冲区指标，可为 null
+     * @param onOverflow         暂停超时中止时执行的操作（如取消上游），可为 null
+     */
+    public BoundedStreamBridge(FluxSink<StreamMessage> sink, long maxBufferedBytes, TextOverflowPolicy textOverflowPolicy,
+                               Duration pauseTimeout, StreamBufferMetrics metrics, Runnable onOverflow) {
+        this.sink = sink;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.textOverflowPolicy = textOverflowPolicy;
+        this.pauseTimeoutNanos = pauseTimeout.toNanos();
+        this.metrics = metrics;
+        this.onOverflow = onOverflow;
+        if (metrics != null) {
+            metrics.register(this);
+        }
+        sink.onRequest(n -> drain());
+        sink.onDispose(this::release);
+    }
+
+    /**
+     * 推送 AI 文本片段
+     */
+    public void nextText(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (terminated) {
+                return;
+            }
+            if (pendingText.isEmpty()) {
+                addBytes(MESSAGE_OVERHEAD_BYTES);
+            }
+            pendingText.append(text);
+            addBytes(2L * text.length());
+        } finally {
+            lock.unlock();
+        }
+        drain();
+        if (textOverflowPolicy == TextOverflowPolicy.PAUSE) {
+            awaitCapacity();
+        }
+    }
+
+    /**
+     * 推送工具调用相关消息，缓冲区超限时阻塞直至回落，从而暂停后续工具执行
+     */
+    public void next(StreamMessage message) {
+        lock.lock();
+        try {
+            if (terminated) {
+                return;
+            }
+            flushPendingText();
+            queue.offer(message);
+            addBytes(estimateBytes(message));
+        } finally {
+            lock.unlock();
+        }
+        drain();
+        awaitCapacity();
+    }
+
+    /**
+     * 生成完成，缓冲区发送完毕后结束下游
+     */
+    public void complete() {
+        lock.lock();
+        try {
+            completed = true;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * 生成失败，丢弃缓冲区并立即通知下游
+     */
+    public void error(Throwable error) {
+        if (markTerminated()) {
+            sink.error(error);
+        }
+    }
+
+    public long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    public long getPeakBufferedBytes() {
+        return peakBufferedBytes;
+    }
+
+    /**
+     * 估算消息占用的堆内存字节数（字符串按每字符 2 字节计）
+     */
+    static long estimateBytes(StreamMessage message) {
+        long chars = 0;
+        if (message instanceof AiResponseMessage aiResponseMessage) {
+            chars = length(aiResponseMessage.getData());
+        } else if (message instanceof ToolRequestMessage toolRequestMessage) {
+            chars = length(toolRequestMessage.getId()) + length(toolRequestMessage.getName())
+                    + length(toolRequestMessage.getArguments());
+        } else if (message instanceof ToolExecutedMessage toolExecutedMessage) {
+            chars = length(toolExecutedMessage.getId()) + length(toolExecutedMessage.getName())
+                    + length(toolExecutedMessage.getArguments()) + length(toolExecutedMessage.getResult());
+        }
+        return MESSAGE_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * 在下游有请求量时发送缓冲消息，多个线程同时调用时由当前发送线程代为处理
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (true) {
+                StreamMessage message = null;
+                boolean finished = false;
+                lock.lock();
+                try {
+                    if (terminated) {
+                        return;
+                    }
+                    if (queue.isEmpty() && pendingText.isEmpty()) {
+                        // 完成信号在缓冲区清空后才发送
+                        finished = completed;
+                        terminated = finished;
+                    } else if (sink.requestedFromDownstream() > 0) {
+                        message = poll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (finished) {
+                    sink.complete();
+                    return;
+                }
+                if (message == null) {
+                    break;
+                }
+                sink.next(message);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * 取出下一条消息，须持有锁
+     */
+    private StreamMessage poll() {
+        StreamMessage message = queue.poll();
+        if (message == null && !pendingText.isEmpty()) {
+            message = new AiResponseMessage(pendingText.toString());
+            pendingText.setLength(0);
+        }
+        if (message != null) {
+            addBytes(-estimateBytes(message));
+            drained.signalAll();
+        }
+        return message;
+    }
+
+    /**
+     * 将合并文本转为队列中的一条消息，保证与工具消息的先后顺序，须持有锁
+     */
+    private void flushPendingText() {
+        if (!pendingText.isEmpty()) {
+            queue.offer(new AiResponseMessage(pendingText.toString()));
+            pendingText.setLength(0);
+        }
+    }
+
+    /**
+     * 缓冲区超限时阻塞生产线程，超过最长暂停时长则中止生成
+     */
+    private void awaitCapacity() {
+        if (bufferedBytes <= maxBufferedBytes) {
+            return;
+        }
+        long start = System.nanoTime();
+        boolean overflow = false;
+        lock.lock();
+        try {
+            long remaining = pauseTimeoutNanos;
+            while (!terminated && bufferedBytes > maxBufferedBytes) {
+                if (remaining <= 0) {
+                    overflow = true;
+                    break;
+                }
+                remaining = drained.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        if (metrics != null) {
+            metrics.recordPause(Duration.ofNanos(System.nanoTime() - start));
+        }
+        if (overflow && markTerminated()) {
+            log.warn("下游消费过慢，缓冲区持续超限，中止生成, 缓冲字节数: {}", bufferedBytes);
+            if (metrics != null) {
+                metrics.recordOverflow();
+            }
+            if (onOverflow != null) {
+                onOverflow.run();
+            }
+            sink.error(new BusinessException(ErrorCode.SYSTEM_ERROR, "客户端接收过慢，生成已中止"));
+        }
+    }
+
+    private boolean markTerminated() {
+        lock.lock();
+        try {
+            if (terminated) {
+                return false;
+            }
+            terminated = true;
+            clear();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 下游取消或流结束时释放缓冲区并唤醒被暂停的生产线程
+     */
+    private void release() {
+        lock.lock();
+        try {
+            terminated = true;
+            clear();
+        } finally {
+            lock.unlock();
+        }
+        if (metrics != null) {
+            metrics.unregister(this);
+        }
+    }
+
+    private void clear() {
+        queue.clear();
+        pendingText.setLength(0);
+        bufferedBytes = 0;
+        drained.signalAll();
+    }
+
+    private void addBytes(long delta) {
+        long current = bufferedBytes + delta;
+        bufferedBytes = current;
+        if (current > peakBufferedBytes) {
+            peakBufferedBytes = current;
+        }
+    }
+}
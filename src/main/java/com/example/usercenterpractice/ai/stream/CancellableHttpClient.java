@@ -0,0 +1,101 @@
+package com.example.usercenterpractice.ai.stream;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 支持取消的 HTTP 客户端
+ * 流式请求发起时获取当前线程绑定的 {@link CancellationToken}，取消时关闭响应输入流以中断上游 SSE 连接，
+ * 并屏蔽取消之后的事件与关闭流引发的异常。
+ */
+@Slf4j
+public class CancellableHttpClient implements HttpClient {
+
+    private final HttpClient delegate;
+
+    public CancellableHttpClient(HttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) {
+        return delegate.execute(request);
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        CancellationToken token = CancellationToken.current();
+        if (token == null) {
+            delegate.execute(request, parser, listener);
+            return;
+        }
+        if (token.isCancelled()) {
+            log.info("生成已取消，跳过模型请求");
+            return;
+        }
+        delegate.execute(request, cancellableParser(parser, token), cancellableListener(listener, token));
+    }
+
+    private static ServerSentEventParser cancellableParser(ServerSentEventParser parser, CancellationToken token) {
+        return (inputStream, listener) -> {
+            Runnable closeStream = () -> closeQuietly(inputStream);
+            token.register(closeStream);
+            try {
+                parser.parse(inputStream, listener);
+            } finally {
+                token.unregister(closeStream);
+            }
+        };
+    }
+
+    private static ServerSentEventListener cancellableListener(ServerSentEventListener listener, CancellationToken token) {
+        return new ServerSentEventListener() {
+
+            @Override
+            public void onOpen(SuccessfulHttpResponse response) {
+                if (!token.isCancelled()) {
+                    listener.onOpen(response);
+                }
+            }
+
+            @Override
+            public void onEvent(ServerSentEvent event) {
+                if (!token.isCancelled()) {
+                    listener.onEvent(event);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                if (token.isCancelled()) {
+                    log.debug("生成已取消，忽略上游连接异常: {}", error.getMessage());
+                    return;
+                }
+                listener.onError(error);
+            }
+
+            @Override
+            public void onClose() {
+                if (!token.isCancelled()) {
+                    listener.onClose();
+                }
+            }
+        };
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.debug("关闭上游响应流失败: {}", e.getMessage());
+        }
+    }
+}
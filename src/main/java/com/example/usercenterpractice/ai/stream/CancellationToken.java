@@ -0,0 +1,101 @@
+package com.example.usercenterpractice.ai.stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 生成取消令牌
+ * 由 TokenStream 持有，取消时依次触发已注册的回调（如关闭上游 HTTP 响应流）。
+ * 发起模型调用时通过 {@link #runBound(Runnable)} 绑定到当前线程，供 HTTP 客户端在建立流式请求时获取。
+ */
+@Slf4j
+public class CancellationToken {
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private final List<Runnable> callbacks = new ArrayList<>();
+
+    private volatile boolean cancelled;
+
+    /**
+     * 获取当前线程绑定的取消令牌
+     *
+     * @return 取消令牌，未绑定时返回 null
+     */
+    public static CancellationToken current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在绑定当前令牌的情况下执行操作
+     *
+     * @param action 要执行的操作（通常是一次模型调用）
+     */
+    public void runBound(Runnable action) {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 取消并触发全部回调，重复调用无效
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (callbacks) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : toRun) {
+            try {
+                callback.run();
+            } catch (Exception e) {
+                log.warn("执行取消回调失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 注册取消回调，已取消时立即执行
+     *
+     * @param callback 回调
+     */
+    public void register(Runnable callback) {
+        synchronized (callbacks) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * 移除取消回调
+     *
+     * @param callback 回调
+     */
+    public void unregister(Runnable callback) {
+        synchronized (callbacks) {
+            callbacks.remove(callback);
+        }
+    }
+}
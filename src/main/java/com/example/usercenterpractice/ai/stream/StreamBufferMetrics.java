@@ -0,0 +1,67 @@
+package com.example.usercenterpractice.ai.stream;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 生成流缓冲区指标
+ * 会话 ID 作为标签会导致指标基数无限增长，因此按进行中的流汇总为总量与最大值，
+ * 并在每个流结束时记录其缓冲字节峰值分布
+ */
+@Component
+public class StreamBufferMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Set<BoundedStreamBridge> activeBridges = ConcurrentHashMap.newKeySet();
+
+    private final DistributionSummary peakBytesSummary;
+
+    private final Timer pauseTimer;
+
+    public StreamBufferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("code_gen.stream.buffered.bytes", activeBridges,
+                        bridges -> bridges.stream().mapToLong(BoundedStreamBridge::getBufferedBytes).sum())
+                .description("所有进行中的生成流缓冲字节数之和")
+                .tag("statistic", "total")
+                .register(meterRegistry);
+        Gauge.builder("code_gen.stream.buffered.bytes", activeBridges,
+                        bridges -> bridges.stream().mapToLong(BoundedStreamBridge::getBufferedBytes).max().orElse(0))
+                .description("单个生成流缓冲字节数的最大值")
+                .tag("statistic", "max")
+                .register(meterRegistry);
+        this.peakBytesSummary = DistributionSummary.builder("code_gen.stream.buffered.bytes.peak")
+                .description("单个生成流结束时的缓冲字节峰值")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.pauseTimer = Timer.builder("code_gen.stream.backpressure.paused")
+                .description("缓冲区超限导致生产方暂停的时长")
+                .register(meterRegistry);
+    }
+
+    void register(BoundedStreamBridge bridge) {
+        activeBridges.add(bridge);
+    }
+
+    void unregister(BoundedStreamBridge bridge) {
+        if (activeBridges.remove(bridge)) {
+            peakBytesSummary.record(bridge.getPeakBufferedBytes());
+        }
+    }
+
+    void recordPause(Duration duration) {
+        pauseTimer.record(duration);
+    }
+
+    void recordOverflow() {
+        meterRegistry.counter("code_gen.stream.backpressure.overflow").increment();
+    }
+}
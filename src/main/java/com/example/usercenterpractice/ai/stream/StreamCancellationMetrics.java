@@ -0,0 +1,70 @@
+package com.example.usercenterpractice.ai.stream;
+
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 生成取消相关指标
+ * 以各生成类型完整响应输出 token 数的指数移动平均作为预期值，取消时记录预期值与已输出片段数之差作为节省的 token 数（估算）
+ */
+@Component
+public class StreamCancellationMetrics {
+
+    /**
+     * 指数移动平均的平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<CodeGenTypeEnum, Double> expectedOutputTokens = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次完整生成的输出 token 数
+     *
+     * @param codeGenType 代码生成类型
+     * @param response    完整响应
+     */
+    public void recordCompleted(CodeGenTypeEnum codeGenType, ChatResponse response) {
+        TokenUsage tokenUsage = response.metadata() != null ? response.metadata().tokenUsage() : null;
+        if (tokenUsage == null || tokenUsage.outputTokenCount() == null) {
+            return;
+        }
+        double outputTokens = tokenUsage.outputTokenCount();
+        expectedOutputTokens.merge(codeGenType, outputTokens,
+                (previous, current) -> previous + EWMA_ALPHA * (current - previous));
+    }
+
+    /**
+     * 记录一次取消
+     *
+     * @param codeGenType    代码生成类型
+     * @param streamedChunks 取消前已输出的片段数（约等于 token 数）
+     */
+    public void recordCancelled(CodeGenTypeEnum codeGenType, long streamedChunks) {
+        String type = codeGenType.getValue();
+        meterRegistry.counter("code_gen.stream.cancelled", "type", type).increment();
+        DistributionSummary.builder("code_gen.cancel.tokens.streamed")
+                .description("取消前已输出的 token 数（按片段数估算）")
+                .tag("type", type)
+                .register(meterRegistry)
+                .record(streamedChunks);
+        Double expected = expectedOutputTokens.get(codeGenType);
+        if (expected != null) {
+            DistributionSummary.builder("code_gen.cancel.tokens.saved")
+                    .description("取消节省的输出 token 数（估算）")
+                    .tag("type", type)
+                    .register(meterRegistry)
+                    .record(Math.max(0, expected - streamedChunks));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.usercenterpractice.ai.stream;
+
+import com.example.usercenterpractice.config.ChatMemoryBudgetConfig;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 生成延迟与提示词大小指标
+ * 按生成类型与记忆模式（token_budget 预算压缩 / window 仅条数窗口）打标签，用于对比开启预算压缩前后的首 token 延迟与输入 token 数
+ */
+@Component
+public class StreamLatencyMetrics {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ChatMemoryBudgetConfig chatMemoryBudgetConfig;
+
+    /**
+     * 记录首 token 延迟（从发起生成到收到第一个文本片段）
+     *
+     * @param codeGenType 代码生成类型
+     * @param latency     首 token 延迟
+     */
+    public void recordTimeToFirstToken(CodeGenTypeEnum codeGenType, Duration latency) {
+        Timer.builder("code_gen.stream.ttft")
+                .description("首 token 延迟")
+                .tag("type", codeGenType.getValue())
+                .tag("memory", memoryMode())
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(latency);
+    }
+
+    /**
+     * 记录模型返回的输入 token 数
+     *
+     * @param codeGenType 代码生成类型
+     * @param response    完整响应
+     */
+    public void recordInputTokens(CodeGenTypeEnum codeGenType, ChatResponse response) {
+        TokenUsage tokenUsage = response.metadata() != null ? response.metadata().tokenUsage() : null;
+        if (tokenUsage == null || tokenUsage.inputTokenCount() == null) {
+            return;
+        }
+        DistributionSummary.builder("code_gen.prompt.input.tokens")
+                .description("模型返回的输入 token 数（工具调用循环中为最后一次请求）")
+                .tag("type", codeGenType.getValue())
+                .tag("memory", memoryMode())
+                .register(meterRegistry)
+                .record(tokenUsage.inputTokenCount());
+    }
+
+    private String memoryMode() {
+        return Boolean.TRUE.equals(chatMemoryBudgetConfig.getEnabled()) ? "token_budget" : "window";
+    }
+}
@@ -31,6 +31,25 @@ public abstract class BaseTool {
         return String.format("\n\n[选择工具] %s\n\n", getDisplayName());
     }
 
+    /**
+     * 是否只读，同一轮中只读调用之间可以任意并发
+     *
+     * @return 默认 false
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * 获取工具调用访问的相对路径，用于判断同一轮中的工具调用能否并发执行
+     *
+     * @param arguments 工具执行参数
+     * @return 相对路径（空字符串表示项目根目录）；返回 null 表示无法确定，按与其他调用都冲突处理
+     */
+    public String getAccessedPath(JSONObject arguments) {
+        return arguments.getStr("relativeFilePath");
+    }
+
     /**
      * 生成工具执行结果格式（保存到数据库）
      *
@@ -60,6 +60,11 @@ public class FileReadTool extends BaseTool {
             return "读取文件";
         }
 
+        @Override
+        public boolean isReadOnly() {
+            return true;
+        }
+
         @Override
         public String generateToolExecutedResult(JSONObject arguments) {
             String relativeFilePath = arguments.getStr("relativeFilePath");
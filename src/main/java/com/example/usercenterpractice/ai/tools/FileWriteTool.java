@@ -33,13 +33,7 @@ public class FileWriteTool extends BaseTool {
             @ToolMemoryId Long appId
     ) {
         try {
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                // 相对路径处理，创建基于 appId 的项目目录
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
+            Path path = resolvePath(relativeFilePath, appId);
             // 创建父目录（如果不存在）
             Path parentDir = path.getParent();
             if (parentDir != null) {
@@ -59,6 +53,24 @@ public class FileWriteTool extends BaseTool {
         }
     }
 
+    /**
+     * 解析写入目标路径，相对路径基于 appId 的项目目录
+     *
+     * @param relativeFilePath 文件的相对路径
+     * @param appId            应用 ID
+     * @return 目标路径
+     */
+    static Path resolvePath(String relativeFilePath, Object appId) {
+        Path path = Paths.get(relativeFilePath);
+        if (!path.isAbsolute()) {
+            // 相对路径处理，创建基于 appId 的项目目录
+            String projectDirName = "vue_project_" + appId;
+            Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
+            path = projectRoot.resolve(relativeFilePath);
+        }
+        return path;
+    }
+
         @Override
         public String getToolName() {
             return "writeFile";
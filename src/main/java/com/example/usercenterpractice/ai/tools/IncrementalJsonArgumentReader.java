@@ -0,0 +1,279 @@
+package com.example.usercenterpractice.ai.tools;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 增量 JSON 工具参数读取器
+ * 工具调用参数按片段流式到达，读取器逐字符解析顶层 JSON 对象：指定字段的字符串值边解码边写入输出（不在内存中拼接），
+ * 其余字段的字符串值收集为原文，非字符串值只跳过不收集。转义序列（含 \\uXXXX）可以跨片段。
+ * 参数不是合法的 JSON 对象时标记为格式错误，之后的片段全部忽略。非线程安全。
+ */
+public class IncrementalJsonArgumentReader {
+
+    private enum State {
+        BEFORE_OBJECT, BEFORE_KEY, IN_KEY, AFTER_KEY, BEFORE_VALUE, IN_STRING_VALUE, IN_OTHER_VALUE, AFTER_VALUE, DONE, MALFORMED
+    }
+
+    private final String streamedField;
+
+    private final Writer streamedOutput;
+
+    private final Map<String, String> fields = new HashMap<>();
+
+    private final StringBuilder key = new StringBuilder();
+
+    private final StringBuilder value = new StringBuilder();
+
+    /**
+     * 本片段中待写入输出的已解码字符，每个片段只写一次
+     */
+    private final StringBuilder pendingOutput = new StringBuilder();
+
+    private State state = State.BEFORE_OBJECT;
+
+    private boolean escaping;
+
+    /**
+     * 正在读取的 \\uXXXX 剩余十六进制位数，0 表示不在 unicode 转义中
+     */
+    private int unicodeDigits;
+
+    private int unicodeValue;
+
+    /**
+     * 非字符串值的嵌套深度与是否处于其中的字符串内
+     */
+    private int otherDepth;
+
+    private boolean otherInString;
+
+    private boolean streamedFieldSeen;
+
+    /**
+     * 当前字符串值是否为流式字段
+     */
+    private boolean streamingValue;
+
+    private long consumedChars;
+
+    private long streamedChars;
+
+    /**
+     * @param streamedField  流式输出的字段名
+     * @param streamedOutput 该字段解码后的内容写入的目标
+     */
+    public IncrementalJsonArgumentReader(String streamedField, Writer streamedOutput) {
+        this.streamedField = streamedField;
+        this.streamedOutput = streamedOutput;
+    }
+
+    /**
+     * 读取一个参数片段
+     *
+     * @param chunk 参数片段
+     * @throws IOException 写入输出失败
+     */
+    public void feed(String chunk) throws IOException {
+        consumedChars += chunk.length();
+        for (int i = 0, length = chunk.length(); i < length && state != State.MALFORMED; i++) {
+            accept(chunk.charAt(i));
+        }
+        if (!pendingOutput.isEmpty()) {
+            streamedOutput.append(pendingOutput);
+            streamedChars += pendingOutput.length();
+            pendingOutput.setLength(0);
+        }
+    }
+
+    /**
+     * 顶层对象是否已读取完毕
+     */
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    public boolean isMalformed() {
+        return state == State.MALFORMED;
+    }
+
+    /**
+     * 流式字段是否出现过（值可以为空字符串）
+     */
+    public boolean isStreamedFieldSeen() {
+        return streamedFieldSeen;
+    }
+
+    /**
+     * 获取非流式字段的字符串值
+     *
+     * @return 字段值，字段不存在或不是字符串时返回 null
+     */
+    public String getField(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * 已读取的参数原文字符数，用于与完整参数比对
+     */
+    public long getConsumedChars() {
+        return consumedChars;
+    }
+
+    /**
+     * 已写入输出的解码字符数
+     */
+    public long getStreamedChars() {
+        return streamedChars;
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case BEFORE_OBJECT -> {
+                if (c == '{') {
+                    state = State.BEFORE_KEY;
+                } else if (!isWhitespace(c)) {
+                    state = State.MALFORMED;
+                }
+            }
+            case BEFORE_KEY -> {
+                if (c == '"') {
+                    key.setLength(0);
+                    state = State.IN_KEY;
+                } else if (c == '}' && fields.isEmpty() && !streamedFieldSeen) {
+                    state = State.DONE;
+                } else if (!isWhitespace(c)) {
+                    state = State.MALFORMED;
+                }
+            }
+            case IN_KEY -> readStringChar(c, key, State.AFTER_KEY);
+            case AFTER_KEY -> {
+                if (c == ':') {
+                    state = State.BEFORE_VALUE;
+                } else if (!isWhitespace(c)) {
+                    state = State.MALFORMED;
+                }
+            }
+            case BEFORE_VALUE -> {
+                if (c == '"') {
+                    value.setLength(0);
+                    streamingValue = streamedField.contentEquals(key);
+                    streamedFieldSeen |= streamingValue;
+                    state = State.IN_STRING_VALUE;
+                } else if (!isWhitespace(c)) {
+                    otherDepth = 0;
+                    otherInString = false;
+                    state = State.IN_OTHER_VALUE;
+                    acceptOtherValue(c);
+                }
+            }
+            case IN_STRING_VALUE -> {
+                readStringChar(c, streamingValue ? pendingOutput : value, State.AFTER_VALUE);
+                if (state == State.AFTER_VALUE && !streamingValue) {
+                    fields.put(key.toString(), value.toString());
+                }
+            }
+            case IN_OTHER_VALUE -> acceptOtherValue(c);
+            case AFTER_VALUE -> afterValue(c);
+            case DONE -> {
+                if (!isWhitespace(c)) {
+                    state = State.MALFORMED;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 读取字符串中的一个字符，遇到未转义的引号时切换到 next 状态
+     */
+    private void readStringChar(char c, StringBuilder target, State next) {
+        if (unicodeDigits > 0) {
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                state = State.MALFORMED;
+                return;
+            }
+            unicodeValue = (unicodeValue << 4) | digit;
+            if (--unicodeDigits == 0) {
+                target.append((char) unicodeValue);
+            }
+            return;
+        }
+        if (escaping) {
+            escaping = false;
+            switch (c) {
+                case '"', '\\', '/' -> target.append(c);
+                case 'b' -> target.append('\b');
+                case 'f' -> target.append('\f');
+                case 'n' -> target.append('\n');
+                case 'r' -> target.append('\r');
+                case 't' -> target.append('\t');
+                case 'u' -> {
+                    unicodeDigits = 4;
+                    unicodeValue = 0;
+                }
+                default -> state = State.MALFORMED;
+            }
+            return;
+        }
+        if (c == '\\') {
+            escaping = true;
+        } else if (c == '"') {
+            state = next;
+        } else {
+            target.append(c);
+        }
+    }
+
+    private void acceptOtherValue(char c) {
+        if (otherInString) {
+            if (escaping) {
+                escaping = false;
+            } else if (c == '\\') {
+                escaping = true;
+            } else if (c == '"') {
+                otherInString = false;
+            }
+            return;
+        }
+        switch (c) {
+            case '"' -> otherInString = true;
+            case '{', '[' -> otherDepth++;
+            case '}', ']' -> {
+                if (otherDepth == 0) {
+                    // 标量值之后直接结束对象
+                    afterValue(c);
+                } else {
+                    otherDepth--;
+                }
+            }
+            case ',' -> {
+                if (otherDepth == 0) {
+                    afterValue(c);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void afterValue(char c) {
+        if (c == ',') {
+            state = State.BEFORE_KEY;
+        } else if (c == '}') {
+            state = State.DONE;
+        } else if (isWhitespace(c)) {
+            state = State.AFTER_VALUE;
+        } else {
+            state = State.MALFORMED;
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
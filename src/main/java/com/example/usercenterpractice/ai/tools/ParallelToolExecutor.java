@@ -0,0 +1,181 @@
+package com.example.usercenterpractice.ai.tools;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.example.usercenterpractice.config.ToolExecutionConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * 同一轮工具调用的并发执行器
+ * 按工具声明的访问路径与是否只读建立依赖：访问同一路径（或互为父子目录）且至少一方会写入的调用按原顺序执行，
+ * 无法确定访问路径的调用与前后所有调用都保持顺序，其余调用在虚拟线程上并发执行，并发数受信号量限制。
+ * 调用方按请求顺序等待结果，写入记忆的顺序与模型返回的顺序一致。
+ * AI 服务的流式响应处理器不由 Spring 管理，通过 {@link #current()} 获取本执行器，未启用时返回 null。
+ */
+@Slf4j
+@Component
+public class ParallelToolExecutor {
+
+    private static volatile ParallelToolExecutor current;
+
+    @Resource
+    private ToolManager toolManager;
+
+    @Resource
+    private ToolExecutionConfig toolExecutionConfig;
+
+    private ExecutorService executor;
+
+    private Semaphore permits;
+
+    /**
+     * 获取已启用的执行器
+     *
+     * @return 执行器，未启用时返回 null
+     */
+    public static ParallelToolExecutor current() {
+        return current;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!Boolean.TRUE.equals(toolExecutionConfig.getParallelEnabled())) {
+            return;
+        }
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tool-exec-", 0).factory());
+        permits = new Semaphore(toolExecutionConfig.getMaxConcurrency());
+        current = this;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        current = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交一轮的全部工具调用
+     *
+     * @param requests  工具调用请求
+     * @param execution 执行单个工具调用并返回结果
+     * @param cancelled 是否已取消，取消后尚未开始的调用不再执行（结果为 null）
+     * @return 与请求一一对应的执行结果
+     */
+    public List<CompletableFuture<String>> submitAll(List<ToolExecutionRequest> requests,
+                                                     Function<ToolExecutionRequest, String> execution,
+                                                     BooleanSupplier cancelled) {
+        List<ToolAccess> accesses = new ArrayList<>(requests.size());
+        for (ToolExecutionRequest request : requests) {
+            accesses.add(resolveAccess(request));
+        }
+        List<CompletableFuture<String>> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            List<CompletableFuture<String>> dependencies = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                if (accesses.get(j).conflictsWith(accesses.get(i))) {
+                    dependencies.add(results.get(j));
+                }
+            }
+            ToolExecutionRequest request = requests.get(i);
+            results.add(CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                    // 前序调用失败不影响后续调用执行，失败由调用方按顺序处理
+                    .exceptionally(e -> null)
+                    .thenApplyAsync(ignored -> run(request, execution, cancelled), executor));
+        }
+        return results;
+    }
+
+    /**
+     * 等待已提交的调用全部结束，失败的调用被忽略
+     * 一轮提前结束（取消或某个调用失败）时调用，保证正在执行的写入在本轮结束前完成，不会在之后落盘
+     *
+     * @param results {@link #submitAll} 返回的执行结果
+     */
+    public static void awaitAll(List<CompletableFuture<String>> results) {
+        for (CompletableFuture<String> result : results) {
+            try {
+                result.join();
+            } catch (CompletionException | CancellationException e) {
+                // 失败已由调用方按顺序处理，这里只等待结束
+            }
+        }
+    }
+
+    private String run(ToolExecutionRequest request, Function<ToolExecutionRequest, String> execution,
+                       BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            return null;
+        }
+        permits.acquireUninterruptibly();
+        try {
+            return execution.apply(request);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private ToolAccess resolveAccess(ToolExecutionRequest request) {
+        BaseTool tool = toolManager.getTool(request.name());
+        if (tool == null) {
+            return ToolAccess.EXCLUSIVE;
+        }
+        try {
+            JSONObject arguments = JSONUtil.parseObj(request.arguments());
+            return ToolAccess.of(tool.getAccessedPath(arguments), tool.isReadOnly());
+        } catch (Exception e) {
+            log.debug("工具参数解析失败，按独占执行: {}", request.name());
+            return ToolAccess.EXCLUSIVE;
+        }
+    }
+
+    /**
+     * 工具调用访问的路径
+     *
+     * @param path     规范化后的相对路径（空字符串为项目根目录），null 表示独占
+     * @param readOnly 是否只读
+     */
+    record ToolAccess(String path, boolean readOnly) {
+
+        static final ToolAccess EXCLUSIVE = new ToolAccess(null, false);
+
+        static ToolAccess of(String path, boolean readOnly) {
+            return path == null ? EXCLUSIVE : new ToolAccess(normalize(path), readOnly);
+        }
+
+        boolean conflictsWith(ToolAccess other) {
+            if (path == null || other.path == null) {
+                return true;
+            }
+            if (readOnly && other.readOnly) {
+                return false;
+            }
+            return path.isEmpty() || other.path.isEmpty() || path.equals(other.path)
+                    || path.startsWith(other.path + "/") || other.path.startsWith(path + "/");
+        }
+
+        private static String normalize(String path) {
+            String normalized = Paths.get(path.trim()).normalize().toString().replace('\\', '/');
+            return StrUtil.removeSuffix(normalized, "/");
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.usercenterpractice.ai.tools;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 一次 writeFile 调用的流式写入会话
+ * 参数片段到达时写入临时文件，调用执行时提交（原子移动到目标路径），取消或无法使用时丢弃。
+ * 片段在模型回调线程上到达，提交可能在工具执行线程上进行，方法均加锁。
+ */
+@Slf4j
+public class StreamingFileWrite {
+
+    private static final String CONTENT_FIELD = "content";
+
+    private static final String PATH_FIELD = "relativeFilePath";
+
+    private final StreamingFileWriter streamingFileWriter;
+
+    private final Path tempDir;
+
+    private final Object appId;
+
+    private Path tempFile;
+
+    private Writer output;
+
+    private IncrementalJsonArgumentReader reader;
+
+    private boolean failed;
+
+    private boolean finished;
+
+    StreamingFileWrite(StreamingFileWriter streamingFileWriter, Path tempDir, Object appId) {
+        this.streamingFileWriter = streamingFileWriter;
+        this.tempDir = tempDir;
+        this.appId = appId;
+    }
+
+    /**
+     * 写入一个参数片段，失败时丢弃临时文件，执行时回退为普通执行
+     *
+     * @param partialArguments 参数片段
+     */
+    public synchronized void append(String partialArguments) {
+        if (failed || finished) {
+            return;
+        }
+        try {
+            if (reader == null) {
+                tempFile = Files.createTempFile(tempDir, "write-", ".tmp");
+                output = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8);
+                reader = new IncrementalJsonArgumentReader(CONTENT_FIELD, output);
+            }
+            reader.feed(partialArguments);
+            if (reader.isMalformed()) {
+                log.debug("writeFile 参数格式错误，回退为普通执行, appId: {}", appId);
+                fail();
+            }
+        } catch (IOException e) {
+            log.warn("流式写入临时文件失败，回退为普通执行, appId: {}, 错误: {}", appId, e.getMessage());
+            fail();
+        }
+    }
+
+    /**
+     * 提交流式写入：校验参数已完整读取后将临时文件原子移动到目标路径
+     *
+     * @param request 完整的工具调用请求
+     * @return 工具执行结果；无法使用流式结果时返回 null，由调用方按普通方式执行
+     */
+    public synchronized String commit(ToolExecutionRequest request) {
+        if (finished) {
+            return null;
+        }
+        String relativeFilePath = reader == null ? null : reader.getField(PATH_FIELD);
+        if (failed || relativeFilePath == null || !reader.isComplete() || !reader.isStreamedFieldSeen()
+                || reader.getConsumedChars() != request.arguments().length()) {
+            abort();
+            streamingFileWriter.recordResult("fallback");
+            return null;
+        }
+        finished = true;
+        try {
+            output.close();
+            Path path = FileWriteTool.resolvePath(relativeFilePath, appId);
+            Path parentDir = path.getParent();
+            if (parentDir != null) {
+                Files.createDirectories(parentDir);
+            }
+            move(tempFile, path);
+            streamingFileWriter.recordResult("committed");
+            log.info("成功写入文件（流式）: {}, 字符数: {}", path.toAbsolutePath(), reader.getStreamedChars());
+            return "文件写入成功: " + relativeFilePath;
+        } catch (IOException e) {
+            deleteTempFile();
+            String errorMessage = "文件写入失败: " + relativeFilePath + ", 错误: " + e.getMessage();
+            log.error(errorMessage, e);
+            return errorMessage;
+        }
+    }
+
+    /**
+     * 丢弃流式写入（取消、出错或调用未被执行），重复调用无效
+     */
+    public synchronized void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        closeOutput();
+        deleteTempFile();
+        if (!failed) {
+            streamingFileWriter.recordResult("aborted");
+        }
+    }
+
+    private void fail() {
+        failed = true;
+        closeOutput();
+        deleteTempFile();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void closeOutput() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.debug("关闭流式写入临时文件失败: {}", tempFile);
+        }
+    }
+
+    private void deleteTempFile() {
+        if (tempFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.debug("删除流式写入临时文件失败: {}", tempFile);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.usercenterpractice.ai.tools;
+
+import com.example.usercenterpractice.config.ToolExecutionConfig;
+import com.example.usercenterpractice.constant.AppConstant;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * 文件写入工具的流式执行器
+ * 模型流式输出 writeFile 的参数时，content 的值边到达边解码写入临时文件；调用完成、轮到执行时校验参数已完整读取，
+ * 再将临时文件原子移动到目标路径，不再解析完整参数并整体写入。参数格式错误、与完整参数不一致或写入失败时回退为普通执行。
+ * 临时文件位于输出根目录下的独立目录，与项目目录在同一文件系统，移动为原子操作；取消或出错时删除。
+ * AI 服务的流式响应处理器不由 Spring 管理，通过 {@link #current()} 获取本执行器，未启用时返回 null。
+ */
+@Slf4j
+@Component
+public class StreamingFileWriter {
+
+    /**
+     * 临时文件目录名（位于输出根目录下）
+     */
+    private static final String TEMP_DIR_NAME = ".streaming_writes";
+
+    /**
+     * 启动时清理早于该时长的残留临时文件
+     */
+    private static final Duration STALE_TEMP_FILE_AGE = Duration.ofHours(1);
+
+    private static volatile StreamingFileWriter current;
+
+    @Resource
+    private ToolExecutionConfig toolExecutionConfig;
+
+    @Resource
+    private FileWriteTool fileWriteTool;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Path tempDir;
+
+    /**
+     * 获取已启用的执行器
+     *
+     * @return 执行器，未启用时返回 null
+     */
+    public static StreamingFileWriter current() {
+        return current;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!Boolean.TRUE.equals(toolExecutionConfig.getStreamingWriteEnabled())) {
+            return;
+        }
+        try {
+            tempDir = Files.createDirectories(Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, TEMP_DIR_NAME));
+            purgeStaleTempFiles();
+        } catch (IOException e) {
+            log.warn("流式写入临时目录创建失败，不启用流式写入: {}", e.getMessage());
+            return;
+        }
+        current = this;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        current = null;
+    }
+
+    /**
+     * 是否支持流式执行该工具
+     *
+     * @param toolName 工具名称
+     */
+    public boolean supports(String toolName) {
+        return fileWriteTool.getToolName().equals(toolName);
+    }
+
+    /**
+     * 为一次工具调用开启流式写入
+     *
+     * @param appId 应用 ID（对话记忆 ID）
+     * @return 流式写入会话
+     */
+    public StreamingFileWrite open(Object appId) {
+        return new StreamingFileWrite(this, tempDir, appId);
+    }
+
+    /**
+     * 记录流式写入的结果：committed 已提交 / fallback 回退为普通执行 / aborted 已丢弃
+     */
+    void recordResult(String result) {
+        meterRegistry.counter("code_gen.tool.streaming_write", "result", result).increment();
+    }
+
+    private void purgeStaleTempFiles() throws IOException {
+        Instant threshold = Instant.now().minus(STALE_TEMP_FILE_AGE);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            files.forEach(file -> {
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(threshold)) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    log.debug("残留临时文件清理失败: {}", file);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.usercenterpractice.config;
+
+import com.example.usercenterpractice.ai.http.PooledAiHttpClient;
+import com.example.usercenterpractice.ai.http.SharedHttpClientBuilder;
+import com.example.usercenterpractice.ai.stream.CancellableHttpClientBuilder;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * 模型 HTTP 传输配置
+ * 所有 OpenAI 兼容模型（含多例 Bean）共享同一个 HTTP 客户端，连接与 TLS 会话在各模型、各应用间复用。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.ai-http-client")
+@Data
+public class AiHttpClientConfig {
+
+    /**
+     * 建立连接超时（秒）
+     */
+    private Integer connectTimeoutSeconds = 10;
+
+    /**
+     * 等待响应头的超时，以及流式响应的空闲超时（秒）
+     */
+    private Integer readTimeoutSeconds = 120;
+
+    /**
+     * 是否尝试 HTTP/2（经 ALPN 协商，端点不支持时回退到 HTTP/1.1）
+     */
+    private Boolean http2Enabled = true;
+
+    /**
+     * 空闲连接保活时长（秒），对应 JDK 属性 jdk.httpclient.keepalive.timeout
+     */
+    private Integer keepAliveSeconds = 300;
+
+    /**
+     * 连接池保留的最大空闲连接数，0 表示不限制，对应 JDK 属性 jdk.httpclient.connectionPoolSize
+     */
+    private Integer maxIdleConnections = 0;
+
+    @Bean(destroyMethod = "close")
+    public PooledAiHttpClient pooledAiHttpClient(MeterRegistry meterRegistry) {
+        // JDK 客户端的连接池参数只能通过系统属性设置，且需在首个客户端创建前设置；已显式指定时以启动参数为准
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveSeconds));
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(maxIdleConnections));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(Boolean.TRUE.equals(http2Enabled) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-http-", 0).factory()))
+                .build();
+        return new PooledAiHttpClient(httpClient, Duration.ofSeconds(readTimeoutSeconds), meterRegistry);
+    }
+
+    /**
+     * 各模型 Bean 使用的 HttpClientBuilder：共享客户端 + 客户端断开时中断上游流式响应
+     */
+    @Bean
+    public HttpClientBuilder aiHttpClientBuilder(PooledAiHttpClient pooledAiHttpClient) {
+        return new CancellableHttpClientBuilder(new SharedHttpClientBuilder(pooledAiHttpClient,
+                Duration.ofSeconds(connectTimeoutSeconds), Duration.ofSeconds(readTimeoutSeconds)));
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.usercenterpractice.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * 阻塞调用调度器配置
+ * 生成链路中的数据库、Redis 等阻塞调用统一在该调度器上执行，不占用请求线程与模型流式线程。
+ * 开启虚拟线程（spring.threads.virtual.enabled）时每个任务使用一个虚拟线程，否则使用有界弹性线程池。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.blocking-scheduler")
+@Data
+public class BlockingSchedulerConfig {
+
+    /**
+     * 有界弹性线程池的线程数上限
+     */
+    private Integer threadCap = 64;
+
+    /**
+     * 有界弹性线程池的排队任务上限
+     */
+    private Integer queuedTaskCap = 100000;
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "code-gen-blocking");
+        }
+        return Schedulers.newBoundedElastic(threadCap, queuedTaskCap, "code-gen-blocking");
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.usercenterpractice.config;
+
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 对话记忆 token 预算配置
+ * 发送给模型的记忆超出预算时，先省略早先的工具输出，仍超出则将此前轮次压缩为摘要
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.chat-memory-budget")
+@Data
+public class ChatMemoryBudgetConfig {
+
+    /**
+     * 是否开启预算压缩，关闭时仅统计提示词大小
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 存储中保留的最大消息数（硬上限）
+     */
+    private Integer maxMessages = 20;
+
+    /**
+     * 默认 token 预算
+     */
+    private Integer maxTokens = 16000;
+
+    /**
+     * 按代码生成类型覆盖 token 预算，key 为 CodeGenTypeEnum 的 value（如 html、multi_file、vue_project）
+     */
+    private Map<String, Integer> types = new HashMap<>();
+
+    /**
+     * 当前轮次中保留原文的最近工具输出数量
+     */
+    private Integer keepRecentToolResults = 4;
+
+    /**
+     * 摘要缓存条目数
+     */
+    private Long summaryCacheSize = 1000L;
+
+    /**
+     * 对话记忆缓存的最大总权重，每个应用的记忆权重为 1 + 加载的历史消息数
+     */
+    private Long cacheMaxWeight = 20000L;
+
+    /**
+     * 对话记忆缓存条目空闲过期时长（分钟）
+     */
+    private Long cacheExpireAfterAccessMinutes = 10L;
+
+    /**
+     * 获取指定类型的 token 预算
+     */
+    public int getMaxTokens(CodeGenTypeEnum codeGenType) {
+        Integer typeMaxTokens = types.get(codeGenType.getValue());
+        return typeMaxTokens != null ? typeMaxTokens : maxTokens;
+    }
+}
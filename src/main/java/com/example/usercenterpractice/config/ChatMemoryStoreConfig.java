@@ -0,0 +1,97 @@
+package com.example.usercenterpractice.config;
+
+import com.example.usercenterpractice.ai.memory.RedisListChatMemoryStore;
+import com.example.usercenterpractice.ai.memory.TieredChatMemoryStore;
+import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * 对话记忆存储配置
+ * Redis 中默认按 List 逐条存储消息（追加写），可切换回整体 JSON 存储；
+ * 开启近端缓存时在 Redis 存储之上叠加本地 Caffeine 缓存，并订阅其他节点的失效通知
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.chat-memory")
+@Data
+public class ChatMemoryStoreConfig {
+
+    /**
+     * Redis 存储编码：list 每条消息一个列表元素（追加写）/ blob 整个列表一个 JSON（社区版 RedisChatMemoryStore）
+     */
+    private String encoding = "list";
+
+    /**
+     * 是否开启本地近端缓存
+     */
+    private Boolean nearCacheEnabled = true;
+
+    /**
+     * 写入策略：write_through 直写 / write_behind 延迟合并写
+     */
+    private TieredChatMemoryStore.WritePolicy writePolicy = TieredChatMemoryStore.WritePolicy.WRITE_THROUGH;
+
+    /**
+     * 近端缓存最大条目数
+     */
+    private Long maxEntries = 10000L;
+
+    /**
+     * 近端缓存条目空闲过期时长（秒）
+     */
+    private Long expireAfterAccessSeconds = 600L;
+
+    /**
+     * 延迟写合并窗口（毫秒）
+     */
+    private Long writeBehindDelayMillis = 500L;
+
+    @Bean
+    @Primary
+    public ChatMemoryStore chatMemoryStore(RedisChatMemoryStore redisChatMemoryStore,
+                                           RedisChatMemoryStoreConfig redisChatMemoryStoreConfig,
+                                           StringRedisTemplate stringRedisTemplate,
+                                           MeterRegistry meterRegistry) {
+        ChatMemoryStore remoteStore = "blob".equalsIgnoreCase(encoding)
+                ? redisChatMemoryStore
+                : new RedisListChatMemoryStore(stringRedisTemplate,
+                Duration.ofSeconds(redisChatMemoryStoreConfig.getTtl()), maxEntries, meterRegistry);
+        if (!Boolean.TRUE.equals(nearCacheEnabled)) {
+            return remoteStore;
+        }
+        return new TieredChatMemoryStore(remoteStore, writePolicy, maxEntries,
+                Duration.ofSeconds(expireAfterAccessSeconds), Duration.ofMillis(writeBehindDelayMillis),
+                stringRedisTemplate, meterRegistry);
+    }
+
+    /**
+     * 失效通知只在开启近端缓存（两级存储）时订阅
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "code-gen.chat-memory", name = "near-cache-enabled", havingValue = "true",
+            matchIfMissing = true)
+    public RedisMessageListenerContainer chatMemoryInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                                 ChatMemoryStore chatMemoryStore) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        if (chatMemoryStore instanceof TieredChatMemoryStore tieredChatMemoryStore) {
+            container.addMessageListener((message, pattern) ->
+                            tieredChatMemoryStore.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(TieredChatMemoryStore.INVALIDATION_CHANNEL));
+        }
+        return container;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.usercenterpractice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 代码生成类型路由配置
+ * 路由顺序：规范化需求描述的结果缓存 -> 本地关键词分类器（置信度足够时采用）-> 路由模型
+ * 开启异步路由时，创建应用先以待定类型入库，路由在有界线程池中后台执行，生成代码时等待路由结果
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.routing")
+@Data
+public class CodeGenRoutingConfig {
+
+    /**
+     * 是否启用本地分类器
+     */
+    private Boolean classifierEnabled = true;
+
+    /**
+     * 本地分类结果的最低置信度（最高分占总分比例）
+     */
+    private Double confidenceThreshold = 0.7;
+
+    /**
+     * 本地分类结果的最低得分，避免仅命中一个弱关键词就直接采用
+     */
+    private Double minScore = 2.0;
+
+    /**
+     * 路由结果缓存条目数
+     */
+    private Long cacheMaxSize = 10000L;
+
+    /**
+     * 路由结果缓存过期时长（分钟）
+     */
+    private Long cacheExpireMinutes = 1440L;
+
+    /**
+     * 是否在后台异步路由（创建应用接口不再等待路由模型）
+     */
+    private Boolean asyncEnabled = true;
+
+    /**
+     * 后台路由线程数
+     */
+    private Integer asyncThreads = 8;
+
+    /**
+     * 后台路由排队任务上限，超出时在创建应用的请求线程中同步路由
+     */
+    private Integer asyncQueueCapacity = 500;
+
+    /**
+     * 生成代码时等待路由结果的超时时长（秒）
+     */
+    private Long awaitTimeoutSeconds = 60L;
+}
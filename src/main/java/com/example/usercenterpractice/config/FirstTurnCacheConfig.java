@@ -0,0 +1,61 @@
+package com.example.usercenterpractice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 首轮生成结果缓存配置
+ * 应用首轮对话（无历史记忆）的 HTML、多文件生成结果按规范化需求描述的 MinHash 签名缓存，
+ * 同一用户近似重复的需求直接回放缓存的生成结果（缓存按用户隔离，不会回放给其他用户）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.first-turn-cache")
+@Data
+public class FirstTurnCacheConfig {
+
+    /**
+     * 是否开启
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 命中所需的最低相似度（估计的 Jaccard 相似度，1 为完全相同）
+     */
+    private Double similarityThreshold = 0.85;
+
+    /**
+     * 字符 n-gram 长度
+     */
+    private Integer shingleSize = 3;
+
+    /**
+     * MinHash 签名长度，需为分段数的整数倍
+     */
+    private Integer numHashes = 128;
+
+    /**
+     * LSH 分段数
+     */
+    private Integer bands = 32;
+
+    /**
+     * 最大缓存条目数
+     */
+    private Long maxEntries = 2000L;
+
+    /**
+     * 缓存过期时长（分钟）
+     */
+    private Long expireMinutes = 1440L;
+
+    /**
+     * 可缓存的生成结果最大字符数
+     */
+    private Integer maxResponseChars = 200000;
+
+    /**
+     * 回放时每个片段的字符数
+     */
+    private Integer replayChunkChars = 64;
+}
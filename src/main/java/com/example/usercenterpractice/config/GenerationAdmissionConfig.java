@@ -0,0 +1,64 @@
+package com.example.usercenterpractice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 生成准入配置
+ * 限制每个模型在本节点同时进行的上游流式请求数，超出的请求按用户加权公平排队，排队位置以 queue 事件推送给客户端。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.admission")
+@Data
+public class GenerationAdmissionConfig {
+
+    /**
+     * 是否开启准入控制
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 每个模型默认的最大并发生成数
+     */
+    private Integer maxConcurrent = 32;
+
+    /**
+     * 按模型名覆盖最大并发生成数
+     */
+    private Map<String, Integer> models = new HashMap<>();
+
+    /**
+     * 每个模型的最大排队数，超出时直接拒绝
+     */
+    private Integer maxQueued = 200;
+
+    /**
+     * 最长排队时长（秒），超时后放弃生成
+     */
+    private Integer queueTimeoutSeconds = 120;
+
+    /**
+     * 按用户角色设置的公平队列权重，权重越大分得的并发名额越多，未配置的角色权重为 1
+     */
+    private Map<String, Integer> roleWeights = new HashMap<>();
+
+    /**
+     * 获取指定模型的最大并发生成数
+     */
+    public int getMaxConcurrent(String model) {
+        Integer modelMaxConcurrent = models.get(model);
+        return modelMaxConcurrent != null ? modelMaxConcurrent : maxConcurrent;
+    }
+
+    /**
+     * 获取指定角色的公平队列权重
+     */
+    public int getRoleWeight(String userRole) {
+        Integer weight = userRole != null ? roleWeights.get(userRole) : null;
+        return weight != null && weight > 0 ? weight : 1;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.usercenterpractice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 代码生成会话配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.session")
+@Data
+public class GenerationSessionConfig {
+
+    /**
+     * 所有观看者断开（或开始后始终无人接入）后的处理策略，默认宽限期后取消。
+     * 断线重连、刷新页面后重新接入都发生在宽限期内，不受影响；关闭页面后不再有人接收输出，
+     * 取消上游可停止继续消耗 token、执行工具调用与写入文件。需要关闭页面后仍完成生成时配置为 FINISH
+     */
+    private DetachPolicy detachPolicy = DetachPolicy.CANCEL;
+
+    /**
+     * CANCEL 策略下的宽限时长（秒），期间有观看者重新接入则继续生成
+     */
+    private Long detachGraceSeconds = 30L;
+
+    /**
+     * 同时进行中的生成会话上限（即上游 LLM 流式连接上限）
+     */
+    private Integer maxActiveSessions = 200;
+
+    /**
+     * 单个观看者实时缓冲区可积压的事件数，超出后断开该观看者，由客户端重连后从回放缓冲区恢复
+     */
+    private Integer maxViewerBufferedEvents = 512;
+
+    public enum DetachPolicy {
+        /**
+         * 继续生成直至完成并保存结果
+         */
+        FINISH,
+        /**
+         * 宽限期后取消生成
+         */
+        CANCEL
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.usercenterpractice.config;
+
+import cn.hutool.core.util.ObjectUtil;
+import com.example.usercenterpractice.ai.model.HedgingPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式模型对冲与故障转移配置
+ * 主端点的首 token 超过其近期延迟的指定分位数仍未到达时，向备用端点发起对冲请求，先到者胜出；
+ * 端点连续失败后熔断，熔断期内不参与对冲与转移。未配置备用端点的模型不做包装。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.model-hedging")
+@Data
+public class ModelHedgingConfig {
+
+    /**
+     * 是否开启
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 对冲延迟取主端点近期首 token 延迟的分位（0~1）
+     */
+    private Double hedgePercentile = 0.95;
+
+    /**
+     * 使用分位数所需的最少样本数，不足时使用默认对冲延迟
+     */
+    private Integer minSamples = 20;
+
+    /**
+     * 每个端点保留的首 token 延迟样本数
+     */
+    private Integer sampleWindow = 200;
+
+    /**
+     * 默认对冲延迟（毫秒）
+     */
+    private Long defaultHedgeDelayMillis = 3000L;
+
+    /**
+     * 对冲延迟下限（毫秒），避免延迟分布很窄时几乎每次都对冲
+     */
+    private Long minHedgeDelayMillis = 500L;
+
+    /**
+     * 对冲延迟上限（毫秒）
+     */
+    private Long maxHedgeDelayMillis = 15000L;
+
+    /**
+     * 熔断前允许的连续失败次数
+     */
+    private Integer failureThreshold = 5;
+
+    /**
+     * 熔断时长（秒），结束后放行一个探测请求
+     */
+    private Long openDurationSeconds = 30L;
+
+    /**
+     * 各模型的备用端点，key 为模型配置名（streaming-chat-model、reasoning-streaming-chat-model），按顺序参与对冲与转移
+     */
+    private Map<String, List<Endpoint>> endpoints = new HashMap<>();
+
+    /**
+     * 各模型的对冲策略覆盖，key 为模型配置名，未配置的项使用上面的全局值。
+     * 推理模型的思考内容不作为首个事件转发，首 token 延迟远高于对话模型，需单独配置
+     */
+    private Map<String, RolePolicy> roles = new HashMap<>();
+
+    /**
+     * 获取模型的备用端点
+     */
+    public List<Endpoint> getRoleEndpoints(String role) {
+        return endpoints.getOrDefault(role, new ArrayList<>());
+    }
+
+    /**
+     * 模型是否开启对冲
+     */
+    public boolean isRoleEnabled(String role) {
+        RolePolicy rolePolicy = roles.get(role);
+        Boolean roleEnabled = rolePolicy == null ? null : rolePolicy.getEnabled();
+        return Boolean.TRUE.equals(enabled) && !Boolean.FALSE.equals(roleEnabled);
+    }
+
+    /**
+     * 获取模型的对冲策略：角色覆盖项优先，其余使用全局值
+     */
+    public HedgingPolicy getRolePolicy(String role) {
+        RolePolicy rolePolicy = roles.getOrDefault(role, new RolePolicy());
+        return new HedgingPolicy(
+                ObjectUtil.defaultIfNull(rolePolicy.getHedgePercentile(), hedgePercentile),
+                ObjectUtil.defaultIfNull(rolePolicy.getMinSamples(), minSamples),
+                ObjectUtil.defaultIfNull(rolePolicy.getDefaultHedgeDelayMillis(), defaultHedgeDelayMillis),
+                ObjectUtil.defaultIfNull(rolePolicy.getMinHedgeDelayMillis(), minHedgeDelayMillis),
+                ObjectUtil.defaultIfNull(rolePolicy.getMaxHedgeDelayMillis(), maxHedgeDelayMillis));
+    }
+
+    /**
+     * 单个模型的对冲策略覆盖项，为空的项使用全局值
+     */
+    @Data
+    public static class RolePolicy {
+
+        /**
+         * 是否开启，false 时该模型不做对冲与转移
+         */
+        private Boolean enabled;
+
+        private Double hedgePercentile;
+
+        private Integer minSamples;
+
+        private Long defaultHedgeDelayMillis;
+
+        private Long minHedgeDelayMillis;
+
+        private Long maxHedgeDelayMillis;
+    }
+
+    /**
+     * OpenAI 兼容的备用端点，未配置的模型参数与主端点一致
+     */
+    @Data
+    public static class Endpoint {
+
+        /**
+         * 端点名称，用于指标标签与共享熔断状态，需全局唯一
+         */
+        private String name;
+
+        private String baseUrl;
+
+        private String apiKey;
+
+        /**
+         * 模型名称，为空时与主端点一致
+         */
+        private String modelName;
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.usercenterpractice.config;
 
+import cn.hutool.core.util.StrUtil;
+import com.example.usercenterpractice.ai.model.HedgingModelFactory;
+import dev.langchain4j.http.client.HttpClientBuilder;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import lombok.Data;
@@ -28,25 +31,35 @@ public class ReasoningStreamingChatModelConfig {
     private Boolean logResponses = false;
 
     @Bean
-    public StreamingChatModel reasoningStreamingChatModel() {
-        return OpenAiStreamingChatModel.builder()
-                .apiKey(apiKey)
-                .baseUrl(baseUrl)
-                .modelName(modelName)
-                .maxTokens(maxTokens)
-                .temperature(temperature)
-                .logRequests(logRequests)
-                .logResponses(logResponses)
-                .build();
+    public StreamingChatModel reasoningStreamingChatModel(HttpClientBuilder aiHttpClientBuilder,
+                                                          HedgingModelFactory hedgingModelFactory) {
+        return hedgedModel(aiHttpClientBuilder, hedgingModelFactory);
     }
 
     @Bean
     @Scope("prototype")
-    public StreamingChatModel reasoningStreamingChatModelPrototype() {
+    public StreamingChatModel reasoningStreamingChatModelPrototype(HttpClientBuilder aiHttpClientBuilder,
+                                                                   HedgingModelFactory hedgingModelFactory) {
+        return hedgedModel(aiHttpClientBuilder, hedgingModelFactory);
+    }
+
+    /**
+     * 配置了备用端点时包装为对冲模型，备用端点沿用本模型的其他参数
+     */
+    private StreamingChatModel hedgedModel(HttpClientBuilder aiHttpClientBuilder, HedgingModelFactory hedgingModelFactory) {
+        return hedgingModelFactory.wrap("reasoning-streaming-chat-model", buildModel(aiHttpClientBuilder, baseUrl, apiKey, modelName),
+                endpoint -> buildModel(aiHttpClientBuilder, endpoint.getBaseUrl(), endpoint.getApiKey(),
+                        StrUtil.blankToDefault(endpoint.getModelName(), modelName)));
+    }
+
+    private StreamingChatModel buildModel(HttpClientBuilder aiHttpClientBuilder, String endpointBaseUrl,
+                                          String endpointApiKey, String endpointModelName) {
         return OpenAiStreamingChatModel.builder()
-                .apiKey(apiKey)
-                .baseUrl(baseUrl)
-                .modelName(modelName)
+                // 共享 HTTP 客户端，支持在客户端断开时中断上游流式响应
+                .httpClientBuilder(aiHttpClientBuilder)
+                .apiKey(endpointApiKey)
+                .baseUrl(endpointBaseUrl)
+                .modelName(endpointModelName)
                 .maxTokens(maxTokens)
                 .temperature(temperature)
                 .logRequests(logRequests)
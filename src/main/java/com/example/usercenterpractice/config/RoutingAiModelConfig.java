@@ -1,5 +1,6 @@
 package com.example.usercenterpractice.config;
 
+import dev.langchain4j.http.client.HttpClientBuilder;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import lombok.Data;
@@ -31,8 +32,10 @@ public class RoutingAiModelConfig {
      * 创建用于路由判断的ChatModel (单例)
      */
     @Bean
-    public ChatModel routingChatModel() {
+    public ChatModel routingChatModel(HttpClientBuilder aiHttpClientBuilder) {
         return OpenAiChatModel.builder()
+                // 共享 HTTP 客户端
+                .httpClientBuilder(aiHttpClientBuilder)
                 .apiKey(apiKey)
                 .modelName(modelName)
                 .baseUrl(baseUrl)
@@ -48,8 +51,10 @@ public class RoutingAiModelConfig {
      */
     @Bean
     @Scope("prototype")
-    public ChatModel routingChatModelPrototype() {
+    public ChatModel routingChatModelPrototype(HttpClientBuilder aiHttpClientBuilder) {
         return OpenAiChatModel.builder()
+                // 共享 HTTP 客户端
+                .httpClientBuilder(aiHttpClientBuilder)
                 .apiKey(apiKey)
                 .modelName(modelName)
                 .baseUrl(baseUrl)
@@ -0,0 +1,41 @@
+package com.example.usercenterpractice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * TokenStream 桥接背压配置
+ * 下游消费变慢时，桥接缓冲区按字节上限约束，超出后按溢出策略处理，避免单个慢消费者无限占用堆内存
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.stream-backpressure")
+@Data
+public class StreamBackpressureConfig {
+
+    /**
+     * 单个生成流缓冲区的字节上限（按堆内存估算）
+     */
+    private Long maxBufferedBytes = 256 * 1024L;
+
+    /**
+     * 缓冲区超出上限后 AI 文本片段的处理策略
+     */
+    private TextOverflowPolicy textOverflowPolicy = TextOverflowPolicy.COALESCE;
+
+    /**
+     * 缓冲区超出上限时生产方最长暂停时长（秒），超时后中止生成
+     */
+    private Long pauseTimeoutSeconds = 60L;
+
+    public enum TextOverflowPolicy {
+        /**
+         * 继续接收文本并合并到缓冲区末尾的文本消息中，不阻塞模型输出（单轮输出受模型最大 token 数约束）
+         */
+        COALESCE,
+        /**
+         * 暂停读取模型输出，直至缓冲区回落到上限以下
+         */
+        PAUSE
+    }
+}
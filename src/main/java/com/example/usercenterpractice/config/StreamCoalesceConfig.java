@@ -0,0 +1,69 @@
+package com.example.usercenterpractice.config;
+
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SSE 输出片段合并配置
+ * 每隔 windowMillis 毫秒或累计 maxBytes 字节（先到者为准）将多个 LLM 片段合并为一个 SSE 事件
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.stream-coalesce")
+@Data
+public class StreamCoalesceConfig {
+
+    /**
+     * 是否开启片段合并
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 默认合并时间窗口（毫秒），小于等于 0 表示不合并
+     */
+    private Long windowMillis = 40L;
+
+    /**
+     * 默认合并字节上限（UTF-8）
+     */
+    private Integer maxBytes = 2048;
+
+    /**
+     * 按代码生成类型覆盖默认配置，key 为 CodeGenTypeEnum 的 value（如 html、multi_file、vue_project）
+     */
+    private Map<String, Window> types = new HashMap<>();
+
+    @Data
+    public static class Window {
+
+        private Long windowMillis;
+
+        private Integer maxBytes;
+    }
+
+    /**
+     * 获取指定类型的合并时间窗口
+     */
+    public long getWindowMillis(CodeGenTypeEnum codeGenType) {
+        Window window = types.get(codeGenType.getValue());
+        if (window != null && window.getWindowMillis() != null) {
+            return window.getWindowMillis();
+        }
+        return windowMillis;
+    }
+
+    /**
+     * 获取指定类型的合并字节上限
+     */
+    public int getMaxBytes(CodeGenTypeEnum codeGenType) {
+        Window window = types.get(codeGenType.getValue());
+        if (window != null && window.getMaxBytes() != null) {
+            return window.getMaxBytes();
+        }
+        return maxBytes;
+    }
+}
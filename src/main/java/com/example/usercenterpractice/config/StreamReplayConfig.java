@@ -0,0 +1,61 @@
+package com.example.usercenterpractice.config;
+
+import com.example.usercenterpractice.manager.stream.InMemorySseReplayStore;
+import com.example.usercenterpractice.manager.stream.RedisSseReplayStore;
+import com.example.usercenterpractice.manager.stream.SseReplayStore;
+import lombok.Data;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 生成会话断线重连回放配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.stream-replay")
+@Data
+public class StreamReplayConfig {
+
+    /**
+     * 回放缓冲区存储方式：memory / redis
+     */
+    private String store = "memory";
+
+    /**
+     * 单个会话最多保留的事件数
+     */
+    private Integer maxEventsPerSession = 2000;
+
+    /**
+     * 本地内存最多保留的会话数
+     */
+    private Integer maxSessions = 1000;
+
+    /**
+     * 会话结束后保留的时长（秒），期间仍可重连回放
+     */
+    private Long ttlSeconds = 600L;
+
+    /**
+     * 本节点没有该会话时（重连落到其他节点或服务重启后）轮询回放缓冲区新事件的间隔（毫秒），仅 redis 存储有效
+     */
+    private Long remotePollMillis = 500L;
+
+    /**
+     * 轮询回放缓冲区时连续多久没有新事件就结束连接（秒），客户端随后凭最后事件 ID 重连
+     */
+    private Long remoteIdleSeconds = 30L;
+
+    @Bean
+    public SseReplayStore sseReplayStore(ObjectProvider<StringRedisTemplate> stringRedisTemplateProvider) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        if ("redis".equalsIgnoreCase(store)) {
+            return new RedisSseReplayStore(stringRedisTemplateProvider.getObject(), maxEventsPerSession, ttl);
+        }
+        return new InMemorySseReplayStore(maxSessions, maxEventsPerSession, ttl);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.usercenterpractice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 工具调用执行配置
+ * 模型一轮返回多个工具调用时，互不冲突的调用在虚拟线程上并发执行，访问同一路径的调用按原顺序执行；
+ * 文件写入的内容可在参数流式输出期间提前写入临时文件
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.tool-execution")
+@Data
+public class ToolExecutionConfig {
+
+    /**
+     * 是否并发执行同一轮的工具调用，关闭时在模型回调线程上依次执行
+     */
+    private Boolean parallelEnabled = true;
+
+    /**
+     * 本节点同时执行的工具调用上限
+     */
+    private Integer maxConcurrency = 16;
+
+    /**
+     * 是否在 writeFile 参数流式到达时边解析边写入临时文件，执行时原子移动到目标路径
+     */
+    private Boolean streamingWriteEnabled = true;
+}
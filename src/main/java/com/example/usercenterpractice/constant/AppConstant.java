@@ -12,6 +12,11 @@ public interface AppConstant {
      */
     Integer DEFAULT_APP_PRIORITY = 0;
 
+    /**
+     * 代码生成类型待定（后台路由尚未完成）
+     */
+    String CODE_GEN_TYPE_PENDING = "pending";
+
     /**
      * 应用生成目录
      */
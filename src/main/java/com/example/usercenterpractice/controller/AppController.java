@@ -1,7 +1,6 @@
 package com.example.usercenterpractice.controller;
 
 import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.usercenterpractice.annotation.AuthCheck;
@@ -13,6 +12,8 @@ import com.example.usercenterpractice.constant.UserConstants;
 import com.example.usercenterpractice.exception.BusinessException;
 import com.example.usercenterpractice.exception.ErrorCode;
 import com.example.usercenterpractice.exception.ThrowUtils;
+import com.example.usercenterpractice.manager.stream.GenerationSession;
+import com.example.usercenterpractice.manager.stream.GenerationSessionRegistry;
 import com.example.usercenterpractice.model.domain.App;
 import com.example.usercenterpractice.model.domain.User;
 import com.example.usercenterpractice.model.dto.app.*;
@@ -36,12 +37,10 @@ import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.HandlerMapping;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 import java.io.File;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
 @Slf4j
 @RestController
@@ -51,11 +50,14 @@ public class AppController {
     private final UserService userService;
     private final AppService appService;
     private final ProjectDownloadService projectDownloadService;
+    private final GenerationSessionRegistry generationSessionRegistry;
 
-    public AppController(UserService userService, AppService appService, ProjectDownloadService projectDownloadService) {
+    public AppController(UserService userService, AppService appService, ProjectDownloadService projectDownloadService,
+                         GenerationSessionRegistry generationSessionRegistry) {
         this.userService = userService;
         this.appService = appService;
         this.projectDownloadService = projectDownloadService;
+        this.generationSessionRegistry = generationSessionRegistry;
     }
 
     /**
@@ -320,6 +322,8 @@ public class AppController {
     @GetMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam String appId,
                                                        @RequestParam String message,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                                       @RequestParam(required = false) String lastEventId,
                                                        HttpServletRequest request) {
         // 参数校验
         ThrowUtils.throwIf(StrUtil.isBlank(appId), ErrorCode.PARAMS_ERROR, "应用ID无效");
@@ -333,42 +337,31 @@ public class AppController {
         ThrowUtils.throwIf(parsedAppId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
-        // 调用服务生成代码（流式）
-        Flux<String> contentFlux = appService.chatToGenCode(parsedAppId, message, loginUser);
-        // 转换为 ServerSentEvent 格式
-        return contentFlux
-                .map(chunk -> {
-                    // 将内容包装成JSON对象
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-                })
-                .concatWith(Mono.just(
-                        // 发送结束事件
-                        ServerSentEvent.<String>builder()
-                                .event("done")
-                                .data("")
-                                .build()
-                ))
-                .onErrorResume((Throwable error) -> {
-                    // 处理异常并发送 business-error 事件
-                    log.error("代码生成失败", error);
-                    String errorMessage = error.getMessage();
-                    if (error instanceof BusinessException) {
-                        errorMessage = ((BusinessException) error).getMessage();
-                    }
-                    // 构建错误信息 JSON
-                    Map<String, String> errorData = Map.of("message", errorMessage != null ? errorMessage : "生成过程中出现错误");
-                    String errorJson = JSONUtil.toJsonStr(errorData);
-                    return Flux.just(
-                            ServerSentEvent.<String>builder()
-                                    .event("business-error")
-                                    .data(errorJson)
-                                    .build()
-                    );
-                });
+        // 断线重连：携带 Last-Event-ID（浏览器自动重连时的请求头，或手动传参）时回放缺失事件并接入实时流，不重新调用模型
+        String resumeEventId = StrUtil.isNotBlank(lastEventIdHeader) ? lastEventIdHeader : lastEventId;
+        if (StrUtil.isNotBlank(resumeEventId)) {
+            return generationSessionRegistry.resume(resumeEventId, parsedAppId, loginUser);
+        }
+        // 由生成会话调用服务生成代码（流式）并消费内容流，生成过程不随当前连接断开而中止：
+        // 片段直接转义为 {"d":"..."} 并分配事件 ID，结束时发送 done 或 business-error 事件
+        GenerationSession session = generationSessionRegistry.start(parsedAppId, loginUser.getId(),
+                () -> appService.chatToGenCode(parsedAppId, message, loginUser));
+        return generationSessionRegistry.attach(session, 0);
+    }
+
+    /**
+     * 观看应用正在进行的代码生成（SSE 流式）
+     * 用于第二个标签页或管理员接入同一生成过程，不会重新调用模型
+     *
+     * @param appId   应用 ID
+     * @param request 请求对象
+     * @return 生成结果流
+     */
+    @GetMapping(value = "/chat/gen/attach", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> attachGeneration(@RequestParam Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        User loginUser = userService.getLoginUser(request);
+        return generationSessionRegistry.attachToApp(appId, loginUser);
     }
 
     @RestController
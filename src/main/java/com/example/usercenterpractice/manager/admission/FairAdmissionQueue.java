@@ -0,0 +1,288 @@
+package com.example.usercenterpractice.manager.admission;
+
+import com.example.usercenterpractice.exception.BusinessException;
+import com.example.usercenterpractice.exception.ErrorCode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个模型的准入队列：并发名额 + 按用户加权的公平排队（起始时间公平队列，SFQ）
+ * 每个排队请求的起始标签为 max(虚拟时间, 该用户上一个请求的结束标签)，结束标签为起始标签 + 1/权重；
+ * 名额释放时放行起始标签最小的请求，并把虚拟时间推进到其起始标签。
+ * 同一用户连续提交的请求标签依次递增，不会挤占其他用户；权重为 2 的用户在竞争时获得约两倍的名额。
+ */
+@Slf4j
+public class FairAdmissionQueue {
+
+    private final String model;
+
+    private final int maxConcurrent;
+
+    private final int maxQueued;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TreeSet<Ticket> waiting = new TreeSet<>(
+            Comparator.comparingDouble((Ticket ticket) -> ticket.startTag).thenComparingLong(ticket -> ticket.seq));
+
+    /**
+     * 用户 ID -> 该用户最近一个排队请求的结束标签
+     */
+    private final Map<Long, Double> lastFinishTags = new HashMap<>();
+
+    private int active;
+
+    private double virtualTime;
+
+    private long nextSeq;
+
+    /**
+     * @param model         模型名（指标标签）
+     * @param maxConcurrent 最大并发数
+     * @param maxQueued     最大排队数
+     * @param meterRegistry 指标注册表，可为 null
+     */
+    public FairAdmissionQueue(String model, int maxConcurrent, int maxQueued, MeterRegistry meterRegistry) {
+        this.model = model;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.meterRegistry = meterRegistry;
+        if (meterRegistry != null) {
+            Gauge.builder("code_gen.admission.active", this, FairAdmissionQueue::getActive)
+                    .description("正在进行的生成数")
+                    .tag("model", model)
+                    .register(meterRegistry);
+            Gauge.builder("code_gen.admission.queued", this, FairAdmissionQueue::getQueued)
+                    .description("排队中的生成数")
+                    .tag("model", model)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 申请名额：有空闲名额且无人排队时立即获得，否则排队；取消订阅即放弃排队
+     *
+     * @param userId   用户 ID
+     * @param weight   用户权重
+     * @param listener 排队位置监听器，可为 null
+     * @return 名额，使用完毕后必须调用 {@link Permit#release()}
+     */
+    public Mono<Permit> acquire(Long userId, int weight, QueuePositionListener listener) {
+        return Mono.create(sink -> {
+            long startNanos = System.nanoTime();
+            Ticket ticket = new Ticket(sink, listener, startNanos);
+            // 先注册取消回调，保证任何时刻取消都能归还名额或移出队列
+            sink.onCancel(() -> cancel(ticket));
+            List<Runnable> notifications;
+            synchronized (this) {
+                if (ticket.cancelled) {
+                    return;
+                }
+                if (active < maxConcurrent && waiting.isEmpty()) {
+                    active++;
+                    ticket.permit = new Permit(this);
+                    notifications = List.of();
+                } else if (waiting.size() >= maxQueued) {
+                    notifications = null;
+                } else {
+                    ticket.seq = nextSeq++;
+                    ticket.startTag = Math.max(virtualTime, lastFinishTags.getOrDefault(userId, 0D));
+                    lastFinishTags.put(userId, ticket.startTag + 1D / weight);
+                    waiting.add(ticket);
+                    notifications = positionUpdates();
+                }
+            }
+            if (notifications == null) {
+                record("rejected", startNanos);
+                sink.error(new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前生成人数过多，请稍后再试"));
+                return;
+            }
+            if (ticket.permit != null) {
+                record("immediate", startNanos);
+                sink.success(ticket.permit);
+                return;
+            }
+            notifications.forEach(Runnable::run);
+        });
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    /**
+     * 放弃排队；已分配名额但尚未交付时归还名额
+     */
+    private void cancel(Ticket ticket) {
+        List<Runnable> notifications;
+        synchronized (this) {
+            ticket.cancelled = true;
+            if (!waiting.remove(ticket)) {
+                notifications = null;
+            } else {
+                notifications = positionUpdates();
+            }
+        }
+        if (notifications == null) {
+            if (ticket.permit != null && ticket.permit.revoke()) {
+                release();
+            }
+            return;
+        }
+        record("cancelled", ticket.startNanos);
+        notifications.forEach(Runnable::run);
+    }
+
+    private void release() {
+        List<Ticket> granted = new ArrayList<>();
+        List<Runnable> notifications;
+        synchronized (this) {
+            active--;
+            while (active < maxConcurrent && !waiting.isEmpty()) {
+                Ticket ticket = waiting.pollFirst();
+                virtualTime = ticket.startTag;
+                active++;
+                ticket.permit = new Permit(this);
+                granted.add(ticket);
+            }
+            if (waiting.isEmpty()) {
+                // 无人排队时各用户的历史标签不再影响公平性
+                lastFinishTags.clear();
+            }
+            notifications = positionUpdates();
+        }
+        for (Ticket ticket : granted) {
+            record("queued", ticket.startNanos);
+            ticket.sink.success(ticket.permit);
+        }
+        notifications.forEach(Runnable::run);
+    }
+
+    /**
+     * 计算位置发生变化的排队请求，返回在锁外执行的通知
+     */
+    private List<Runnable> positionUpdates() {
+        List<Runnable> notifications = new ArrayList<>();
+        int queued = waiting.size();
+        int position = 0;
+        for (Ticket ticket : waiting) {
+            position++;
+            if (ticket.listener != null && (ticket.notifiedPosition != position || ticket.notifiedQueued != queued)) {
+                ticket.notifiedPosition = position;
+                ticket.notifiedQueued = queued;
+                int currentPosition = position;
+                notifications.add(() -> notify(ticket.listener, currentPosition, queued));
+            }
+        }
+        return notifications;
+    }
+
+    private void notify(QueuePositionListener listener, int position, int queued) {
+        try {
+            listener.onPositionChanged(position, queued);
+        } catch (Exception e) {
+            log.warn("排队位置通知失败, model: {}", model, e);
+        }
+    }
+
+    private void record(String outcome, long startNanos) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.builder("code_gen.admission.wait")
+                .description("获得生成名额的等待时长")
+                .tag("model", model)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 排队请求，仅在持有队列锁时修改
+     */
+    private static final class Ticket {
+
+        private final MonoSink<Permit> sink;
+
+        private final QueuePositionListener listener;
+
+        private final long startNanos;
+
+        private long seq;
+
+        private double startTag;
+
+        private volatile Permit permit;
+
+        private boolean cancelled;
+
+        private int notifiedPosition;
+
+        private int notifiedQueued;
+
+        private Ticket(MonoSink<Permit> sink, QueuePositionListener listener, long startNanos) {
+            this.sink = sink;
+            this.listener = listener;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * 生成名额：交付后由使用方 {@link #claim()} 并在结束时 {@link #release()}，交付前被取消时由队列收回
+     */
+    public static final class Permit {
+
+        private static final int GRANTED = 0;
+
+        private static final int CLAIMED = 1;
+
+        private static final int RELEASED = 2;
+
+        private final FairAdmissionQueue queue;
+
+        private final AtomicInteger state = new AtomicInteger(GRANTED);
+
+        private Permit(FairAdmissionQueue queue) {
+            this.queue = queue;
+        }
+
+        /**
+         * 使用方确认接收名额
+         *
+         * @return 名额已被收回时返回 false
+         */
+        public boolean claim() {
+            return state.compareAndSet(GRANTED, CLAIMED);
+        }
+
+        /**
+         * 归还名额（可重复调用）
+         */
+        public void release() {
+            if (state.getAndSet(RELEASED) != RELEASED) {
+                queue.release();
+            }
+        }
+
+        private boolean revoke() {
+            return state.compareAndSet(GRANTED, RELEASED);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.usercenterpractice.manager.admission;
+
+import cn.hutool.core.util.StrUtil;
+import com.example.usercenterpractice.config.GenerationAdmissionConfig;
+import com.example.usercenterpractice.config.StreamingChatModelConfig;
+import com.example.usercenterpractice.exception.BusinessException;
+import com.example.usercenterpractice.exception.ErrorCode;
+import com.example.usercenterpractice.model.domain.User;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 生成准入调度器
+ * 位于模型流式生成之前，按模型限制本节点同时进行的上游流，超出的请求按用户加权公平排队。
+ * 排队位置通过订阅方在 Reactor Context 中提供的 {@link QueuePositionListener} 推送。
+ */
+@Slf4j
+@Component
+public class GenerationAdmissionScheduler {
+
+    @Resource
+    private GenerationAdmissionConfig generationAdmissionConfig;
+
+    @Resource
+    private StreamingChatModelConfig streamingChatModelConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 模型名 -> 准入队列
+     */
+    private final Map<String, FairAdmissionQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * 获得名额后再订阅生成流，生成结束（完成、失败或取消）时归还名额
+     *
+     * @param codeGenType 代码生成类型
+     * @param loginUser   当前用户
+     * @param generation  生成流，获得名额后才调用
+     * @return 生成流
+     */
+    public <T> Flux<T> admit(CodeGenTypeEnum codeGenType, User loginUser, Supplier<Flux<T>> generation) {
+        if (!Boolean.TRUE.equals(generationAdmissionConfig.getEnabled())) {
+            return Flux.defer(generation);
+        }
+        FairAdmissionQueue queue = queues.computeIfAbsent(resolveModel(codeGenType), model ->
+                new FairAdmissionQueue(model, generationAdmissionConfig.getMaxConcurrent(model),
+                        generationAdmissionConfig.getMaxQueued(), meterRegistry));
+        int weight = generationAdmissionConfig.getRoleWeight(loginUser.getUserRole());
+        return Flux.deferContextual(context -> queue
+                .acquire(loginUser.getId(), weight, context.getOrDefault(QueuePositionListener.class, null))
+                .timeout(Duration.ofSeconds(generationAdmissionConfig.getQueueTimeoutSeconds()))
+                .onErrorMap(TimeoutException.class, e -> {
+                    log.warn("排队超时, userId: {}, 类型: {}", loginUser.getId(), codeGenType.getValue());
+                    return new BusinessException(ErrorCode.TOO_MANY_REQUEST, "排队超时，请稍后再试");
+                })
+                .flatMapMany(permit -> {
+                    if (!permit.claim()) {
+                        return Flux.<T>empty();
+                    }
+                    return Flux.defer(generation).doFinally(signal -> permit.release());
+                }));
+    }
+
+    /**
+     * 生成类型对应的模型：目前所有类型都使用流式对话模型
+     */
+    private String resolveModel(CodeGenTypeEnum codeGenType) {
+        return StrUtil.blankToDefault(streamingChatModelConfig.getModelName(), "default");
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.usercenterpractice.manager.admission;
+
+/**
+ * 排队位置监听器
+ * 由生成流的订阅方通过 Reactor Context（键为本接口的 Class）传入，准入调度器在排队位置变化时回调
+ */
+@FunctionalInterface
+public interface QueuePositionListener {
+
+    /**
+     * 排队位置变化
+     *
+     * @param position 当前位置，从 1 开始
+     * @param queued   当前排队总数
+     */
+    void onPositionChanged(int position, int queued);
+}
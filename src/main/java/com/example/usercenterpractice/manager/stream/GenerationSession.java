@@ -0,0 +1,407 @@
+package com.example.usercenterpractice.manager.stream;
+
+import com.example.usercenterpractice.config.GenerationSessionConfig;
+import com.example.usercenterpractice.exception.BusinessException;
+import com.example.usercenterpractice.manager.admission.QueuePositionListener;
+import com.example.usercenterpractice.utils.SseEventEncoder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码生成会话
+ * 生成流由会话订阅，不随某个 SSE 连接断开而中止；每个事件分配递增序号并写入回放缓冲区，
+ * 客户端断线后可凭最后收到的序号补发缺失事件，再接入实时流。
+ * 同一会话可被多个观看者同时接入（如第二个标签页、管理员观看），所有观看者断开（或开始后始终无人接入）时按配置的策略继续或取消生成。
+ * 每个观看者的实时缓冲区有上限，接收过慢的观看者被断开，由客户端凭最后事件 ID 从回放缓冲区恢复。
+ * 事件在会话锁内分配序号并推送，回放缓冲区的写入在锁外由写入线程批量完成，尚未写入的事件暂存在内存中供回放读取。
+ * 会话按有界请求量订阅生成流，未写入回放缓冲区的事件积压过多时暂停补充请求，上游的有界缓冲区据此感知消费速度。
+ * 客户端请求的事件已被回放缓冲区淘汰时，先发送 reset 事件（data 为 {"fromSeq":可回放的第一个序号}），客户端据此重新加载完整内容。
+ */
+@Slf4j
+public class GenerationSession {
+
+    /**
+     * 单个观看者实时缓冲区默认可积压的事件数
+     */
+    private static final int DEFAULT_MAX_VIEWER_BUFFERED_EVENTS = 512;
+
+    /**
+     * 向生成流预先请求的片段数
+     */
+    private static final int GENERATION_PREFETCH = 32;
+
+    /**
+     * 未写入回放缓冲区的事件积压达到该数量后暂停向生成流补充请求
+     */
+    private static final int MAX_UNPERSISTED_EVENTS = 256;
+
+    @Getter
+    private final String id;
+
+    @Getter
+    private final Long appId;
+
+    @Getter
+    private final Long userId;
+
+    private final SseReplayStore replayStore;
+
+    private final GenerationSessionConfig.DetachPolicy detachPolicy;
+
+    private final Duration detachGrace;
+
+    private final int maxViewerBufferedEvents;
+
+    /**
+     * 当前接入的实时订阅者，仅在持有会话锁时修改
+     */
+    private final List<Sinks.Many<SseRecord>> viewers = new ArrayList<>();
+
+    /**
+     * 已分配序号、尚未写入回放缓冲区的事件，按序号升序，仅在持有会话锁时修改
+     */
+    private final List<SseRecord> unpersisted = new ArrayList<>();
+
+    /**
+     * 串行化回放缓冲区写入，与会话锁分离，写入期间不阻塞推送
+     */
+    private final Object replayWriteLock = new Object();
+
+    private final Scheduler replayWriteScheduler;
+
+    private boolean replayWriteScheduled;
+
+    /**
+     * 因积压暂缓、待写入完成后补充的请求量
+     */
+    private long deferredRequests;
+
+    private long seq;
+
+    private boolean terminated;
+
+    private GenerationSubscriber generation;
+
+    private Runnable onTerminate;
+
+    /**
+     * 所有观看者断开后的延迟取消任务
+     */
+    private Disposable detachTimer;
+
+    public GenerationSession(String id, Long appId, Long userId, SseReplayStore replayStore,
+                             GenerationSessionConfig.DetachPolicy detachPolicy, Duration detachGrace) {
+        this(id, appId, userId, replayStore, detachPolicy, detachGrace, DEFAULT_MAX_VIEWER_BUFFERED_EVENTS);
+    }
+
+    public GenerationSession(String id, Long appId, Long userId, SseReplayStore replayStore,
+                             GenerationSessionConfig.DetachPolicy detachPolicy, Duration detachGrace,
+                             int maxViewerBufferedEvents) {
+        this(id, appId, userId, replayStore, detachPolicy, detachGrace, maxViewerBufferedEvents,
+                Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param replayWriteScheduler 写入回放缓冲区的调度器（写入可能阻塞，如 Redis）
+     */
+    public GenerationSession(String id, Long appId, Long userId, SseReplayStore replayStore,
+                             GenerationSessionConfig.DetachPolicy detachPolicy, Duration detachGrace,
+                             int maxViewerBufferedEvents, Scheduler replayWriteScheduler) {
+        this.id = id;
+        this.appId = appId;
+        this.userId = userId;
+        this.replayStore = replayStore;
+        this.detachPolicy = detachPolicy;
+        this.detachGrace = detachGrace;
+        this.maxViewerBufferedEvents = maxViewerBufferedEvents;
+        this.replayWriteScheduler = replayWriteScheduler;
+    }
+
+    /**
+     * 订阅生成流，事件写入回放缓冲区并推送给实时订阅者
+     * 生成排队时（见准入调度器）推送 queue 事件，data 为 {"position":排队位置,"queued":排队总数}
+     *
+     * @param contentFlux 生成内容流
+     * @param onTerminate 生成结束（完成或失败）后的回调
+     */
+    void start(Flux<String> contentFlux, Runnable onTerminate) {
+        this.onTerminate = onTerminate;
+        QueuePositionListener queuePositionListener = (position, queued) ->
+                publish("queue", "{\"position\":" + position + ",\"queued\":" + queued + "}");
+        GenerationSubscriber subscriber = new GenerationSubscriber();
+        generation = subscriber;
+        synchronized (this) {
+            // 发起请求的连接可能在接入会话前就已断开：无人接入时同样按策略取消，首个观看者接入时解除
+            if (viewers.isEmpty()) {
+                armDetachTimer();
+            }
+        }
+        contentFlux.contextWrite(Context.of(QueuePositionListener.class, queuePositionListener))
+                .subscribe(subscriber);
+    }
+
+    /**
+     * 接入会话：先补发 afterSeq 之后的事件，再接入实时流
+     *
+     * @param afterSeq 客户端已收到的最后一个序号，新连接为 0
+     * @return 事件流
+     */
+    public Flux<SseRecord> attach(long afterSeq) {
+        return Flux.defer(() -> {
+            // 先写入积压的事件，回放尽量从回放缓冲区读取
+            flushReplay();
+            long snapshotSeq;
+            List<SseRecord> recent;
+            Flux<SseRecord> live;
+            // 在锁内确定回放上界并注册订阅者，保证回放与实时流之间既不丢失也不重复
+            synchronized (this) {
+                snapshotSeq = seq;
+                recent = List.copyOf(unpersisted);
+                if (terminated) {
+                    live = Flux.empty();
+                } else {
+                    Sinks.Many<SseRecord> viewer = Sinks.many().unicast()
+                            .onBackpressureBuffer(Queues.<SseRecord>get(maxViewerBufferedEvents).get());
+                    viewers.add(viewer);
+                    cancelDetachTimer();
+                    live = viewer.asFlux().doFinally(signal -> removeViewer(viewer));
+                }
+            }
+            long persistedSeq = recent.isEmpty() ? snapshotSeq : recent.get(0).getSeq() - 1;
+            List<SseRecord> missed = new ArrayList<>();
+            if (afterSeq < persistedSeq) {
+                missed.addAll(replayStore.readRange(id, afterSeq, persistedSeq));
+            }
+            for (SseRecord record : recent) {
+                if (record.getSeq() > afterSeq) {
+                    missed.add(record);
+                }
+            }
+            long firstAvailableSeq = missed.isEmpty() ? snapshotSeq + 1 : missed.get(0).getSeq();
+            if (afterSeq < snapshotSeq && firstAvailableSeq > afterSeq + 1) {
+                // 缺失的事件已被淘汰，无法续传：通知客户端丢弃已渲染的部分内容，从可回放的第一个事件继续并在结束后重新加载
+                log.warn("回放缓冲区已淘汰部分事件, sessionId: {}, afterSeq: {}, fromSeq: {}", id, afterSeq, firstAvailableSeq);
+                missed.add(0, new SseRecord(firstAvailableSeq - 1, "reset", "{\"fromSeq\":" + firstAvailableSeq + "}"));
+            }
+            return Flux.fromIterable(missed).concatWith(live);
+        });
+    }
+
+    /**
+     * 构建 SSE 事件 ID
+     */
+    public String eventId(long eventSeq) {
+        return id + ":" + eventSeq;
+    }
+
+    public synchronized boolean isTerminated() {
+        return terminated;
+    }
+
+    public synchronized int getViewerCount() {
+        return viewers.size();
+    }
+
+    /**
+     * 取消生成，已接入的观看者会收到 business-error 事件
+     *
+     * @param reason 取消原因
+     */
+    public synchronized void cancel(String reason) {
+        if (terminated) {
+            return;
+        }
+        log.info("取消生成会话, sessionId: {}, 原因: {}", id, reason);
+        if (generation != null) {
+            generation.dispose();
+        }
+        terminate("business-error", SseEventEncoder.encode("message", reason));
+    }
+
+    /**
+     * 中止生成（会话清理时调用）
+     */
+    void dispose() {
+        if (generation != null) {
+            generation.dispose();
+        }
+    }
+
+    private synchronized void publish(String event, String data) {
+        if (terminated) {
+            return;
+        }
+        SseRecord record = new SseRecord(++seq, event, data);
+        unpersisted.add(record);
+        if (!replayWriteScheduled) {
+            replayWriteScheduled = true;
+            replayWriteScheduler.schedule(this::writeReplay);
+        }
+        // 推送过程中订阅者可能同步取消并移除自身，因此遍历快照
+        for (Sinks.Many<SseRecord> viewer : List.copyOf(viewers)) {
+            Sinks.EmitResult result = viewer.tryEmitNext(record);
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                // 缓冲事件发送完后正常结束该连接（而非以错误结束），浏览器凭最后事件 ID 自动重连，从回放缓冲区继续
+                log.warn("观看者接收过慢，断开连接, sessionId: {}, seq: {}", id, record.getSeq());
+                viewer.tryEmitComplete();
+                removeViewer(viewer);
+            } else if (result.isFailure()) {
+                removeViewer(viewer);
+            }
+        }
+    }
+
+    private synchronized void terminate(String event, String data) {
+        if (terminated) {
+            return;
+        }
+        publish(event, data);
+        terminated = true;
+        List<Sinks.Many<SseRecord>> remaining = List.copyOf(viewers);
+        viewers.clear();
+        for (Sinks.Many<SseRecord> viewer : remaining) {
+            viewer.tryEmitComplete();
+        }
+        cancelDetachTimer();
+        if (onTerminate != null) {
+            onTerminate.run();
+        }
+    }
+
+    /**
+     * 写入线程：持续批量写入积压的事件，直到没有积压
+     */
+    private void writeReplay() {
+        while (true) {
+            flushReplay();
+            synchronized (this) {
+                if (unpersisted.isEmpty()) {
+                    replayWriteScheduled = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 将当前积压的事件作为一批写入回放缓冲区，并补充因积压暂缓的请求量
+     */
+    private void flushReplay() {
+        synchronized (replayWriteLock) {
+            List<SseRecord> batch;
+            synchronized (this) {
+                if (unpersisted.isEmpty()) {
+                    return;
+                }
+                batch = List.copyOf(unpersisted);
+            }
+            try {
+                replayStore.appendAll(id, batch);
+            } catch (RuntimeException e) {
+                // 回放缓冲区尽力而为：写入失败的事件无法续传，重连时由 reset 事件通知客户端
+                log.warn("写入回放缓冲区失败, sessionId: {}, 事件数: {}", id, batch.size(), e);
+            }
+            long requests;
+            synchronized (this) {
+                unpersisted.subList(0, batch.size()).clear();
+                requests = deferredRequests;
+                deferredRequests = 0;
+            }
+            if (requests > 0 && generation != null) {
+                generation.request(requests);
+            }
+        }
+    }
+
+    /**
+     * 处理完一个片段后补充请求量，积压过多时暂缓到写入完成
+     */
+    private void replenish() {
+        synchronized (this) {
+            if (unpersisted.size() >= MAX_UNPERSISTED_EVENTS) {
+                deferredRequests++;
+                return;
+            }
+        }
+        generation.request(1);
+    }
+
+    private synchronized void removeViewer(Sinks.Many<SseRecord> viewer) {
+        if (!viewers.remove(viewer) || terminated || !viewers.isEmpty()) {
+            return;
+        }
+        armDetachTimer();
+    }
+
+    /**
+     * CANCEL 策略下无观看者时开始宽限期计时，须持有会话锁
+     */
+    private void armDetachTimer() {
+        if (detachPolicy == GenerationSessionConfig.DetachPolicy.CANCEL && detachTimer == null) {
+            log.info("生成会话已无观看者，{} 秒后取消, sessionId: {}", detachGrace.toSeconds(), id);
+            detachTimer = Schedulers.parallel().schedule(this::cancelIfDetached,
+                    detachGrace.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void cancelIfDetached() {
+        detachTimer = null;
+        if (viewers.isEmpty()) {
+            cancel("所有连接已断开，生成已取消");
+        }
+    }
+
+    private void cancelDetachTimer() {
+        if (detachTimer != null) {
+            detachTimer.dispose();
+            detachTimer = null;
+        }
+    }
+
+    /**
+     * 生成流订阅者：预先请求固定数量的片段，每处理完一个再补充一个（见 {@link #replenish()}）
+     */
+    private class GenerationSubscriber extends BaseSubscriber<String> {
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(GENERATION_PREFETCH);
+        }
+
+        @Override
+        protected void hookOnNext(String chunk) {
+            publish(null, SseEventEncoder.encode("d", chunk));
+            replenish();
+        }
+
+        @Override
+        protected void hookOnError(Throwable error) {
+            log.error("代码生成失败, sessionId: {}", id, error);
+            String errorMessage = error.getMessage();
+            if (error instanceof BusinessException) {
+                errorMessage = ((BusinessException) error).getMessage();
+            }
+            terminate("business-error", SseEventEncoder.encode("message",
+                    errorMessage != null ? errorMessage : "生成过程中出现错误"));
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            terminate("done", "");
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.usercenterpractice.manager.stream;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.example.usercenterpractice.config.GenerationSessionConfig;
+import com.example.usercenterpractice.config.StreamReplayConfig;
+import com.example.usercenterpractice.constant.UserConstants;
+import com.example.usercenterpractice.exception.BusinessException;
+import com.example.usercenterpractice.exception.ErrorCode;
+import com.example.usercenterpractice.exception.ThrowUtils;
+import com.example.usercenterpractice.model.domain.User;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 代码生成会话注册中心
+ * 持有上游生成流并向任意数量的观看者多播，生成过程与发起请求的 HTTP 连接解耦；
+ * 同时限制进行中的会话数量，使上游 LLM 连接数不受客户端连接波动影响。
+ * 重连请求落到未持有该会话的节点（或服务重启后）时，凭回放缓冲区中的归属信息与事件恢复：
+ * 补发缺失事件后轮询新事件，直到生成结束或连续空闲超时。
+ */
+@Slf4j
+@Component
+public class GenerationSessionRegistry {
+
+    /**
+     * 会话结束时的事件名
+     */
+    private static final Set<String> TERMINAL_EVENTS = Set.of("done", "business-error");
+
+    @Resource
+    private SseReplayStore sseReplayStore;
+
+    @Resource
+    private StreamReplayConfig streamReplayConfig;
+
+    @Resource
+    private GenerationSessionConfig generationSessionConfig;
+
+    private final Map<String, GenerationSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 应用 ID -> 进行中的会话 ID
+     */
+    private final Map<Long, String> activeSessionIds = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    /**
+     * 创建会话并开始消费生成流
+     *
+     * @param appId               应用 ID
+     * @param userId              用户 ID
+     * @param contentFluxSupplier 生成内容流，在占用会话名额后才调用
+     * @return 会话
+     */
+    public GenerationSession start(Long appId, Long userId, Supplier<Flux<String>> contentFluxSupplier) {
+        acquireSlot();
+        Flux<String> contentFlux;
+        try {
+            contentFlux = contentFluxSupplier.get();
+        } catch (RuntimeException e) {
+            activeCount.decrementAndGet();
+            throw e;
+        }
+        String sessionId = IdUtil.fastSimpleUUID();
+        GenerationSession session = new GenerationSession(sessionId, appId, userId, sseReplayStore,
+                generationSessionConfig.getDetachPolicy(),
+                Duration.ofSeconds(generationSessionConfig.getDetachGraceSeconds()),
+                generationSessionConfig.getMaxViewerBufferedEvents());
+        try {
+            sseReplayStore.saveSessionInfo(sessionId, new SseSessionInfo(appId, userId));
+        } catch (RuntimeException e) {
+            // 回放缓冲区尽力而为：归属信息写入失败只影响跨节点恢复
+            log.warn("写入生成会话归属信息失败, sessionId: {}", sessionId, e);
+        }
+        sessions.put(sessionId, session);
+        activeSessionIds.put(appId, sessionId);
+        log.info("创建生成会话, sessionId: {}, appId: {}", sessionId, appId);
+        session.start(contentFlux, () -> onSessionTerminated(session));
+        return session;
+    }
+
+    /**
+     * 接入会话，转换为带事件 ID 的 SSE 事件流
+     *
+     * @param session  会话
+     * @param afterSeq 客户端已收到的最后一个序号，新连接为 0
+     * @return SSE 事件流
+     */
+    public Flux<ServerSentEvent<String>> attach(GenerationSession session, long afterSeq) {
+        return session.attach(afterSeq)
+                .map(record -> ServerSentEvent.<String>builder()
+                        .id(session.eventId(record.getSeq()))
+                        .event(record.getEvent())
+                        .data(record.getData())
+                        .build());
+    }
+
+    /**
+     * 根据 Last-Event-ID 恢复会话：补发缺失事件后接入实时流，不重新调用模型
+     *
+     * @param lastEventId 客户端最后收到的事件 ID（sessionId:seq）
+     * @param appId       应用 ID
+     * @param loginUser   登录用户
+     * @return SSE 事件流
+     */
+    public Flux<ServerSentEvent<String>> resume(String lastEventId, Long appId, User loginUser) {
+        int separatorIndex = lastEventId.lastIndexOf(':');
+        ThrowUtils.throwIf(separatorIndex <= 0, ErrorCode.PARAMS_ERROR, "事件 ID 格式不正确");
+        String sessionId = lastEventId.substring(0, separatorIndex);
+        long afterSeq;
+        try {
+            afterSeq = Long.parseLong(lastEventId.substring(separatorIndex + 1));
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "事件 ID 格式不正确");
+        }
+        GenerationSession session = sessions.get(sessionId);
+        if (session == null) {
+            return resumeFromStore(sessionId, afterSeq, appId, loginUser);
+        }
+        ThrowUtils.throwIf(!session.getAppId().equals(appId), ErrorCode.NOT_FOUND_ERROR, "生成会话不存在或已过期");
+        checkViewPermission(session.getUserId(), loginUser);
+        log.info("恢复生成会话, sessionId: {}, afterSeq: {}", sessionId, afterSeq);
+        return attach(session, afterSeq);
+    }
+
+    /**
+     * 本节点没有该会话时从回放缓冲区恢复：补发缺失事件，再轮询生成节点写入的新事件
+     */
+    private Flux<ServerSentEvent<String>> resumeFromStore(String sessionId, long afterSeq, Long appId, User loginUser) {
+        SseSessionInfo info = sseReplayStore.getSessionInfo(sessionId);
+        ThrowUtils.throwIf(info == null || !info.getAppId().equals(appId),
+                ErrorCode.NOT_FOUND_ERROR, "生成会话不存在或已过期");
+        checkViewPermission(info.getUserId(), loginUser);
+        log.info("从回放缓冲区恢复生成会话, sessionId: {}, afterSeq: {}", sessionId, afterSeq);
+        AtomicLong cursor = new AtomicLong(afterSeq);
+        return Flux.interval(Duration.ZERO, Duration.ofMillis(streamReplayConfig.getRemotePollMillis()),
+                        Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .concatMapIterable(tick -> readNewRecords(sessionId, cursor), 1)
+                .takeUntil(record -> record.getEvent() != null && TERMINAL_EVENTS.contains(record.getEvent()))
+                // 连续空闲时正常结束连接，浏览器凭最后事件 ID 自动重连
+                .timeout(Duration.ofSeconds(streamReplayConfig.getRemoteIdleSeconds()), Flux.empty())
+                .map(record -> ServerSentEvent.<String>builder()
+                        .id(sessionId + ":" + record.getSeq())
+                        .event(record.getEvent())
+                        .data(record.getData())
+                        .build());
+    }
+
+    /**
+     * 读取游标之后的新事件并推进游标；缺失的事件已被淘汰时与会话内回放一致，先补一个 reset 事件
+     */
+    private List<SseRecord> readNewRecords(String sessionId, AtomicLong cursor) {
+        long afterSeq = cursor.get();
+        List<SseRecord> records = sseReplayStore.readRange(sessionId, afterSeq, Long.MAX_VALUE);
+        if (records.isEmpty()) {
+            return records;
+        }
+        List<SseRecord> result = new ArrayList<>(records.size() + 1);
+        long firstSeq = records.get(0).getSeq();
+        if (firstSeq > afterSeq + 1) {
+            log.warn("回放缓冲区已淘汰部分事件, sessionId: {}, afterSeq: {}, fromSeq: {}", sessionId, afterSeq, firstSeq);
+            result.add(new SseRecord(firstSeq - 1, "reset", "{\"fromSeq\":" + firstSeq + "}"));
+        }
+        result.addAll(records);
+        cursor.set(records.get(records.size() - 1).getSeq());
+        return result;
+    }
+
+    /**
+     * 观看应用正在进行的生成（如第二个标签页或管理员），从缓冲区保留的第一条事件开始回放
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     * @return SSE 事件流
+     */
+    public Flux<ServerSentEvent<String>> attachToApp(Long appId, User loginUser) {
+        GenerationSession session = getSession(activeSessionIds.get(appId));
+        ThrowUtils.throwIf(session == null, ErrorCode.NOT_FOUND_ERROR, "该应用当前没有进行中的生成");
+        checkViewPermission(session.getUserId(), loginUser);
+        log.info("接入生成会话, sessionId: {}, userId: {}", session.getId(), loginUser.getId());
+        return attach(session, 0);
+    }
+
+    /**
+     * 获取会话
+     *
+     * @param sessionId 会话 ID
+     * @return 会话，不存在时返回 null
+     */
+    public GenerationSession getSession(String sessionId) {
+        if (StrUtil.isBlank(sessionId)) {
+            return null;
+        }
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * 进行中的会话数量
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    private void acquireSlot() {
+        int maxActiveSessions = generationSessionConfig.getMaxActiveSessions();
+        while (true) {
+            int current = activeCount.get();
+            ThrowUtils.throwIf(current >= maxActiveSessions, ErrorCode.TOO_MANY_REQUEST, "当前生成任务过多，请稍后再试");
+            if (activeCount.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 仅本人或管理员可以观看
+     */
+    private void checkViewPermission(Long ownerId, User loginUser) {
+        boolean isAdmin = UserConstants.ADMIN_ROLE.equals(loginUser.getUserRole());
+        ThrowUtils.throwIf(!ownerId.equals(loginUser.getId()) && !isAdmin,
+                ErrorCode.NO_AUTH_ERROR, "无权限访问该生成会话");
+    }
+
+    private void onSessionTerminated(GenerationSession session) {
+        activeCount.decrementAndGet();
+        activeSessionIds.remove(session.getAppId(), session.getId());
+        scheduleCleanup(session.getId());
+    }
+
+    /**
+     * 会话结束后保留一段时间供重连回放，到期后清理
+     */
+    private void scheduleCleanup(String sessionId) {
+        Schedulers.parallel().schedule(() -> {
+            GenerationSession session = sessions.remove(sessionId);
+            if (session != null) {
+                session.dispose();
+            }
+            sseReplayStore.remove(sessionId);
+        }, streamReplayConfig.getTtlSeconds(), TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.usercenterpractice.manager.stream;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 基于本地内存的回放缓冲区
+ * 会话数量与空闲时长由 Caffeine 限制，单个会话的事件数由环形队列限制
+ */
+public class InMemorySseReplayStore implements SseReplayStore {
+
+    private final Cache<String, Deque<SseRecord>> buffers;
+
+    private final Cache<String, SseSessionInfo> sessionInfos;
+
+    private final int maxEventsPerSession;
+
+    public InMemorySseReplayStore(int maxSessions, int maxEventsPerSession, Duration ttl) {
+        this.maxEventsPerSession = maxEventsPerSession;
+        this.buffers = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(ttl)
+                .build();
+        this.sessionInfos = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(ttl)
+                .build();
+    }
+
+    @Override
+    public void saveSessionInfo(String sessionId, SseSessionInfo info) {
+        sessionInfos.put(sessionId, info);
+    }
+
+    @Override
+    public SseSessionInfo getSessionInfo(String sessionId) {
+        return sessionInfos.getIfPresent(sessionId);
+    }
+
+    @Override
+    public void appendAll(String sessionId, List<SseRecord> records) {
+        Deque<SseRecord> buffer = buffers.get(sessionId, key -> new ArrayDeque<>());
+        synchronized (buffer) {
+            buffer.addAll(records);
+            while (buffer.size() > maxEventsPerSession) {
+                buffer.pollFirst();
+            }
+        }
+    }
+
+    @Override
+    public List<SseRecord> readRange(String sessionId, long afterSeq, long upToSeq) {
+        Deque<SseRecord> buffer = buffers.getIfPresent(sessionId);
+        if (buffer == null) {
+            return List.of();
+        }
+        List<SseRecord> result = new ArrayList<>();
+        synchronized (buffer) {
+            for (SseRecord record : buffer) {
+                if (record.getSeq() > afterSeq && record.getSeq() <= upToSeq) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        buffers.invalidate(sessionId);
+        sessionInfos.invalidate(sessionId);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.usercenterpractice.manager.stream;
+
+import cn.hutool.json.JSONUtil;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于 Redis List 的回放缓冲区
+ * 一批事件通过一条 RPUSH 追加后 LTRIM 保留最近的事件，并刷新事件与归属信息的过期时间。
+ * 列表中的序号连续，读取时根据头部事件的序号计算 LRANGE 区间，只传输并解析需要的事件。
+ * 事件与归属信息保存在 Redis 中，重连请求落到其他节点或服务重启后仍可回放。
+ */
+public class RedisSseReplayStore implements SseReplayStore {
+
+    private static final String KEY_PREFIX = "code_gen:sse_replay:";
+
+    private static final String INFO_KEY_PREFIX = "code_gen:sse_replay_info:";
+
+    /**
+     * 读取头部与读取区间之间头部被裁剪时的最多读取次数
+     */
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final int maxEventsPerSession;
+
+    private final Duration ttl;
+
+    public RedisSseReplayStore(StringRedisTemplate stringRedisTemplate, int maxEventsPerSession, Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.maxEventsPerSession = maxEventsPerSession;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public void saveSessionInfo(String sessionId, SseSessionInfo info) {
+        stringRedisTemplate.opsForValue().set(INFO_KEY_PREFIX + sessionId, JSONUtil.toJsonStr(info), ttl);
+    }
+
+    @Override
+    public SseSessionInfo getSessionInfo(String sessionId) {
+        String value = stringRedisTemplate.opsForValue().get(INFO_KEY_PREFIX + sessionId);
+        return value == null ? null : JSONUtil.toBean(value, SseSessionInfo.class);
+    }
+
+    @Override
+    public void appendAll(String sessionId, List<SseRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        byte[] key = (KEY_PREFIX + sessionId).getBytes(StandardCharsets.UTF_8);
+        byte[] infoKey = (INFO_KEY_PREFIX + sessionId).getBytes(StandardCharsets.UTF_8);
+        byte[][] values = new byte[records.size()][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = JSONUtil.toJsonStr(records.get(i)).getBytes(StandardCharsets.UTF_8);
+        }
+        // 四条命令通过管道一次往返发送，生成时间超过过期时间的会话仍保留归属信息
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.listCommands().rPush(key, values);
+            connection.listCommands().lTrim(key, -maxEventsPerSession, -1);
+            connection.keyCommands().expire(key, ttl.toSeconds());
+            connection.keyCommands().expire(infoKey, ttl.toSeconds());
+            return null;
+        });
+    }
+
+    @Override
+    public List<SseRecord> readRange(String sessionId, long afterSeq, long upToSeq) {
+        String key = KEY_PREFIX + sessionId;
+        ListOperations<String, String> listOperations = stringRedisTemplate.opsForList();
+        List<SseRecord> result = List.of();
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            String head = listOperations.index(key, 0);
+            if (head == null) {
+                return List.of();
+            }
+            long headSeq = JSONUtil.toBean(head, SseRecord.class).getSeq();
+            long start = Math.max(0, afterSeq + 1 - headSeq);
+            long end = upToSeq == Long.MAX_VALUE ? -1 : upToSeq - headSeq;
+            if (end != -1 && start > end) {
+                return List.of();
+            }
+            List<String> values = listOperations.range(key, start, end);
+            if (values == null || values.isEmpty()) {
+                return List.of();
+            }
+            result = new ArrayList<>(values.size());
+            for (String value : values) {
+                SseRecord record = JSONUtil.toBean(value, SseRecord.class);
+                if (record.getSeq() > afterSeq && record.getSeq() <= upToSeq) {
+                    result.add(record);
+                }
+            }
+            // 两次读取之间有新事件写入并裁剪了头部时，区间整体后移会漏读，重新读取
+            if (result.isEmpty() || result.get(0).getSeq() <= Math.max(afterSeq + 1, headSeq)) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        stringRedisTemplate.delete(List.of(KEY_PREFIX + sessionId, INFO_KEY_PREFIX + sessionId));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.usercenterpractice.manager.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 生成会话中的一条 SSE 事件记录
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SseRecord {
+
+    /**
+     * 会话内递增序号，从 1 开始
+     */
+    private long seq;
+
+    /**
+     * 事件名，普通数据事件为 null
+     */
+    private String event;
+
+    /**
+     * 已编码的事件数据
+     */
+    private String data;
+}
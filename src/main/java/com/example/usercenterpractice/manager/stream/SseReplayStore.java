@@ -0,0 +1,51 @@
+package com.example.usercenterpractice.manager.stream;
+
+import java.util.List;
+
+/**
+ * 生成会话的 SSE 事件回放缓冲区
+ * 每个会话只保留最近的有限条事件，用于断线重连时补发
+ */
+public interface SseReplayStore {
+
+    /**
+     * 保存会话归属信息，过期时间与事件一致
+     *
+     * @param sessionId 会话 ID
+     * @param info      归属信息
+     */
+    void saveSessionInfo(String sessionId, SseSessionInfo info);
+
+    /**
+     * 读取会话归属信息
+     *
+     * @param sessionId 会话 ID
+     * @return 归属信息，不存在或已过期时返回 null
+     */
+    SseSessionInfo getSessionInfo(String sessionId);
+
+    /**
+     * 按序号顺序追加一批事件
+     *
+     * @param sessionId 会话 ID
+     * @param records   事件记录，按序号升序
+     */
+    void appendAll(String sessionId, List<SseRecord> records);
+
+    /**
+     * 读取序号在 (afterSeq, upToSeq] 区间内仍保留的事件，按序号升序
+     *
+     * @param sessionId 会话 ID
+     * @param afterSeq  客户端已收到的最后一个序号
+     * @param upToSeq   读取的最大序号（含）
+     * @return 事件列表
+     */
+    List<SseRecord> readRange(String sessionId, long afterSeq, long upToSeq);
+
+    /**
+     * 删除会话的全部事件及归属信息
+     *
+     * @param sessionId 会话 ID
+     */
+    void remove(String sessionId);
+}
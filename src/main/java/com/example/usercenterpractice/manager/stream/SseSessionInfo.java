@@ -0,0 +1,25 @@
+package com.example.usercenterpractice.manager.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 生成会话的归属信息，与事件一同保存在回放缓冲区中
+ * 重连请求落到未持有该会话的节点（或服务重启后）时，据此校验权限并从回放缓冲区恢复
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SseSessionInfo {
+
+    /**
+     * 应用 ID
+     */
+    private Long appId;
+
+    /**
+     * 发起生成的用户 ID
+     */
+    private Long userId;
+}
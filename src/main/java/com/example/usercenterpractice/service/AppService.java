@@ -53,6 +53,7 @@ public interface AppService extends IService<App> {
 
     /**
      * 创建应用（使用 AI 智能选择代码生成类型）
+     * 开启异步路由时应用先以待定类型入库，类型在后台识别完成后写回
      *
      * @param appAddRequest 创建应用请求
      * @param loginUser     登录用户
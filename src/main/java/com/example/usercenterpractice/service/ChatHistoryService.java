@@ -7,7 +7,7 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import com.example.usercenterpractice.model.domain.ChatHistory;
 import com.example.usercenterpractice.model.domain.User;
 import com.example.usercenterpractice.model.dto.chathistory.ChatHistoryQueryRequest;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import reactor.core.publisher.Flux;
 
 import java.time.LocalDateTime;
@@ -29,5 +29,14 @@ public interface ChatHistoryService extends IService<ChatHistory> {
                                                LocalDateTime lastCreateTime,
                                                User loginUser);
 
-    int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount);
+    /**
+     * 将最近的对话历史批量加载到对话记忆存储中（以 appId 作为记忆 ID）
+     * 在内存中构建消息窗口后一次性写入存储，替换原有记忆
+     *
+     * @param appId           应用 ID
+     * @param chatMemoryStore 对话记忆存储
+     * @param maxCount        最多加载的消息数，应与对话记忆的窗口大小一致
+     * @return 加载的消息数
+     */
+    int loadChatHistoryToMemory(Long appId, ChatMemoryStore chatMemoryStore, int maxCount);
 }
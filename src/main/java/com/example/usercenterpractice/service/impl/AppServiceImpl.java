@@ -6,15 +6,19 @@ import cn.hutool.core.util.RandomUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 
-import com.example.usercenterpractice.ai.AiCodeGenTypeRoutingService;
-import com.example.usercenterpractice.ai.AiCodeGenTypeRoutingServiceFactory;
+import com.example.usercenterpractice.ai.routing.CodeGenTypeRouter;
+import com.example.usercenterpractice.ai.routing.CodeGenTypeRoutingExecutor;
 import com.example.usercenterpractice.ai.core.AiCodeGeneratorFacade;
 import com.example.usercenterpractice.ai.core.builder.VueProjectBuilder;
+import com.example.usercenterpractice.ai.handler.StreamChunkCoalescer;
 import com.example.usercenterpractice.ai.handler.StreamHandlerExecutor;
+import com.example.usercenterpractice.ai.model.message.StreamMessage;
+import com.example.usercenterpractice.config.CodeGenRoutingConfig;
 import com.example.usercenterpractice.constant.AppConstant;
 import com.example.usercenterpractice.exception.BusinessException;
 import com.example.usercenterpractice.exception.ErrorCode;
 import com.example.usercenterpractice.exception.ThrowUtils;
+import com.example.usercenterpractice.manager.admission.GenerationAdmissionScheduler;
 import com.example.usercenterpractice.mapper.AppMapper;
 import com.example.usercenterpractice.model.domain.App;
 import com.example.usercenterpractice.model.domain.User;
@@ -38,6 +42,8 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.GetMapping;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.File;
 import java.io.Serializable;
@@ -61,13 +67,22 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>
     @Resource
     private StreamHandlerExecutor streamHandlerExecutor;
     @Resource
+    private StreamChunkCoalescer streamChunkCoalescer;
+    @Resource
+    private GenerationAdmissionScheduler generationAdmissionScheduler;
+    @Resource
     private VueProjectBuilder vueProjectBuilder;
     @Resource
     private ScreenshotService screenshotService;
-
     @Resource
-    private AiCodeGenTypeRoutingServiceFactory aiCodeGenTypeRoutingServiceFactory;
+    private Scheduler blockingScheduler;
 
+    @Resource
+    private CodeGenTypeRouter codeGenTypeRouter;
+    @Resource
+    private CodeGenTypeRoutingExecutor codeGenTypeRoutingExecutor;
+    @Resource
+    private CodeGenRoutingConfig codeGenRoutingConfig;
 
 
     @Resource
@@ -79,20 +94,47 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>
         // 参数校验
         String initPrompt = appAddRequest.getInitPrompt();
         ThrowUtils.throwIf(StrUtil.isBlank(initPrompt), ErrorCode.PARAMS_ERROR, "初始化 prompt 不能为空");
-        // 使用 AI 智能选择代码生成类型（多例模式）
-        AiCodeGenTypeRoutingService routingService = aiCodeGenTypeRoutingServiceFactory.createAiCodeGenTypeRoutingService();
-        CodeGenTypeEnum selectedCodeGenType = routingService.routeCodeGenType(initPrompt);  // 构造入库对象
+        // 选择代码生成类型：结果缓存 -> 本地分类器 -> 路由模型；异步路由时先以待定类型入库
+        boolean asyncRouting = Boolean.TRUE.equals(codeGenRoutingConfig.getAsyncEnabled());
+        String codeGenType = asyncRouting ? AppConstant.CODE_GEN_TYPE_PENDING
+                : codeGenTypeRouter.route(initPrompt).getValue();
+        // 构造入库对象
         App app = new App();
         BeanUtil.copyProperties(appAddRequest, app);
         app.setUserId(loginUser.getId());
         // 应用名称暂时为 initPrompt 前 12 位
         app.setAppName(initPrompt.substring(0, Math.min(initPrompt.length(), 12)));
-        app.setCodeGenType(selectedCodeGenType.getValue());
+        app.setCodeGenType(codeGenType);
         // 使用 MyBatis-Plus 的 save 方法插入数据库
         boolean result = this.save(app);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
-        log.info("应用创建成功，ID: {}, 类型: {}", app.getId(), selectedCodeGenType.getValue());
-        return app.getId();
+        Long appId = app.getId();
+        if (asyncRouting) {
+            // 后台路由，结果写回数据库；客户端可轮询应用详情获取类型，生成代码时会等待路由结果
+            codeGenTypeRoutingExecutor.submit(appId, initPrompt, type -> saveRoutedCodeGenType(appId, type));
+        }
+        log.info("应用创建成功，ID: {}, 类型: {}", appId, codeGenType);
+        return appId;
+    }
+
+    /**
+     * 写回路由结果，仅在类型仍为待定时更新
+     *
+     * @return 最终生效的代码生成类型（其他节点已写入时以其结果为准）
+     */
+    private CodeGenTypeEnum saveRoutedCodeGenType(Long appId, CodeGenTypeEnum codeGenType) {
+        boolean updated = this.lambdaUpdate()
+                .set(App::getCodeGenType, codeGenType.getValue())
+                .eq(App::getId, appId)
+                .eq(App::getCodeGenType, AppConstant.CODE_GEN_TYPE_PENDING)
+                .update();
+        if (updated) {
+            log.info("应用类型路由完成，ID: {}, 类型: {}", appId, codeGenType.getValue());
+            return codeGenType;
+        }
+        App app = this.getById(appId);
+        CodeGenTypeEnum current = app == null ? null : CodeGenTypeEnum.getEnumByValue(app.getCodeGenType());
+        return current != null ? current : codeGenType;
     }
 
     @Override
@@ -164,6 +206,34 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>
         // 1. 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
+        // 2~5 涉及数据库读写，在阻塞调度器上执行，请求线程返回 Flux 后即可释放
+        return Mono.fromCallable(() -> prepareGeneration(appId, message, loginUser))
+                .subscribeOn(blockingScheduler)
+                .flatMapMany(codeGenTypeEnum -> {
+                    // 6. 调用 AI 生成代码（流式），并收集 AI 响应内容在完成后记录到对话历史
+                    Flux<String> handledStream;
+                    // 上游模型流经准入调度器：超出并发上限时按用户公平排队，排队位置以 queue 事件推送
+                    if (codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT) {
+                        // Vue 工程模式直接传递类型化消息，不在进程内做 JSON 往返
+                        Flux<StreamMessage> messageStream = generationAdmissionScheduler.admit(codeGenTypeEnum, loginUser,
+                                () -> aiCodeGeneratorFacade.generateVueProjectMessageStream(message, appId));
+                        handledStream = streamHandlerExecutor.doExecuteMessages(messageStream, chatHistoryService, appId, loginUser);
+                    } else {
+                        Flux<String> codeStream = generationAdmissionScheduler.admit(codeGenTypeEnum, loginUser,
+                                () -> aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId, loginUser.getId()));
+                        handledStream = streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
+                    }
+                    // 7. 按时间窗口/字节数合并片段，减少 SSE 事件与写入次数
+                    return streamChunkCoalescer.coalesce(handledStream, codeGenTypeEnum);
+                });
+    }
+
+    /**
+     * 生成前的校验与准备：查询应用、校验权限并记录用户消息（阻塞调用）
+     *
+     * @return 应用的代码生成类型
+     */
+    private CodeGenTypeEnum prepareGeneration(Long appId, String message, User loginUser) {
         // 2. 查询应用信息
         App app = this.getById(appId);
         ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
@@ -171,9 +241,13 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>
         if (!app.getUserId().equals(loginUser.getId())) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
         }
-
         // 4. 获取应用的代码生成类型
         String codeGenTypeStr = app.getCodeGenType();
+        if (AppConstant.CODE_GEN_TYPE_PENDING.equals(codeGenTypeStr)) {
+            // 类型仍在后台路由中，等待路由结果
+            codeGenTypeStr = codeGenTypeRoutingExecutor.await(appId, app.getInitPrompt(),
+                    type -> saveRoutedCodeGenType(appId, type)).getValue();
+        }
         CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(codeGenTypeStr);
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型");
@@ -181,11 +255,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>
         // 5. 通过校验后，添加用户消息到对话历史
         chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(),
                 loginUser.getId());
-        // 6. 调用 AI 生成代码（流式）
-        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
-        // 7. 收集 AI 响应内容并在完成后记录到对话历史
-        return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
-
+        return codeGenTypeEnum;
     }
 
     @Override
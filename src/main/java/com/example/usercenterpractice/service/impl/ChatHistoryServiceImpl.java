@@ -20,14 +20,20 @@ import com.example.usercenterpractice.service.AppService;
 import com.example.usercenterpractice.service.ChatHistoryService;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import org.springframework.context.annotation.Lazy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author 86150
@@ -46,6 +52,22 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     @Lazy
     private AppService appService;
 
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 对话记忆加载耗时（应用 ID 不作为标签以免指标基数无限增长，单个应用的耗时见日志）
+     */
+    private Timer hydrationTimer;
+
+    @PostConstruct
+    public void initMetrics() {
+        hydrationTimer = Timer.builder("code_gen.memory.hydration")
+                .description("从数据库加载对话历史到对话记忆的耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
     @Override
     public boolean addChatMessage(Long appId, String message, String messageType, Long userId) {
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID不能为空");
@@ -135,7 +157,8 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     }
 
     @Override
-    public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount) {
+    public int loadChatHistoryToMemory(Long appId, ChatMemoryStore chatMemoryStore, int maxCount) {
+        long startNanos = System.nanoTime();
         try {
             // 直接构造查询条件，按 createTime 降序，跳过最新的1条记录，使用 LIMIT 限制返回数量
             QueryWrapper<ChatHistory> queryWrapper = new QueryWrapper<ChatHistory>()
@@ -148,21 +171,22 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
             }
             // 反转列表，确保按时间正序（老的在前，新的在后）
             List<ChatHistory> reversedList = CollUtil.reverse(historyList);
-            // 按时间顺序添加到记忆中
-            int loadedCount = 0;
-            // 先清理历史缓存，防止重复加载
-            chatMemory.clear();
+            // 在内存中按时间顺序构建消息窗口
+            List<ChatMessage> messages = new ArrayList<>(reversedList.size());
             for (ChatHistory history : reversedList) {
                 if (ChatHistoryMessageTypeEnum.USER.getValue().equals(history.getMessageType())) {
-                    chatMemory.add(UserMessage.from(history.getMessage()));
-                    loadedCount++;
+                    messages.add(UserMessage.from(history.getMessage()));
                 } else if (ChatHistoryMessageTypeEnum.AI.getValue().equals(history.getMessageType())) {
-                    chatMemory.add(AiMessage.from(history.getMessage()));
-                    loadedCount++;
+                    messages.add(AiMessage.from(history.getMessage()));
                 }
             }
-            log.info("成功为 appId: {} 加载了 {} 条历史对话", appId, loadedCount);
-            return loadedCount;
+            // 一次性写入存储并替换原有记忆，避免逐条 add 导致每次都重新序列化并写回整个列表
+            chatMemoryStore.updateMessages(appId, messages);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            hydrationTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            log.info("成功为 appId: {} 加载了 {} 条历史对话，耗时 {} ms", appId, messages.size(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            return messages.size();
         } catch (Exception e) {
             log.error("加载历史对话失败，appId: {}, error: {}", appId, e.getMessage(), e);
             // 加载失败不影响系统运行，只是没有历史上下文
@@ -0,0 +1,121 @@
+package com.example.usercenterpractice.utils;
+
+import org.springframework.http.codec.ServerSentEvent;
+
+/**
+ * SSE 事件编码工具类
+ * 将流式片段直接转义写入线程复用的缓冲区，生成 {"d":"..."} 格式的事件数据，
+ * 避免每个 token 都构建 Map 和 JSON 树。
+ */
+public class SseEventEncoder {
+
+    /**
+     * 结束事件（不可变，全局复用）
+     */
+    public static final ServerSentEvent<String> DONE_EVENT = ServerSentEvent.<String>builder()
+            .event("done")
+            .data("")
+            .build();
+
+    /**
+     * 缓冲区超过该容量时不再复用，避免个别超长片段长期占用内存
+     */
+    private static final int MAX_REUSE_CAPACITY = 16 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private SseEventEncoder() {
+    }
+
+    /**
+     * 构建数据事件
+     *
+     * @param chunk 流式片段
+     * @return data 为 {"d":"chunk"} 的 SSE 事件
+     */
+    public static ServerSentEvent<String> dataEvent(String chunk) {
+        return ServerSentEvent.<String>builder()
+                .data(encode("d", chunk))
+                .build();
+    }
+
+    /**
+     * 构建带事件名的事件，data 为 {"key":"value"}
+     *
+     * @param event 事件名
+     * @param key   字段名（调用方保证无需转义）
+     * @param value 字段值
+     * @return SSE 事件
+     */
+    public static ServerSentEvent<String> namedEvent(String event, String key, String value) {
+        return ServerSentEvent.<String>builder()
+                .event(event)
+                .data(encode(key, value))
+                .build();
+    }
+
+    /**
+     * 编码为单字段 JSON 对象 {"key":"value"}
+     *
+     * @param key   字段名（调用方保证无需转义）
+     * @param value 字段值，null 按空字符串处理
+     * @return JSON 字符串
+     */
+    public static String encode(String key, String value) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.append("{\"").append(key).append("\":\"");
+        appendEscaped(buffer, value);
+        buffer.append("\"}");
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_REUSE_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * 按 JSON 字符串规则转义并追加，非 ASCII 字符原样输出
+     */
+    static void appendEscaped(StringBuilder buffer, String value) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement = null;
+            switch (c) {
+                case '"' -> replacement = "\\\"";
+                case '\\' -> replacement = "\\\\";
+                case '\n' -> replacement = "\\n";
+                case '\r' -> replacement = "\\r";
+                case '\t' -> replacement = "\\t";
+                case '\b' -> replacement = "\\b";
+                case '\f' -> replacement = "\\f";
+                default -> {
+                    // 其余控制字符及 JS 行分隔符统一输出为 unicode 转义
+                    if (c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                        continue;
+                    }
+                }
+            }
+            // 批量追加上一个转义位置到当前位置之间的原始内容
+            buffer.append(value, start, i);
+            if (replacement != null) {
+                buffer.append(replacement);
+            } else {
+                buffer.append("\\u")
+                        .append(HEX_DIGITS[(c >> 12) & 0xF])
+                        .append(HEX_DIGITS[(c >> 8) & 0xF])
+                        .append(HEX_DIGITS[(c >> 4) & 0xF])
+                        .append(HEX_DIGITS[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        buffer.append(value, start, length);
+    }
+}
@@ -0,0 +1,322 @@
+package dev.langchain4j.model.openai;
+
+import dev.langchain4j.Internal;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.internal.chat.*;
+import dev.langchain4j.model.openai.internal.completion.CompletionChoice;
+import dev.langchain4j.model.openai.internal.completion.CompletionResponse;
+import dev.langchain4j.model.openai.internal.shared.Usage;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static dev.langchain4j.internal.Utils.isNullOrBlank;
+import static dev.langchain4j.internal.Utils.isNullOrEmpty;
+import static dev.langchain4j.model.openai.internal.OpenAiUtils.finishReasonFrom;
+import static dev.langchain4j.model.openai.internal.OpenAiUtils.tokenUsageFrom;
+import static java.util.Collections.singletonList;
+
+/**
+ * Single-writer accumulator for a streamed chat completion.
+ * <p>
+ * {@link OpenAiStreamingChatModel} calls {@link #append} from the SSE callback of one response and {@link #build()}
+ * from its completion callback. Those callbacks are delivered serially and in order (possibly on different threads,
+ * but each one happens-before the next), so the builder keeps plain fields instead of synchronized buffers and
+ * atomics. Content and tool-call arguments go into chunked char storage that never copies on growth, and tool-call
+ * builders live in an array indexed by the tool-call index. Instances must not be shared between concurrent streams;
+ * use {@link OpenAiStreamingResponseBuilder} where partial responses may be appended from several threads at once.
+ */
+@Internal
+public class SingleWriterOpenAiStreamingResponseBuilder {
+
+    private final ChunkedCharBuffer contentBuilder = new ChunkedCharBuffer();
+
+    private final StringBuilder toolNameBuilder = new StringBuilder();
+    private final ChunkedCharBuffer toolArgumentsBuilder = new ChunkedCharBuffer();
+
+    private ToolExecutionRequestBuilder[] indexToToolExecutionRequestBuilder = new ToolExecutionRequestBuilder[0];
+    private int toolExecutionRequestBuilderCount;
+
+    private String id;
+    private Long created;
+    private String model;
+    private String serviceTier;
+    private String systemFingerprint;
+    private TokenUsage tokenUsage;
+    private FinishReason finishReason;
+
+    public void append(ChatCompletionResponse partialResponse) {
+        if (partialResponse == null) {
+            return;
+        }
+
+        if (!isNullOrBlank(partialResponse.id())) {
+            this.id = partialResponse.id();
+        }
+        if (partialResponse.created() != null) {
+            this.created = partialResponse.created();
+        }
+        if (!isNullOrBlank(partialResponse.model())) {
+            this.model = partialResponse.model();
+        }
+        if (!isNullOrBlank(partialResponse.serviceTier())) {
+            this.serviceTier = partialResponse.serviceTier();
+        }
+        if (!isNullOrBlank(partialResponse.systemFingerprint())) {
+            this.systemFingerprint = partialResponse.systemFingerprint();
+        }
+
+        Usage usage = partialResponse.usage();
+        if (usage != null) {
+            this.tokenUsage = tokenUsageFrom(usage);
+        }
+
+        List<ChatCompletionChoice> choices = partialResponse.choices();
+        if (choices == null || choices.isEmpty()) {
+            return;
+        }
+
+        ChatCompletionChoice chatCompletionChoice = choices.get(0);
+        if (chatCompletionChoice == null) {
+            return;
+        }
+
+        String finishReason = chatCompletionChoice.finishReason();
+        if (finishReason != null) {
+            this.finishReason = finishReasonFrom(finishReason);
+        }
+
+        Delta delta = chatCompletionChoice.delta();
+        if (delta == null) {
+            return;
+        }
+
+        String content = delta.content();
+        if (!isNullOrEmpty(content)) {
+            this.contentBuilder.append(content);
+        }
+
+        if (delta.functionCall() != null) {
+            FunctionCall functionCall = delta.functionCall();
+
+            if (functionCall.name() != null) {
+                this.toolNameBuilder.append(functionCall.name());
+            }
+
+            if (functionCall.arguments() != null) {
+                this.toolArgumentsBuilder.append(functionCall.arguments());
+            }
+        }
+
+        if (delta.toolCalls() != null) {
+            for (ToolCall toolCall : delta.toolCalls()) {
+
+                ToolExecutionRequestBuilder builder = toolExecutionRequestBuilder(toolCall.index());
+
+                if (toolCall.id() != null) {
+                    builder.idBuilder.append(toolCall.id());
+                }
+
+                FunctionCall functionCall = toolCall.function();
+                if (functionCall.name() != null) {
+                    builder.nameBuilder.append(functionCall.name());
+                }
+
+                if (functionCall.arguments() != null) {
+                    builder.argumentsBuilder.append(functionCall.arguments());
+                }
+            }
+        }
+    }
+
+    public void append(CompletionResponse partialResponse) {
+        if (partialResponse == null) {
+            return;
+        }
+
+        Usage usage = partialResponse.usage();
+        if (usage != null) {
+            this.tokenUsage = tokenUsageFrom(usage);
+        }
+
+        List<CompletionChoice> choices = partialResponse.choices();
+        if (choices == null || choices.isEmpty()) {
+            return;
+        }
+
+        CompletionChoice completionChoice = choices.get(0);
+        if (completionChoice == null) {
+            return;
+        }
+
+        String finishReason = completionChoice.finishReason();
+        if (finishReason != null) {
+            this.finishReason = finishReasonFrom(finishReason);
+        }
+
+        String token = completionChoice.text();
+        if (token != null) {
+            this.contentBuilder.append(token);
+        }
+    }
+
+    public ChatResponse build() {
+
+        OpenAiChatResponseMetadata chatResponseMetadata = OpenAiChatResponseMetadata.builder()
+                .id(id)
+                .modelName(model)
+                .tokenUsage(tokenUsage)
+                .finishReason(finishReason)
+                .created(created)
+                .serviceTier(serviceTier)
+                .systemFingerprint(systemFingerprint)
+                .build();
+
+        String text = contentBuilder.toString();
+
+        String toolName = toolNameBuilder.toString();
+        if (!toolName.isEmpty()) {
+            ToolExecutionRequest toolExecutionRequest = ToolExecutionRequest.builder()
+                    .name(toolName)
+                    .arguments(toolArgumentsBuilder.toString())
+                    .build();
+
+            AiMessage aiMessage = isNullOrBlank(text) ?
+                    AiMessage.from(toolExecutionRequest) :
+                    AiMessage.from(text, singletonList(toolExecutionRequest));
+
+            return ChatResponse.builder()
+                    .aiMessage(aiMessage)
+                    .metadata(chatResponseMetadata)
+                    .build();
+        }
+
+        if (toolExecutionRequestBuilderCount > 0) {
+            List<ToolExecutionRequest> toolExecutionRequests = new ArrayList<>(toolExecutionRequestBuilderCount);
+            for (ToolExecutionRequestBuilder it : indexToToolExecutionRequestBuilder) {
+                if (it != null) {
+                    toolExecutionRequests.add(ToolExecutionRequest.builder()
+                            .id(it.idBuilder.toString())
+                            .name(it.nameBuilder.toString())
+                            .arguments(it.argumentsBuilder.toString())
+                            .build());
+                }
+            }
+
+            AiMessage aiMessage = isNullOrBlank(text) ?
+                    AiMessage.from(toolExecutionRequests) :
+                    AiMessage.from(text, toolExecutionRequests);
+
+            return ChatResponse.builder()
+                    .aiMessage(aiMessage)
+                    .metadata(chatResponseMetadata)
+                    .build();
+        }
+
+        if (!isNullOrBlank(text)) {
+            AiMessage aiMessage = AiMessage.from(text);
+            return ChatResponse.builder()
+                    .aiMessage(aiMessage)
+                    .metadata(chatResponseMetadata)
+                    .build();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the builder for the given tool-call index, growing the index array on demand.
+     * A missing index (sent by some OpenAI-compatible providers) is treated as 0.
+     */
+    private ToolExecutionRequestBuilder toolExecutionRequestBuilder(Integer toolCallIndex) {
+        int index = toolCallIndex == null ? 0 : toolCallIndex;
+        if (index >= indexToToolExecutionRequestBuilder.length) {
+            indexToToolExecutionRequestBuilder = Arrays.copyOf(indexToToolExecutionRequestBuilder,
+                    Math.max(index + 1, indexToToolExecutionRequestBuilder.length * 2));
+        }
+        ToolExecutionRequestBuilder builder = indexToToolExecutionRequestBuilder[index];
+        if (builder == null) {
+            builder = new ToolExecutionRequestBuilder();
+            indexToToolExecutionRequestBuilder[index] = builder;
+            toolExecutionRequestBuilderCount++;
+        }
+        return builder;
+    }
+
+    private static class ToolExecutionRequestBuilder {
+
+        private final StringBuilder idBuilder = new StringBuilder();
+        private final StringBuilder nameBuilder = new StringBuilder();
+        private final ChunkedCharBuffer argumentsBuilder = new ChunkedCharBuffer();
+    }
+
+    /**
+     * Append-only char storage made of geometrically growing chunks.
+     * Unlike {@link StringBuilder}, growing never copies the chars appended so far; they are copied exactly once
+     * when the final string is built.
+     */
+    static final class ChunkedCharBuffer {
+
+        private static final int FIRST_CHUNK_SIZE = 256;
+        private static final int MAX_CHUNK_SIZE = 16 * 1024;
+
+        private char[][] chunks = new char[4][];
+        private int chunkCount;
+        private char[] current;
+        private int position;
+        private int length;
+
+        void append(String value) {
+            int offset = 0;
+            int remaining = value.length();
+            while (remaining > 0) {
+                if (current == null || position == current.length) {
+                    addChunk();
+                }
+                int count = Math.min(remaining, current.length - position);
+                value.getChars(offset, offset + count, current, position);
+                position += count;
+                offset += count;
+                remaining -= count;
+            }
+            length += value.length();
+        }
+
+        int length() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            if (length == 0) {
+                return "";
+            }
+            if (chunkCount == 1) {
+                return new String(current, 0, position);
+            }
+            char[] chars = new char[length];
+            int destination = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                int count = i == chunkCount - 1 ? position : chunks[i].length;
+                System.arraycopy(chunks[i], 0, chars, destination, count);
+                destination += count;
+            }
+            return new String(chars);
+        }
+
+        private void addChunk() {
+            int size = current == null ? FIRST_CHUNK_SIZE : Math.min(MAX_CHUNK_SIZE, current.length * 2);
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            current = new char[size];
+            chunks[chunkCount++] = current;
+            position = 0;
+        }
+    }
+}
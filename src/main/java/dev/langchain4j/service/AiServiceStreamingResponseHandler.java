@@ -1,5 +1,10 @@
 package dev.langchain4j.service;
 
+import com.example.usercenterpractice.ai.memory.ToolLoopChatMemory;
+import com.example.usercenterpractice.ai.stream.CancellationToken;
+import com.example.usercenterpractice.ai.tools.ParallelToolExecutor;
+import com.example.usercenterpractice.ai.tools.StreamingFileWrite;
+import com.example.usercenterpractice.ai.tools.StreamingFileWriter;
 import dev.langchain4j.Internal;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
@@ -17,21 +22,34 @@ import dev.langchain4j.model.output.TokenUsage;
 import dev.langchain4j.service.AiServiceContext;
 import dev.langchain4j.service.tool.ToolExecution;
 import dev.langchain4j.service.tool.ToolExecutor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import static dev.langchain4j.internal.Utils.copy;
+import static dev.langchain4j.internal.Utils.isNullOrBlank;
 import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
 
 /**
  * Handles response from a language model for AI Service that is streamed token-by-token. Handles both regular (text)
  * responses and responses with the request to execute one or multiple tools.
+ * <p>
+ * One handler drives the whole tool loop of a generation: after each tool round it issues the follow-up request with
+ * itself as the handler. Each round is written to memory once, and follow-up requests are built from an in-process
+ * working message list instead of re-reading the memory store.
  */
 @Internal
 class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler {
@@ -52,12 +70,23 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
     private final Consumer<Throwable> errorHandler;
 
     private final ChatMemory temporaryMemory;
-    private final TokenUsage tokenUsage;
+    private TokenUsage tokenUsage;
 
     private final List<ToolSpecification> toolSpecifications;
     private final Map<String, ToolExecutor> toolExecutors;
     private final List<String> responseBuffer = new ArrayList<>();
     private final boolean hasOutputGuardrails;
+    private final CancellationToken cancellationToken;
+
+    // Tool-loop state, shared by all rounds of one generation
+    private List<ChatMessage> workingMessages;
+    private int toolRounds;
+    private long roundStartNanos = System.nanoTime();
+    private boolean depthRecorded;
+
+    // File writes whose content is streamed to disk while the tool-call arguments arrive, by tool call id
+    private final Map<String, StreamingFileWrite> streamingWrites = new ConcurrentHashMap<>();
+    private boolean streamingWritesAbortRegistered;
 
     AiServiceStreamingResponseHandler(
             ChatExecutor chatExecutor,
@@ -74,7 +103,8 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
             List<ToolSpecification> toolSpecifications,
             Map<String, ToolExecutor> toolExecutors,
             GuardrailRequestParams commonGuardrailParams,
-            Object methodKey) {
+            Object methodKey,
+            CancellationToken cancellationToken) {
         this.chatExecutor = ensureNotNull(chatExecutor, "chatExecutor");
         this.context = ensureNotNull(context, "context");
         this.memoryId = ensureNotNull(memoryId, "memoryId");
@@ -94,10 +124,14 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
         this.toolSpecifications = copy(toolSpecifications);
         this.toolExecutors = copy(toolExecutors);
         this.hasOutputGuardrails = context.guardrailService().hasOutputGuardrails(methodKey);
+        this.cancellationToken = ensureNotNull(cancellationToken, "cancellationToken");
     }
 
     @Override
     public void onPartialResponse(String partialResponse) {
+        if (cancellationToken.isCancelled()) {
+            return;
+        }
         // If we're using output guardrails, then buffer the partial response until the guardrails have completed
         if (hasOutputGuardrails) {
             responseBuffer.add(partialResponse);
@@ -108,57 +142,64 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
 
     @Override
     public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+        if (cancellationToken.isCancelled()) {
+            return;
+        }
+        streamToolArguments(partialToolExecutionRequest);
         // If we're using output guardrails, then buffer the partial response until the guardrails have completed
         partialToolExecutionRequestHandler.accept(index, partialToolExecutionRequest);
     }
 
     @Override
     public void onCompleteResponse(ChatResponse completeResponse) {
+        if (cancellationToken.isCancelled()) {
+            // The response was cut short by cancellation, so it is neither stored nor acted on
+            recordSkippedTools(completeResponse.aiMessage().toolExecutionRequests().size());
+            abortStreamingWrites();
+            recordToolLoopDepth();
+            return;
+        }
         AiMessage aiMessage = completeResponse.aiMessage();
-        addToMemory(aiMessage);
 
         if (aiMessage.hasToolExecutionRequests()) {
-            for (ToolExecutionRequest toolExecutionRequest : aiMessage.toolExecutionRequests()) {
-                String toolName = toolExecutionRequest.name();
-                ToolExecutor toolExecutor = toolExecutors.get(toolName);
-                String toolExecutionResult = toolExecutor.execute(toolExecutionRequest, memoryId);
-                ToolExecutionResultMessage toolExecutionResultMessage =
-                        ToolExecutionResultMessage.from(toolExecutionRequest, toolExecutionResult);
-                addToMemory(toolExecutionResultMessage);
-
-                if (toolExecutionHandler != null) {
-                    ToolExecution toolExecution = ToolExecution.builder()
-                            .request(toolExecutionRequest)
-                            .result(toolExecutionResult)
-                            .build();
-                    toolExecutionHandler.accept(toolExecution);
-                }
+            List<ChatMessage> roundMessages = new ArrayList<>();
+            roundMessages.add(aiMessage);
+            boolean completed = executeTools(aiMessage.toolExecutionRequests(), roundMessages);
+            // Writes of calls that were not executed (cancelled round) are discarded
+            abortStreamingWrites();
+            if (!completed) {
+                // A cancelled round keeps only the calls that have results, so no stored tool call is left unanswered
+                roundMessages = executedPart(aiMessage, roundMessages);
+            }
+            // The round is persisted with a single memory write
+            persistRound(roundMessages);
+            recordRound();
+            if (!completed || cancellationToken.isCancelled()) {
+                recordToolLoopDepth();
+                return;
             }
+            toolRounds++;
+            tokenUsage = TokenUsage.sum(tokenUsage, completeResponse.metadata().tokenUsage());
+            // Partial responses of a tool round are never released, same as with a fresh handler per round
+            responseBuffer.clear();
 
             ChatRequest chatRequest = ChatRequest.builder()
-                    .messages(messagesToSend(memoryId))
+                    .messages(nextMessages(roundMessages))
                     .toolSpecifications(toolSpecifications)
                     .build();
 
-            var handler = new AiServiceStreamingResponseHandler(
-                    chatExecutor,
-                    context,
-                    memoryId,
-                    partialResponseHandler,
-                    partialToolExecutionRequestHandler,
-                    completeToolExecutionRequestHandler,
-                    toolExecutionHandler,
-                    completeResponseHandler,
-                    errorHandler,
-                    temporaryMemory,
-                    TokenUsage.sum(tokenUsage, completeResponse.metadata().tokenUsage()),
-                    toolSpecifications,
-                    toolExecutors,
-                    commonGuardrailParams,
-                    methodKey);
-
-            context.streamingChatModel.chat(chatRequest, handler);
+            if (cancellationToken.isCancelled()) {
+                recordToolLoopDepth();
+                return;
+            }
+            // This handler iterates over all rounds of the generation instead of allocating one per round
+            roundStartNanos = System.nanoTime();
+            cancellationToken.runBound(() -> context.streamingChatModel.chat(chatRequest, this));
         } else {
+            abortStreamingWrites();
+            addToMemory(aiMessage);
+            recordRound();
+            recordToolLoopDepth();
             if (completeResponseHandler != null) {
                 ChatResponse finalChatResponse = ChatResponse.builder()
                         .aiMessage(aiMessage)
@@ -200,6 +241,187 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
         }
     }
 
+    /**
+     * Executes the tool calls of one round and appends their results to {@code roundMessages} in request order.
+     * Independent tool calls run concurrently when a {@link ParallelToolExecutor} is enabled.
+     *
+     * @return false if the stream was cancelled before all tool calls were executed
+     */
+    private boolean executeTools(List<ToolExecutionRequest> toolExecutionRequests, List<ChatMessage> roundMessages) {
+        ParallelToolExecutor parallelToolExecutor = ParallelToolExecutor.current();
+        AtomicBoolean roundEnded = new AtomicBoolean();
+        List<CompletableFuture<String>> toolExecutionResults = parallelToolExecutor != null && toolExecutionRequests.size() > 1
+                ? parallelToolExecutor.submitAll(toolExecutionRequests, this::executeTool,
+                        () -> roundEnded.get() || cancellationToken.isCancelled())
+                : null;
+        try {
+            for (int i = 0; i < toolExecutionRequests.size(); i++) {
+                if (cancellationToken.isCancelled()) {
+                    recordSkippedTools(toolExecutionRequests.size() - i);
+                    return false;
+                }
+                ToolExecutionRequest toolExecutionRequest = toolExecutionRequests.get(i);
+                String toolExecutionResult = toolExecutionResults == null
+                        ? executeTool(toolExecutionRequest)
+                        : awaitToolExecution(toolExecutionResults.get(i));
+                if (cancellationToken.isCancelled()) {
+                    recordSkippedTools(toolExecutionRequests.size() - i);
+                    return false;
+                }
+                roundMessages.add(ToolExecutionResultMessage.from(toolExecutionRequest, toolExecutionResult));
+
+                if (toolExecutionHandler != null) {
+                    ToolExecution toolExecution = ToolExecution.builder()
+                            .request(toolExecutionRequest)
+                            .result(toolExecutionResult)
+                            .build();
+                    toolExecutionHandler.accept(toolExecution);
+                }
+            }
+            return true;
+        } finally {
+            roundEnded.set(true);
+            if (toolExecutionResults != null) {
+                // Calls already running when the round ends early (cancellation or a failed call) are awaited, so no
+                // tool write lands after the round is over; calls not started yet are skipped
+                ParallelToolExecutor.awaitAll(toolExecutionResults);
+            }
+        }
+    }
+
+    /**
+     * The executed part of a cancelled round: the AI message reduced to the tool calls that have results, followed by
+     * those results. Results are appended in request order, so the executed calls are a prefix of the requests.
+     * Returns an empty list when nothing is left to store.
+     */
+    private static List<ChatMessage> executedPart(AiMessage aiMessage, List<ChatMessage> roundMessages) {
+        List<ChatMessage> results = roundMessages.subList(1, roundMessages.size());
+        List<ToolExecutionRequest> executedRequests = aiMessage.toolExecutionRequests().subList(0, results.size());
+        if (executedRequests.isEmpty() && isNullOrBlank(aiMessage.text())) {
+            return new ArrayList<>();
+        }
+        List<ChatMessage> executedPart = new ArrayList<>(results.size() + 1);
+        executedPart.add(AiMessage.builder()
+                .text(aiMessage.text())
+                .toolExecutionRequests(new ArrayList<>(executedRequests))
+                .build());
+        executedPart.addAll(results);
+        return executedPart;
+    }
+
+    /**
+     * Stores the messages of one round: a single batched write when the memory supports the tool loop,
+     * otherwise one add per message
+     */
+    private void persistRound(List<ChatMessage> roundMessages) {
+        if (roundMessages.isEmpty()) {
+            return;
+        }
+        if (getMemory() instanceof ToolLoopChatMemory toolLoopChatMemory) {
+            toolLoopChatMemory.addAll(roundMessages);
+        } else {
+            roundMessages.forEach(this::addToMemory);
+        }
+    }
+
+    /**
+     * Messages for the next round. With a tool-loop memory they come from the in-process working list, seeded from
+     * the stored memory once and then extended with each round, so the full memory is not re-read every round.
+     */
+    private List<ChatMessage> nextMessages(List<ChatMessage> roundMessages) {
+        if (!(getMemory() instanceof ToolLoopChatMemory toolLoopChatMemory)) {
+            return messagesToSend(memoryId);
+        }
+        if (workingMessages == null) {
+            // The first round has just been persisted, so the stored memory already ends with it
+            workingMessages = new ArrayList<>(toolLoopChatMemory.storedMessages());
+        } else {
+            workingMessages.addAll(roundMessages);
+        }
+        return toolLoopChatMemory.compact(workingMessages);
+    }
+
+    private void recordRound() {
+        Timer.builder("code_gen.tool_loop.round")
+                .description("Latency of one model round including its tool executions and memory write")
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - roundStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordToolLoopDepth() {
+        if (depthRecorded) {
+            return;
+        }
+        depthRecorded = true;
+        DistributionSummary.builder("code_gen.tool_loop.depth")
+                .description("Number of tool rounds of one generation")
+                .register(Metrics.globalRegistry)
+                .record(toolRounds);
+    }
+
+    /**
+     * Streams the arguments of a file write into a temp file while they arrive, so the write is committed with a
+     * rename when the call is executed
+     */
+    private void streamToolArguments(ToolExecutionRequest partialToolExecutionRequest) {
+        StreamingFileWriter streamingFileWriter = StreamingFileWriter.current();
+        if (streamingFileWriter == null || partialToolExecutionRequest.id() == null
+                || !streamingFileWriter.supports(partialToolExecutionRequest.name())) {
+            return;
+        }
+        if (!streamingWritesAbortRegistered) {
+            streamingWritesAbortRegistered = true;
+            cancellationToken.register(this::abortStreamingWrites);
+        }
+        streamingWrites.computeIfAbsent(partialToolExecutionRequest.id(), id -> streamingFileWriter.open(memoryId))
+                .append(partialToolExecutionRequest.arguments());
+        if (cancellationToken.isCancelled()) {
+            // Cancelled while this chunk was written, after the cancellation callback may already have run
+            abortStreamingWrites();
+        }
+    }
+
+    private void abortStreamingWrites() {
+        for (String id : streamingWrites.keySet()) {
+            StreamingFileWrite streamingWrite = streamingWrites.remove(id);
+            if (streamingWrite != null) {
+                streamingWrite.abort();
+            }
+        }
+    }
+
+    private String executeTool(ToolExecutionRequest toolExecutionRequest) {
+        StreamingFileWrite streamingWrite = toolExecutionRequest.id() == null
+                ? null
+                : streamingWrites.remove(toolExecutionRequest.id());
+        if (streamingWrite != null) {
+            String result = streamingWrite.commit(toolExecutionRequest);
+            if (result != null) {
+                return result;
+            }
+        }
+        ToolExecutor toolExecutor = toolExecutors.get(toolExecutionRequest.name());
+        return toolExecutor.execute(toolExecutionRequest, memoryId);
+    }
+
+    private static String awaitToolExecution(CompletableFuture<String> toolExecutionResult) {
+        try {
+            return toolExecutionResult.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void recordSkippedTools(int count) {
+        if (count > 0) {
+            LOG.info("Stream cancelled, skipped {} pending tool execution(s)", count);
+            Metrics.counter("code_gen.cancel.tools.skipped").increment(count);
+        }
+    }
+
     private ChatMemory getMemory() {
         return getMemory(memoryId);
     }
@@ -218,6 +440,11 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
 
     @Override
     public void onError(Throwable error) {
+        if (cancellationToken.isCancelled()) {
+            return;
+        }
+        abortStreamingWrites();
+        recordToolLoopDepth();
         if (errorHandler != null) {
             try {
                 errorHandler.accept(error);
@@ -1,5 +1,6 @@
 package dev.langchain4j.service;
 
+import com.example.usercenterpractice.ai.stream.CancellationToken;
 import dev.langchain4j.Internal;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
@@ -39,6 +40,7 @@ public class AiServiceTokenStream implements dev.langchain4j.service.TokenStream
     private final Object memoryId;
     private final GuardrailRequestParams commonGuardrailParams;
     private final Object methodKey;
+    private final CancellationToken cancellationToken = new CancellationToken();
 
     private Consumer<String> partialResponseHandler;
     private Consumer<List<Content>> contentsHandler;
@@ -130,6 +132,9 @@ public class AiServiceTokenStream implements dev.langchain4j.service.TokenStream
     @Override
     public void start() {
         validateConfiguration();
+        if (cancellationToken.isCancelled()) {
+            return;
+        }
 
         ChatRequest chatRequest = ChatRequest.builder()
                 .messages(messages)
@@ -156,13 +161,20 @@ public class AiServiceTokenStream implements dev.langchain4j.service.TokenStream
                 toolSpecifications,
                 toolExecutors,
                 commonGuardrailParams,
-                methodKey);
+                methodKey,
+                cancellationToken);
 
         if (contentsHandler != null && retrievedContents != null) {
             contentsHandler.accept(retrievedContents);
         }
 
-        context.streamingChatModel.chat(chatRequest, handler);
+        // Bind the token so that the HTTP client can abort the response stream on cancel
+        cancellationToken.runBound(() -> context.streamingChatModel.chat(chatRequest, handler));
+    }
+
+    @Override
+    public void cancel() {
+        cancellationToken.cancel();
     }
 
     private void validateConfiguration() {
@@ -80,4 +80,13 @@ public interface TokenStream {
      * Will send a request to LLM and start response streaming.
      */
     void start();
+
+    /**
+     * Cancels the stream: the in-flight LLM response is aborted, pending tool executions are skipped
+     * and no further callbacks are invoked.
+     * <p>
+     * The default implementation does nothing, for implementations that do not support cancellation.
+     */
+    default void cancel() {
+    }
 }
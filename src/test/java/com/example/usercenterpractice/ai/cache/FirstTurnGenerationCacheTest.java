@@ -0,0 +1,31 @@
+package com.example.usercenterpractice.ai.cache;
+
+import com.example.usercenterpractice.config.FirstTurnCacheConfig;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+class FirstTurnGenerationCacheTest {
+
+    private static final String PROMPT = "为张三的花店做一个网站，联系电话 13800000000，地址在人民路 1 号";
+
+    private static final String RESPONSE = "```html\n<h1>张三花店 13800000000</h1>\n```";
+
+    @Test
+    void cachedResponseIsOnlyReplayedToSameUser() {
+        FirstTurnGenerationCache cache = new FirstTurnGenerationCache();
+        ReflectionTestUtils.setField(cache, "firstTurnCacheConfig", new FirstTurnCacheConfig());
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+
+        cache.record(CodeGenTypeEnum.HTML, 1L, PROMPT, Flux.just(RESPONSE)).blockLast();
+
+        Assertions.assertEquals(RESPONSE, cache.get(CodeGenTypeEnum.HTML, 1L, PROMPT));
+        // 其他用户提出相同需求也不会命中，避免回放他人需求中的个人信息
+        Assertions.assertNull(cache.get(CodeGenTypeEnum.HTML, 2L, PROMPT));
+        Assertions.assertNull(cache.get(CodeGenTypeEnum.MULTI_FILE, 1L, PROMPT));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.usercenterpractice.ai.cache;
+
+import com.example.usercenterpractice.ai.routing.CodeGenTypeClassifier;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+class MinHashLshIndexTest {
+
+    private final MinHashLshIndex<String> index = new MinHashLshIndex<>(3, 128, 32, 100, Duration.ofMinutes(1));
+
+    @Test
+    void nearDuplicatePromptHits() {
+        index.put("html", normalize("做一个简单的HTML页面，展示我的个人介绍"), "cached");
+
+        MinHashLshIndex.Match<String> match = index.findSimilar("html", normalize("做一个简单的 html 页面，展示我的个人介绍！"), 0.85);
+        Assertions.assertNotNull(match);
+        Assertions.assertEquals("cached", match.value());
+        Assertions.assertEquals(1.0, match.similarity());
+
+        match = index.findSimilar("html", normalize("帮我做一个简单的HTML页面，展示我的个人介绍"), 0.7);
+        Assertions.assertNotNull(match);
+        Assertions.assertTrue(match.similarity() < 1.0);
+    }
+
+    @Test
+    void differentPromptOrTypeMisses() {
+        index.put("html", normalize("做一个红色主题的生日祝福贺卡"), "red");
+
+        Assertions.assertNull(index.findSimilar("html", normalize("做一个蓝色主题的生日祝福贺卡"), 0.85));
+        Assertions.assertNull(index.findSimilar("multi_file", normalize("做一个红色主题的生日祝福贺卡"), 0.85));
+    }
+
+    @Test
+    void signatureSimilarityEstimatesJaccard() {
+        // 3-gram 集合分别为 26、28 个，其中 20 个相同，Jaccard 为 20 / 34
+        String a = "abcdefghijklmnopqrstuvwxyzabcd";
+        String b = "abcdefghijklmnopqrstuvABCDEFGH";
+        double similarity = MinHashLshIndex.similarity(index.signature(a), index.signature(b));
+        Assertions.assertEquals(20.0 / 34, similarity, 0.15);
+    }
+
+    private static String normalize(String prompt) {
+        return CodeGenTypeClassifier.normalize(prompt);
+    }
+}
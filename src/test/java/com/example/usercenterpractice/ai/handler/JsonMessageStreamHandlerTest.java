@@ -0,0 +1,85 @@
+package com.example.usercenterpractice.ai.handler;
+
+import cn.hutool.json.JSONUtil;
+import com.example.usercenterpractice.ai.model.message.AiResponseMessage;
+import com.example.usercenterpractice.ai.model.message.StreamMessage;
+import com.example.usercenterpractice.ai.model.message.ToolExecutedMessage;
+import com.example.usercenterpractice.ai.model.message.ToolRequestMessage;
+import com.example.usercenterpractice.ai.tools.FileWriteTool;
+import com.example.usercenterpractice.ai.tools.ToolManager;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecution;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Vue 工程模式消息处理：类型化消息直接传递，结果与原先的 JSON 往返一致
+ */
+class JsonMessageStreamHandlerTest {
+
+    private static final ToolExecutionRequest WRITE_REQUEST = ToolExecutionRequest.builder()
+            .id("call_0")
+            .name("writeFile")
+            .arguments("{\"relativeFilePath\":\"src/App.vue\",\"content\":\"<template></template>\"}")
+            .build();
+
+    private final JsonMessageStreamHandler handler = new JsonMessageStreamHandler();
+
+    @Test
+    void parseMessageKeepsType() {
+        AiResponseMessage original = new AiResponseMessage("<template>\n  <div class=\"app\">你好</div>\n</template>");
+        StreamMessage parsed = JsonMessageStreamHandler.parseMessage(JSONUtil.toJsonStr(original));
+        Assertions.assertEquals(original, parsed);
+    }
+
+    @Test
+    void parseMessageRestoresToolMessages() {
+        ToolRequestMessage request = new ToolRequestMessage(WRITE_REQUEST);
+        ToolExecutedMessage executed = new ToolExecutedMessage(ToolExecution.builder()
+                .request(WRITE_REQUEST)
+                .result("文件写入成功: src/App.vue")
+                .build());
+
+        Assertions.assertEquals(request, JsonMessageStreamHandler.parseMessage(JSONUtil.toJsonStr(request)));
+        Assertions.assertEquals(executed, JsonMessageStreamHandler.parseMessage(JSONUtil.toJsonStr(executed)));
+    }
+
+    @Test
+    void typedMessagesMatchJsonRoundTrip() {
+        ToolManager toolManager = Mockito.mock(ToolManager.class);
+        Mockito.when(toolManager.getTool("writeFile")).thenReturn(new FileWriteTool());
+        ReflectionTestUtils.setField(handler, "toolManager", toolManager);
+        StreamMessage[] messages = {
+                new AiResponseMessage("<template>"),
+                new AiResponseMessage("商品列表"),
+                new ToolRequestMessage(WRITE_REQUEST),
+                new ToolRequestMessage(WRITE_REQUEST),
+                new ToolExecutedMessage(ToolExecution.builder().request(WRITE_REQUEST).result("ok").build()),
+                new AiResponseMessage("完成")
+        };
+
+        StringBuilder typedHistory = new StringBuilder();
+        StringBuilder typedOutput = new StringBuilder();
+        Set<String> typedSeen = new HashSet<>();
+        StringBuilder roundTripHistory = new StringBuilder();
+        StringBuilder roundTripOutput = new StringBuilder();
+        Set<String> roundTripSeen = new HashSet<>();
+        for (StreamMessage message : messages) {
+            typedOutput.append(handler.handleMessage(message, typedHistory, typedSeen));
+            StreamMessage parsed = JsonMessageStreamHandler.parseMessage(JSONUtil.toJsonStr(message));
+            roundTripOutput.append(handler.handleMessage(parsed, roundTripHistory, roundTripSeen));
+        }
+
+        Assertions.assertEquals(roundTripOutput.toString(), typedOutput.toString());
+        Assertions.assertEquals(roundTripHistory.toString(), typedHistory.toString());
+        // 同一工具调用只提示一次
+        Assertions.assertEquals(1, typedOutput.toString().split("\\[选择工具]", -1).length - 1);
+        Assertions.assertTrue(typedHistory.toString().startsWith("<template>商品列表"));
+        Assertions.assertTrue(typedHistory.toString().endsWith("完成"));
+    }
+}
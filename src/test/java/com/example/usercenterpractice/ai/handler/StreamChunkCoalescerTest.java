@@ -0,0 +1,89 @@
+package com.example.usercenterpractice.ai.handler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class StreamChunkCoalescerTest {
+
+    @Test
+    void mergesBySizeAndKeepsContent() {
+        List<String> chunks = Flux.range(0, 1000).map(i -> "片段" + i + "\n").collectList().block();
+        List<String> merged = StreamChunkCoalescer.coalesce(Flux.fromIterable(chunks), 10_000, 256, Schedulers.parallel())
+                .collectList()
+                .block();
+        Assertions.assertEquals(String.join("", chunks), String.join("", merged));
+        // 首个片段单独下发，其余按 256 字节合并
+        Assertions.assertEquals(chunks.get(0), merged.get(0));
+        Assertions.assertTrue(merged.size() < chunks.size() / 10, "合并后事件数: " + merged.size());
+        for (int i = 1; i < merged.size() - 1; i++) {
+            Assertions.assertTrue(StreamChunkCoalescer.utf8Length(merged.get(i)) >= 256);
+        }
+    }
+
+    @Test
+    void flushesByTimeWindow() {
+        Flux<String> slowStream = Flux.interval(Duration.ofMillis(5)).take(40).map(i -> "t" + i);
+        List<String> merged = StreamChunkCoalescer.coalesce(slowStream, 50, Integer.MAX_VALUE, Schedulers.parallel())
+                .collectList()
+                .block();
+        Assertions.assertEquals(String.join("", slowStream.collectList().block()), String.join("", merged));
+        // 约 200ms 的流按 50ms 窗口下发，既有合并也不会攒到结束才输出
+        Assertions.assertTrue(merged.size() > 2 && merged.size() < 20, "合并后事件数: " + merged.size());
+    }
+
+    @Test
+    void passesThroughWhenDisabled() {
+        List<String> merged = StreamChunkCoalescer.coalesce(Flux.just("a", "b", "c"), 0, 1, Schedulers.parallel())
+                .collectList()
+                .block();
+        Assertions.assertEquals(List.of("a", "b", "c"), merged);
+    }
+
+    @Test
+    void propagatesDownstreamContext() {
+        Flux<String> contextual = Flux.deferContextual(context -> Flux.just("ctx:" + context.get("key"), "tail"));
+        List<String> merged = StreamChunkCoalescer.coalesce(contextual, 50, 256, Schedulers.parallel())
+                .contextWrite(Context.of("key", "value"))
+                .collectList()
+                .block();
+        Assertions.assertEquals("ctx:valuetail", String.join("", merged));
+    }
+
+    @Test
+    void honoursDownstreamDemand() {
+        AtomicInteger produced = new AtomicInteger();
+        Flux<String> source = Flux.range(0, 1000).map(i -> "chunk" + i).doOnNext(chunk -> produced.incrementAndGet());
+        List<String> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<String> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(String value) {
+                received.add(value);
+            }
+        };
+        StreamChunkCoalescer.coalesce(source, 10_000, 64, Schedulers.parallel()).subscribe(subscriber);
+
+        // 下游只请求了一个事件：首个片段下发后只合并到字节上限，不再拉取上游
+        Assertions.assertEquals(List.of("chunk0"), received);
+        Assertions.assertTrue(produced.get() < 20, "上游已产出: " + produced.get());
+
+        subscriber.request(Long.MAX_VALUE);
+        String expected = String.join("", Flux.range(0, 1000).map(i -> "chunk" + i).collectList().block());
+        Assertions.assertEquals(1000, produced.get());
+        Assertions.assertEquals(expected, String.join("", received));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.usercenterpractice.ai.http;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpMethod;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.DefaultServerSentEventParser;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class PooledAiHttpClientTest {
+
+    private HttpServer server;
+
+    private PooledAiHttpClient client;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> {
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/error", exchange -> {
+            byte[] body = "rate limited".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(429, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/stream", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("data: a\n\ndata: b\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/stall", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write("data: a\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            // 不再输出也不关闭，模拟上游卡住
+        });
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        client = new PooledAiHttpClient(java.net.http.HttpClient.newHttpClient(), Duration.ofSeconds(1), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void executesRequestsAndMapsErrorStatus() {
+        SuccessfulHttpResponse response = client.execute(request("/ok"));
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("{\"ok\":true}", response.body());
+
+        HttpException error = Assertions.assertThrows(HttpException.class, () -> client.execute(request("/error")));
+        Assertions.assertEquals(429, error.statusCode());
+        Assertions.assertEquals(1, meterRegistry.get("code_gen.ai_http.requests").tag("outcome", "http_error").timer().count());
+    }
+
+    @Test
+    void streamsEventsThenCloses() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        client.execute(request("/stream"), new DefaultServerSentEventParser(), listener);
+
+        Assertions.assertTrue(listener.finished.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("a", "b", "close"), listener.events);
+    }
+
+    @Test
+    void idleStreamIsClosedAfterReadTimeout() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        client.execute(request("/stall"), new DefaultServerSentEventParser(), listener);
+
+        Assertions.assertTrue(listener.finished.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("a", listener.events.get(0));
+        // 指标在回调之后记录
+        for (int i = 0; i < 100 && meterRegistry.find("code_gen.ai_http.requests").tag("outcome", "idle_timeout").timer() == null; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(1, meterRegistry.get("code_gen.ai_http.requests").tag("outcome", "idle_timeout").timer().count());
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.builder()
+                .method(HttpMethod.POST)
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + path)
+                .addHeader("Content-Type", "application/json")
+                .body("{}")
+                .build();
+    }
+
+    private static class RecordingListener implements ServerSentEventListener {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        @Override
+        public void onEvent(ServerSentEvent event) {
+            events.add(event.data());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            events.add("error");
+            finished.countDown();
+        }
+
+        @Override
+        public void onClose() {
+            events.add("close");
+            finished.countDown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.usercenterpractice.ai.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ChatMemoryCompactorTest {
+
+    @Test
+    void elidesToolResultsBeforeCurrentTurn() {
+        String fileContent = "x".repeat(4000);
+        List<ChatMessage> messages = List.of(
+                SystemMessage.from("system"),
+                UserMessage.from("做一个博客"),
+                AiMessage.from(toolRequest("1")),
+                ToolExecutionResultMessage.from("1", "readFile", fileContent),
+                AiMessage.from("完成"),
+                UserMessage.from("改成深色主题"),
+                AiMessage.from(toolRequest("2")),
+                ToolExecutionResultMessage.from("2", "readFile", fileContent));
+
+        int currentTurnStart = ChatMemoryCompactor.currentTurnStart(messages);
+        Assertions.assertEquals(5, currentTurnStart);
+        List<ChatMessage> compacted = ChatMemoryCompactor.elideToolResults(messages, currentTurnStart, 0);
+
+        Assertions.assertEquals(messages.size(), compacted.size());
+        ToolExecutionResultMessage elided = (ToolExecutionResultMessage) compacted.get(3);
+        Assertions.assertEquals("1", elided.id());
+        Assertions.assertTrue(elided.text().startsWith("[已省略"));
+        // 当前轮次的工具输出保持原文
+        Assertions.assertSame(messages.get(7), compacted.get(7));
+        Assertions.assertTrue(ChatMemoryCompactor.estimateTokens(compacted) < ChatMemoryCompactor.estimateTokens(messages));
+    }
+
+    @Test
+    void keepsMostRecentToolResultsInCurrentTurn() {
+        String fileContent = "x".repeat(1000);
+        List<ChatMessage> messages = List.of(
+                UserMessage.from("生成项目"),
+                ToolExecutionResultMessage.from("1", "writeFile", fileContent),
+                ToolExecutionResultMessage.from("2", "writeFile", fileContent),
+                ToolExecutionResultMessage.from("3", "writeFile", fileContent));
+
+        List<ChatMessage> compacted = ChatMemoryCompactor.elideToolResults(messages, messages.size(), 2);
+
+        Assertions.assertNotSame(messages.get(1), compacted.get(1));
+        Assertions.assertSame(messages.get(2), compacted.get(2));
+        Assertions.assertSame(messages.get(3), compacted.get(3));
+    }
+
+    @Test
+    void estimatesCjkAsOneTokenPerChar() {
+        Assertions.assertEquals(1, ChatMemoryCompactor.estimateTokens("abcd"));
+        Assertions.assertEquals(4, ChatMemoryCompactor.estimateTokens("深色主题"));
+    }
+
+    private static ToolExecutionRequest toolRequest(String id) {
+        return ToolExecutionRequest.builder().id(id).name("readFile").arguments("{}").build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.usercenterpractice.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class RedisListChatMemoryStoreTest {
+
+    private static final ChatMessage U1 = UserMessage.from("u1");
+    private static final ChatMessage A1 = AiMessage.from("a1");
+    private static final ChatMessage U2 = UserMessage.from("u2");
+    private static final ChatMessage A2 = AiMessage.from("a2");
+
+    @Test
+    void detectsAppendWithWindowEviction() {
+        // 纯追加
+        Assertions.assertEquals(List.of(U2), RedisListChatMemoryStore.appendedTail(List.of(U1, A1), List.of(U1, A1, U2)));
+        // 窗口已满：头部淘汰一条的同时追加
+        Assertions.assertEquals(List.of(A2), RedisListChatMemoryStore.appendedTail(List.of(U1, A1, U2), List.of(A1, U2, A2)));
+        // 首次写入
+        Assertions.assertEquals(List.of(U1), RedisListChatMemoryStore.appendedTail(List.of(), List.of(U1)));
+        // 未变化
+        Assertions.assertEquals(List.of(), RedisListChatMemoryStore.appendedTail(List.of(U1, A1), List.of(U1, A1)));
+    }
+
+    @Test
+    void rejectsNonAppendChanges() {
+        // 中间消息被替换
+        Assertions.assertNull(RedisListChatMemoryStore.appendedTail(List.of(U1, A1), List.of(U1, A2, U2)));
+        // 旧消息全部被替换
+        Assertions.assertNull(RedisListChatMemoryStore.appendedTail(List.of(U1, A1), List.of(U2, A2)));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.usercenterpractice.ai.memory;
+
+import com.example.usercenterpractice.ai.memory.TieredChatMemoryStore.WritePolicy;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TieredChatMemoryStoreTest {
+
+    @Test
+    void toolLoopReadsAreServedLocally() {
+        CountingStore remote = new CountingStore();
+        TieredChatMemoryStore store = new TieredChatMemoryStore(remote, WritePolicy.WRITE_THROUGH, 100,
+                Duration.ofMinutes(1), Duration.ZERO, null, null);
+        MessageWindowChatMemory chatMemory = MessageWindowChatMemory.builder()
+                .id(1L)
+                .chatMemoryStore(store)
+                .maxMessages(20)
+                .build();
+        // 模拟 20 步工具调用循环：每步读取记忆并追加消息
+        for (int i = 0; i < 20; i++) {
+            chatMemory.messages();
+            chatMemory.add(i % 2 == 0 ? UserMessage.from("u" + i) : AiMessage.from("a" + i));
+        }
+
+        Assertions.assertEquals(1, remote.reads.get());
+        Assertions.assertEquals(20, remote.writes.get());
+        Assertions.assertEquals(20, remote.getMessages(1L).size());
+    }
+
+    @Test
+    void writeBehindCoalescesUpdates() throws InterruptedException {
+        CountingStore remote = new CountingStore();
+        TieredChatMemoryStore store = new TieredChatMemoryStore(remote, WritePolicy.WRITE_BEHIND, 100,
+                Duration.ofMinutes(1), Duration.ofMillis(100), null, null);
+        for (int i = 1; i <= 10; i++) {
+            store.updateMessages(1L, messages(i));
+        }
+        Assertions.assertEquals(10, store.getMessages(1L).size());
+        Assertions.assertEquals(0, remote.writes.get());
+
+        Thread.sleep(300);
+        Assertions.assertEquals(1, remote.writes.get());
+        Assertions.assertEquals(10, remote.getMessages(1L).size());
+
+        store.updateMessages(1L, messages(11));
+        store.close();
+        Assertions.assertEquals(11, remote.getMessages(1L).size());
+    }
+
+    @Test
+    void invalidationFromOtherNodeDropsLocalCopy() {
+        CountingStore remote = new CountingStore();
+        TieredChatMemoryStore nodeA = new TieredChatMemoryStore(remote, WritePolicy.WRITE_THROUGH, 100,
+                Duration.ofMinutes(1), Duration.ZERO, null, null);
+        TieredChatMemoryStore nodeB = new TieredChatMemoryStore(remote, WritePolicy.WRITE_THROUGH, 100,
+                Duration.ofMinutes(1), Duration.ZERO, null, null);
+        nodeA.updateMessages(1L, messages(1));
+        Assertions.assertEquals(1, nodeB.getMessages(1L).size());
+
+        nodeA.updateMessages(1L, messages(2));
+        // 格式错误或来自本节点的通知不影响本地缓存
+        nodeB.onInvalidation("malformed");
+        Assertions.assertEquals(1, nodeB.getMessages(1L).size());
+        nodeB.onInvalidation("other-node:1");
+        Assertions.assertEquals(2, nodeB.getMessages(1L).size());
+    }
+
+    @Test
+    void failedWriteBehindFlushIsRetried() throws InterruptedException {
+        CountingStore remote = new CountingStore();
+        remote.failures.set(2);
+        TieredChatMemoryStore store = new TieredChatMemoryStore(remote, WritePolicy.WRITE_BEHIND, 100,
+                Duration.ofMinutes(1), Duration.ofMillis(50), null, null);
+        store.updateMessages(1L, messages(3));
+
+        // 前两次写入失败，按退避间隔（100ms、200ms）重试后写入成功，期间本地版本不丢失
+        Thread.sleep(800);
+        Assertions.assertEquals(3, remote.writes.get());
+        Assertions.assertEquals(3, remote.getMessages(1L).size());
+        Assertions.assertEquals(3, store.getMessages(1L).size());
+    }
+
+    @Test
+    void closeFlushesWithOriginalMemoryId() {
+        CountingStore remote = new CountingStore();
+        TieredChatMemoryStore store = new TieredChatMemoryStore(remote, WritePolicy.WRITE_BEHIND, 100,
+                Duration.ofMinutes(1), Duration.ofMinutes(1), null, null);
+        store.updateMessages(42L, messages(2));
+        store.close();
+
+        Assertions.assertEquals(List.of(42L), remote.writtenIds);
+        Assertions.assertEquals(2, remote.getMessages(42L).size());
+    }
+
+    private static List<ChatMessage> messages(int count) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(UserMessage.from("m" + i));
+        }
+        return messages;
+    }
+
+    private static class CountingStore implements ChatMemoryStore {
+
+        private final InMemoryChatMemoryStore delegate = new InMemoryChatMemoryStore();
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private final AtomicInteger writes = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final List<Object> writtenIds = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            reads.incrementAndGet();
+            return delegate.getMessages(String.valueOf(memoryId));
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+            writes.incrementAndGet();
+            if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("remote unavailable");
+            }
+            writtenIds.add(memoryId);
+            delegate.updateMessages(String.valueOf(memoryId), messages);
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            delegate.deleteMessages(String.valueOf(memoryId));
+        }
+    }
+}
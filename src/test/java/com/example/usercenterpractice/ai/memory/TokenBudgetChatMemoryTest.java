@@ -0,0 +1,61 @@
+package com.example.usercenterpractice.ai.memory;
+
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TokenBudgetChatMemoryTest {
+
+    @Test
+    void batchedRoundMatchesPerMessageWindow() {
+        InMemoryChatMemoryStore batchedStore = new InMemoryChatMemoryStore();
+        InMemoryChatMemoryStore perMessageStore = new InMemoryChatMemoryStore();
+        TokenBudgetChatMemory batched = new TokenBudgetChatMemory(window(batchedStore), batchedStore, 6,
+                CodeGenTypeEnum.VUE_PROJECT, null);
+        MessageWindowChatMemory perMessage = window(perMessageStore);
+        batched.add(SystemMessage.from("system"));
+        perMessage.add(SystemMessage.from("system"));
+        batched.add(UserMessage.from("做一个博客"));
+        perMessage.add(UserMessage.from("做一个博客"));
+
+        // 三轮工具调用，每轮一条 AI 消息及两条工具结果，窗口满时整组淘汰
+        for (int round = 0; round < 3; round++) {
+            List<ChatMessage> roundMessages = round(round);
+            batched.addAll(roundMessages);
+            roundMessages.forEach(perMessage::add);
+        }
+
+        Assertions.assertEquals(perMessage.messages(), batched.storedMessages());
+        Assertions.assertInstanceOf(SystemMessage.class, batched.storedMessages().get(0));
+        Assertions.assertEquals(4, batched.storedMessages().size());
+    }
+
+    private static MessageWindowChatMemory window(InMemoryChatMemoryStore store) {
+        return MessageWindowChatMemory.builder().id(1L).chatMemoryStore(store).maxMessages(6).build();
+    }
+
+    private static List<ChatMessage> round(int round) {
+        List<ToolExecutionRequest> requests = List.of(request(round + "-a"), request(round + "-b"));
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(AiMessage.from(requests));
+        for (ToolExecutionRequest request : requests) {
+            messages.add(ToolExecutionResultMessage.from(request, "content of " + request.id()));
+        }
+        return messages;
+    }
+
+    private static ToolExecutionRequest request(String id) {
+        return ToolExecutionRequest.builder().id(id).name("readFile").arguments("{}").build();
+    }
+}
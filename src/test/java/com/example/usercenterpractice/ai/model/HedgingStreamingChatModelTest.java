@@ -0,0 +1,175 @@
+package com.example.usercenterpractice.ai.model;
+
+import com.example.usercenterpractice.ai.stream.CancellationToken;
+import com.example.usercenterpractice.config.ModelHedgingConfig;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class HedgingStreamingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder().messages(UserMessage.from("hi")).build();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void hedgeWinsAndLoserIsCancelled() throws Exception {
+        ScriptedModel slow = new ScriptedModel("slow", 2000, false);
+        ScriptedModel fast = new ScriptedModel("fast", 10, false);
+        HedgingStreamingChatModel model = model(List.of(endpoint("primary", slow), endpoint("backup", fast)), 100);
+
+        RecordingHandler handler = new RecordingHandler();
+        new CancellationToken().runBound(() -> model.chat(REQUEST, handler));
+
+        Assertions.assertEquals("fast", handler.result.get(5, TimeUnit.SECONDS).aiMessage().text());
+        Assertions.assertEquals(List.of("fast"), handler.partials);
+        Assertions.assertTrue(slow.lastToken.isCancelled());
+        Assertions.assertEquals(1, meterRegistry.counter("code_gen.model.hedge", "role", "test", "outcome", "hedge_won").count());
+    }
+
+    @Test
+    void losingPrimaryStillContributesTtftSample() throws Exception {
+        ScriptedModel slow = new ScriptedModel("slow", 2000, false);
+        ScriptedModel fast = new ScriptedModel("fast", 10, false);
+        List<ModelEndpoint> endpoints = List.of(endpoint("primary", slow), endpoint("backup", fast));
+        HedgingStreamingChatModel model = model(endpoints, 100);
+
+        RecordingHandler handler = new RecordingHandler();
+        model.chat(REQUEST, handler);
+        handler.result.get(5, TimeUnit.SECONDS);
+
+        // 落败的主端点以已等待时长（不低于对冲延迟）记录样本，分位数不会只由较快的请求决定
+        long primarySample = endpoints.get(0).health().ttftPercentile(1.0, 1);
+        Assertions.assertTrue(primarySample >= 100, "主端点样本: " + primarySample);
+        Assertions.assertTrue(endpoints.get(1).health().ttftPercentile(1.0, 1) >= 0);
+    }
+
+    @Test
+    void rolePolicyOverridesGlobalValues() {
+        ModelHedgingConfig config = new ModelHedgingConfig();
+        ModelHedgingConfig.RolePolicy reasoning = new ModelHedgingConfig.RolePolicy();
+        reasoning.setMaxHedgeDelayMillis(180_000L);
+        ModelHedgingConfig.RolePolicy disabled = new ModelHedgingConfig.RolePolicy();
+        disabled.setEnabled(false);
+        config.setRoles(Map.of("reasoning", reasoning, "disabled", disabled));
+
+        Assertions.assertEquals(180_000L, config.getRolePolicy("reasoning").maxDelayMillis());
+        Assertions.assertEquals(config.getDefaultHedgeDelayMillis(), config.getRolePolicy("reasoning").defaultDelayMillis());
+        Assertions.assertEquals(config.getMaxHedgeDelayMillis(), config.getRolePolicy("chat").maxDelayMillis());
+        Assertions.assertTrue(config.isRoleEnabled("chat"));
+        Assertions.assertFalse(config.isRoleEnabled("disabled"));
+    }
+
+    @Test
+    void failsOverAndOpensCircuitAfterRepeatedFailures() throws Exception {
+        ScriptedModel failing = new ScriptedModel("failing", 0, true);
+        ScriptedModel backup = new ScriptedModel("backup", 0, false);
+        List<ModelEndpoint> endpoints = List.of(endpoint("primary", failing), endpoint("backup", backup));
+        HedgingStreamingChatModel model = model(endpoints, 10_000);
+
+        for (int i = 0; i < 3; i++) {
+            RecordingHandler handler = new RecordingHandler();
+            model.chat(REQUEST, handler);
+            Assertions.assertEquals("backup", handler.result.get(5, TimeUnit.SECONDS).aiMessage().text());
+        }
+        // 阈值为 2：第三次请求时主端点已熔断，直接使用备用端点
+        Assertions.assertEquals(2, failing.calls.get());
+        Assertions.assertTrue(endpoints.get(0).health().isOpen());
+        Assertions.assertEquals(3, backup.calls.get());
+    }
+
+    private HedgingStreamingChatModel model(List<ModelEndpoint> endpoints, long hedgeDelayMillis) {
+        HedgingPolicy policy = new HedgingPolicy(0.95, 20, hedgeDelayMillis, 0, hedgeDelayMillis);
+        return new HedgingStreamingChatModel("test", endpoints, policy, scheduler, meterRegistry);
+    }
+
+    private static ModelEndpoint endpoint(String name, StreamingChatModel model) {
+        return new ModelEndpoint(name, model, new EndpointHealth(name, 2, TimeUnit.MINUTES.toNanos(1), 10));
+    }
+
+    /**
+     * 延迟后输出一个片段并完成（或失败）的模型，与真实 HTTP 客户端一样在取消后不再回调
+     */
+    private class ScriptedModel implements StreamingChatModel {
+
+        private final String text;
+
+        private final long delayMillis;
+
+        private final boolean fail;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private volatile CancellationToken lastToken;
+
+        ScriptedModel(String text, long delayMillis, boolean fail) {
+            this.text = text;
+            this.delayMillis = delayMillis;
+            this.fail = fail;
+        }
+
+        @Override
+        public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            calls.incrementAndGet();
+            CancellationToken token = CancellationToken.current();
+            lastToken = token;
+            scheduler.schedule(() -> {
+                if (token.isCancelled()) {
+                    return;
+                }
+                if (fail) {
+                    handler.onError(new InternalServerException("unavailable"));
+                    return;
+                }
+                handler.onPartialResponse(text);
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(text)).build());
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class RecordingHandler implements StreamingChatResponseHandler {
+
+        private final List<String> partials = new CopyOnWriteArrayList<>();
+
+        private final CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            partials.add(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            result.complete(completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            result.completeExceptionally(error);
+        }
+    }
+}
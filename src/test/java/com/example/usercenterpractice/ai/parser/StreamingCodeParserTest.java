@@ -0,0 +1,135 @@
+package com.example.usercenterpractice.ai.parser;
+
+import com.example.usercenterpractice.ai.model.HtmlCodeResult;
+import com.example.usercenterpractice.ai.model.MultiFileCodeResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class StreamingCodeParserTest {
+
+    private static final String MULTI_FILE_CONTENT = """
+            创建一个完整的网页：
+
+            ```html
+            <!DOCTYPE html>
+            <html>
+            <head>
+                <title>多文件示例</title>
+                <link rel="stylesheet" href="style.css">
+            </head>
+            <body>
+                <h1>欢迎使用 `code`</h1>
+                <script src="script.js"></script>
+            </body>
+            </html>
+            ```
+
+            ```css
+            h1 {
+                color: blue;
+                text-align: center;
+            }
+            ```
+
+            ```javascript
+            console.log(`页面加载完成 ${1 + 1}`);
+            ```
+
+            文件创建完成！
+            """;
+
+    @Test
+    void parseMultiFileCodeInRandomChunks() {
+        MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(MULTI_FILE_CONTENT);
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            StreamingMultiFileCodeParser parser = new StreamingMultiFileCodeParser();
+            feedInRandomChunks(parser, MULTI_FILE_CONTENT, random);
+            MultiFileCodeResult result = parser.getResult();
+            Assertions.assertEquals(expected.getHtmlCode(), result.getHtmlCode());
+            Assertions.assertEquals(expected.getCssCode(), result.getCssCode());
+            Assertions.assertEquals(expected.getJsCode(), result.getJsCode());
+        }
+    }
+
+    @Test
+    void parseHtmlCodeInRandomChunks() {
+        String content = "这是页面：\n```HTML  \n<html><body>`a` ``b``</body></html>\n```\n说明文字";
+        HtmlCodeResult expected = new HtmlCodeParser().parseCode(content);
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            StreamingHtmlCodeParser parser = new StreamingHtmlCodeParser();
+            feedInRandomChunks(parser, content, random);
+            Assertions.assertEquals(expected.getHtmlCode(), parser.getResult().getHtmlCode());
+        }
+    }
+
+    @Test
+    void parseHtmlCodeWithoutFence() {
+        String content = "  <!DOCTYPE html>\n<html><body>Hello</body></html>\n ";
+        HtmlCodeResult expected = new HtmlCodeParser().parseCode(content);
+        Assertions.assertEquals(expected.getHtmlCode(), new StreamingHtmlCodeParser().parseCode(content).getHtmlCode());
+    }
+
+    @Test
+    void ignoreUnclosedFence() {
+        StreamingMultiFileCodeParser parser = new StreamingMultiFileCodeParser();
+        parser.append("```html\n<html></html>\n```\n```css\nh1 { color: red; }");
+        MultiFileCodeResult result = parser.getResult();
+        Assertions.assertEquals("<html></html>", result.getHtmlCode());
+        Assertions.assertNull(result.getCssCode());
+    }
+
+    @Test
+    void parseLargeMultiFileOutputInTokenChunks() {
+        for (int sizeKb : new int[]{50, 200, 500}) {
+            String content = buildLargeResponse(sizeKb * 1024);
+            MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(content);
+            StreamingMultiFileCodeParser parser = new StreamingMultiFileCodeParser();
+            // 按 LLM 输出习惯切成 2 ~ 8 个字符的小片段
+            int i = 0;
+            int step = 2;
+            while (i < content.length()) {
+                int end = Math.min(content.length(), i + step);
+                parser.append(content.substring(i, end));
+                i = end;
+                step = step % 8 + 2;
+            }
+            MultiFileCodeResult result = parser.getResult();
+            Assertions.assertEquals(expected.getHtmlCode(), result.getHtmlCode());
+            Assertions.assertEquals(expected.getCssCode(), result.getCssCode());
+            Assertions.assertEquals(expected.getJsCode(), result.getJsCode());
+            Assertions.assertTrue(result.getHtmlCode().length() > sizeKb * 1024 / 4);
+        }
+    }
+
+    private static String buildLargeResponse(int targetSize) {
+        int blockSize = targetSize / 3;
+        StringBuilder builder = new StringBuilder("下面是完整的网站代码：\n\n```html\n");
+        appendLines(builder, blockSize, "    <div class=\"card\"><span>商品 %d</span></div>\n");
+        builder.append("```\n\n样式如下：\n\n```css\n");
+        appendLines(builder, blockSize, ".card-%d { margin: 8px; color: #333; }\n");
+        builder.append("```\n\n脚本如下：\n\n```js\n");
+        appendLines(builder, blockSize, "console.log(`card ${%d}`);\n");
+        builder.append("```\n\n生成完毕。");
+        return builder.toString();
+    }
+
+    private static void appendLines(StringBuilder builder, int size, String lineFormat) {
+        int target = builder.length() + size;
+        for (int i = 0; builder.length() < target; i++) {
+            builder.append(String.format(lineFormat, i));
+        }
+    }
+
+    private static void feedInRandomChunks(StreamingCodeParser<?> parser, String content, Random random) {
+        int i = 0;
+        while (i < content.length()) {
+            int end = Math.min(content.length(), i + 1 + random.nextInt(12));
+            parser.append(content.substring(i, end));
+            i = end;
+        }
+    }
+}
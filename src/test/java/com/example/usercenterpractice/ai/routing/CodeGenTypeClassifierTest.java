@@ -0,0 +1,34 @@
+package com.example.usercenterpractice.ai.routing;
+
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CodeGenTypeClassifierTest {
+
+    private final CodeGenTypeClassifier classifier = new CodeGenTypeClassifier();
+
+    @Test
+    void normalizeIgnoresCaseAndPunctuation() {
+        Assertions.assertEquals(CodeGenTypeClassifier.normalize("做一个 Vue 后台！"),
+                CodeGenTypeClassifier.normalize("做一个vue后台"));
+    }
+
+    @Test
+    void classifiesClearPrompts() {
+        CodeGenTypeClassifier.Classification html = classifier.classify(CodeGenTypeClassifier.normalize("做一个生日祝福贺卡"));
+        Assertions.assertEquals(CodeGenTypeEnum.HTML, html.type());
+        Assertions.assertTrue(html.confidence() >= 0.7);
+
+        CodeGenTypeClassifier.Classification vue = classifier.classify(
+                CodeGenTypeClassifier.normalize("用 Vue 做一个商品后台管理系统，包含登录和增删改查"));
+        Assertions.assertEquals(CodeGenTypeEnum.VUE_PROJECT, vue.type());
+        Assertions.assertTrue(vue.confidence() >= 0.7);
+    }
+
+    @Test
+    void unknownPromptHasNoConfidence() {
+        CodeGenTypeClassifier.Classification classification = classifier.classify(CodeGenTypeClassifier.normalize("帮我写点东西"));
+        Assertions.assertEquals(0.0, classification.confidence());
+    }
+}
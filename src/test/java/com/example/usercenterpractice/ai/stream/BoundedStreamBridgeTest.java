@@ -0,0 +1,133 @@
+package com.example.usercenterpractice.ai.stream;
+
+import com.example.usercenterpractice.ai.model.message.AiResponseMessage;
+import com.example.usercenterpractice.ai.model.message.StreamMessage;
+import com.example.usercenterpractice.ai.model.message.ToolExecutedMessage;
+import com.example.usercenterpractice.config.StreamBackpressureConfig.TextOverflowPolicy;
+import com.example.usercenterpractice.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+class BoundedStreamBridgeTest {
+
+    @Test
+    void coalescesTextWhileDownstreamHasNoDemand() {
+        AtomicReference<BoundedStreamBridge> bridgeRef = new AtomicReference<>();
+        Flux<StreamMessage> flux = Flux.create(sink -> bridgeRef.set(new BoundedStreamBridge(sink, 1 << 20,
+                TextOverflowPolicy.COALESCE, Duration.ofSeconds(1), null, null)));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        flux.subscribe(subscriber);
+        BoundedStreamBridge bridge = bridgeRef.get();
+
+        bridge.nextText("a");
+        bridge.nextText("b");
+        bridge.next(toolExecuted("writeFile"));
+        bridge.nextText("c");
+        bridge.complete();
+        Assertions.assertTrue(bridge.getBufferedBytes() > 0);
+        Assertions.assertFalse(subscriber.completed.get());
+
+        subscriber.request(10);
+        Assertions.assertEquals(3, subscriber.messages.size());
+        Assertions.assertEquals("ab", ((AiResponseMessage) subscriber.messages.get(0)).getData());
+        Assertions.assertInstanceOf(ToolExecutedMessage.class, subscriber.messages.get(1));
+        Assertions.assertEquals("c", ((AiResponseMessage) subscriber.messages.get(2)).getData());
+        Assertions.assertTrue(subscriber.completed.get());
+        Assertions.assertEquals(0, bridge.getBufferedBytes());
+    }
+
+    @Test
+    void toolCallbackPausesUntilDownstreamDrains() throws Exception {
+        StreamBufferMetrics metrics = new StreamBufferMetrics(new SimpleMeterRegistry());
+        AtomicReference<BoundedStreamBridge> bridgeRef = new AtomicReference<>();
+        Flux<StreamMessage> flux = Flux.create(sink -> bridgeRef.set(new BoundedStreamBridge(sink, 100,
+                TextOverflowPolicy.COALESCE, Duration.ofSeconds(5), metrics, null)));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        flux.subscribe(subscriber);
+        BoundedStreamBridge bridge = bridgeRef.get();
+
+        CountDownLatch toolReturned = new CountDownLatch(1);
+        Thread producer = Thread.ofVirtual().start(() -> {
+            bridge.next(toolExecuted("x".repeat(200)));
+            toolReturned.countDown();
+        });
+        // 缓冲区超限，工具回调阻塞（即暂停后续工具执行）
+        Assertions.assertFalse(toolReturned.await(200, TimeUnit.MILLISECONDS));
+
+        subscriber.request(1);
+        Assertions.assertTrue(toolReturned.await(2, TimeUnit.SECONDS));
+        producer.join();
+        Assertions.assertEquals(1, subscriber.messages.size());
+        Assertions.assertTrue(bridge.getPeakBufferedBytes() > 100);
+    }
+
+    @Test
+    void pauseTimeoutAbortsGeneration() {
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        AtomicReference<BoundedStreamBridge> bridgeRef = new AtomicReference<>();
+        Flux<StreamMessage> flux = Flux.create(sink -> bridgeRef.set(new BoundedStreamBridge(sink, 100,
+                TextOverflowPolicy.PAUSE, Duration.ofMillis(50), null, () -> upstreamCancelled.set(true))));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        flux.subscribe(subscriber);
+        BoundedStreamBridge bridge = bridgeRef.get();
+
+        bridge.nextText("x".repeat(100));
+
+        Assertions.assertTrue(upstreamCancelled.get());
+        Assertions.assertInstanceOf(BusinessException.class, subscriber.error.get());
+        Assertions.assertEquals(0, bridge.getBufferedBytes());
+        // 中止后的片段直接丢弃
+        bridge.nextText("late");
+        Assertions.assertEquals(0, bridge.getBufferedBytes());
+    }
+
+    private static ToolExecutedMessage toolExecuted(String result) {
+        ToolExecutedMessage message = new ToolExecutedMessage();
+        message.setName("writeFile");
+        message.setResult(result);
+        return message;
+    }
+
+    /**
+     * 初始不请求数据，由测试控制请求量
+     */
+    private static class RecordingSubscriber extends BaseSubscriber<StreamMessage> {
+
+        private final List<StreamMessage> messages = new CopyOnWriteArrayList<>();
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(StreamMessage value) {
+            messages.add(value);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed.set(true);
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error.set(throwable);
+        }
+    }
+}
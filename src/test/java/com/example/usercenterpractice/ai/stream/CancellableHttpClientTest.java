@@ -0,0 +1,179 @@
+package com.example.usercenterpractice.ai.stream;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpMethod;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.DefaultServerSentEventParser;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class CancellableHttpClientTest {
+
+    private static final HttpRequest REQUEST = HttpRequest.builder()
+            .method(HttpMethod.POST)
+            .url("http://localhost/v1/chat/completions")
+            .body("{}")
+            .build();
+
+    @Test
+    void cancelClosesUpstreamStreamAndSuppressesCallbacks() throws Exception {
+        BlockingResponseBody responseBody = new BlockingResponseBody();
+        CountDownLatch parseFinished = new CountDownLatch(1);
+        CancellableHttpClient client = new CancellableHttpClient(new StreamingHttpClient(responseBody, parseFinished));
+        RecordingListener listener = new RecordingListener();
+        CancellationToken token = new CancellationToken();
+
+        token.runBound(() -> client.execute(REQUEST, new DefaultServerSentEventParser(), listener));
+        responseBody.push("data: first\n\n");
+        Assertions.assertTrue(waitFor(() -> listener.events.size() == 1));
+
+        token.cancel();
+        // 关闭输入流后解析线程应立即结束，而不是等待上游继续输出
+        Assertions.assertTrue(parseFinished.await(2, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("first"), listener.events);
+        Assertions.assertFalse(listener.errored.get());
+        Assertions.assertFalse(listener.closed.get());
+    }
+
+    @Test
+    void cancelledTokenSkipsRequest() {
+        AtomicBoolean executed = new AtomicBoolean();
+        HttpClient delegate = new HttpClient() {
+            @Override
+            public SuccessfulHttpResponse execute(HttpRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+                executed.set(true);
+            }
+        };
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        token.runBound(() -> new CancellableHttpClient(delegate).execute(REQUEST, new DefaultServerSentEventParser(), new RecordingListener()));
+        Assertions.assertFalse(executed.get());
+    }
+
+    private static boolean waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+
+    /**
+     * 模拟流式 HTTP 客户端：在独立线程中解析响应体
+     */
+    private record StreamingHttpClient(BlockingResponseBody responseBody, CountDownLatch parseFinished) implements HttpClient {
+
+        @Override
+        public SuccessfulHttpResponse execute(HttpRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    parser.parse(responseBody, listener);
+                    listener.onClose();
+                } finally {
+                    parseFinished.countDown();
+                }
+            });
+        }
+    }
+
+    /**
+     * 模拟网络响应体：无数据时阻塞读取，关闭后读取立即抛出异常（与 socket 流一致）
+     */
+    private static class BlockingResponseBody extends InputStream {
+
+        private static final byte[] CLOSED = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+
+        private byte[] current = new byte[0];
+
+        private int position;
+
+        void push(String data) {
+            chunks.add(data.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int read() throws IOException {
+            awaitData();
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            awaitData();
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private void awaitData() throws IOException {
+            while (position >= current.length) {
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                if (current == CLOSED) {
+                    chunks.add(CLOSED);
+                    throw new IOException("stream closed");
+                }
+                position = 0;
+            }
+        }
+
+        @Override
+        public void close() {
+            chunks.add(CLOSED);
+        }
+    }
+
+    private static class RecordingListener implements ServerSentEventListener {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private final AtomicBoolean errored = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        @Override
+        public void onEvent(ServerSentEvent event) {
+            events.add(event.data());
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            errored.set(true);
+        }
+
+        @Override
+        public void onClose() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.usercenterpractice.ai.tools;
+
+import cn.hutool.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+class IncrementalJsonArgumentReaderTest {
+
+    @Test
+    void streamsContentAcrossArbitraryChunkBoundaries() throws IOException {
+        String content = "<template>\n  <div class=\"app\">你好 😀 \\ / \t</div>\n</template>\n";
+        JSONObject arguments = new JSONObject();
+        arguments.set("relativeFilePath", "src/App.vue");
+        arguments.set("content", content);
+        // 非 ASCII 字符按 \\uXXXX 转义，使转义序列与代理对都可能被片段边界切开
+        String json = arguments.toString().replace("你", "\\u4f60").replace("😀", "\\ud83d\\ude00");
+
+        for (int chunkSize = 1; chunkSize <= 7; chunkSize++) {
+            StringWriter output = new StringWriter();
+            IncrementalJsonArgumentReader reader = new IncrementalJsonArgumentReader("content", output);
+            for (int i = 0; i < json.length(); i += chunkSize) {
+                reader.feed(json.substring(i, Math.min(json.length(), i + chunkSize)));
+            }
+            Assertions.assertTrue(reader.isComplete());
+            Assertions.assertEquals(content, output.toString());
+            Assertions.assertEquals("src/App.vue", reader.getField("relativeFilePath"));
+            Assertions.assertNull(reader.getField("content"));
+            Assertions.assertEquals(json.length(), reader.getConsumedChars());
+        }
+    }
+
+    @Test
+    void skipsNonStringValuesAndDetectsMalformedInput() throws IOException {
+        StringWriter output = new StringWriter();
+        IncrementalJsonArgumentReader reader = new IncrementalJsonArgumentReader("content", output);
+        reader.feed("{\"overwrite\": true, \"meta\": {\"tags\": [\"a\", \"}\"]}, \"content\": \"x\"}");
+        Assertions.assertTrue(reader.isComplete());
+        Assertions.assertEquals("x", output.toString());
+
+        IncrementalJsonArgumentReader truncated = new IncrementalJsonArgumentReader("content", new StringWriter());
+        truncated.feed("{\"content\": \"abc");
+        Assertions.assertFalse(truncated.isComplete());
+        Assertions.assertFalse(truncated.isMalformed());
+
+        IncrementalJsonArgumentReader malformed = new IncrementalJsonArgumentReader("content", new StringWriter());
+        malformed.feed("{\"content\": \"\\x\"}");
+        Assertions.assertTrue(malformed.isMalformed());
+    }
+}
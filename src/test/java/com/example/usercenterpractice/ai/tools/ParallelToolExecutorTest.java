@@ -0,0 +1,91 @@
+package com.example.usercenterpractice.ai.tools;
+
+import com.example.usercenterpractice.ai.tools.ParallelToolExecutor.ToolAccess;
+import com.example.usercenterpractice.config.ToolExecutionConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class ParallelToolExecutorTest {
+
+    private final ParallelToolExecutor executor = new ParallelToolExecutor();
+
+    @BeforeEach
+    void setUp() {
+        ToolManager toolManager = new ToolManager();
+        ReflectionTestUtils.setField(toolManager, "tools",
+                new BaseTool[]{new FileWriteTool(), new FileReadTool(), new FileDirReadTool(), new ExitTool()});
+        toolManager.initTools();
+        ReflectionTestUtils.setField(executor, "toolManager", toolManager);
+        ReflectionTestUtils.setField(executor, "toolExecutionConfig", new ToolExecutionConfig());
+        executor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    void samePathRunsInOrderOtherPathsConcurrently() {
+        CountDownLatch otherFileWritten = new CountDownLatch(1);
+        AtomicBoolean firstWriteDone = new AtomicBoolean();
+        List<ToolExecutionRequest> requests = List.of(
+                write("src/App.vue"), write("src/main.js"), write("./src/App.vue"));
+
+        List<CompletableFuture<String>> results = executor.submitAll(requests, request -> {
+            String path = request.arguments();
+            if (request == requests.get(0)) {
+                // 第一个写入等待另一文件的写入完成，顺序执行时会超时
+                boolean concurrent = await(otherFileWritten);
+                firstWriteDone.set(true);
+                return "first:" + concurrent;
+            }
+            if (request == requests.get(1)) {
+                otherFileWritten.countDown();
+                return "other";
+            }
+            return "second:" + firstWriteDone.get() + ":" + path.contains("App.vue");
+        }, () -> false);
+
+        Assertions.assertEquals(List.of("first:true", "other", "second:true:true"),
+                results.stream().map(CompletableFuture::join).toList());
+    }
+
+    @Test
+    void conflictRules() {
+        ToolAccess write = ToolAccess.of("src/App.vue", false);
+        Assertions.assertTrue(write.conflictsWith(ToolAccess.of("./src//App.vue", false)));
+        Assertions.assertTrue(write.conflictsWith(ToolAccess.of("src", true)));
+        Assertions.assertTrue(write.conflictsWith(ToolAccess.of("", true)));
+        Assertions.assertTrue(write.conflictsWith(ToolAccess.EXCLUSIVE));
+        Assertions.assertFalse(write.conflictsWith(ToolAccess.of("src/main.js", false)));
+        Assertions.assertFalse(write.conflictsWith(ToolAccess.of("src/App.vue.bak", false)));
+        Assertions.assertFalse(ToolAccess.of("src/App.vue", true).conflictsWith(ToolAccess.of("src/App.vue", true)));
+    }
+
+    private static ToolExecutionRequest write(String path) {
+        return ToolExecutionRequest.builder()
+                .name("writeFile")
+                .arguments("{\"relativeFilePath\":\"" + path + "\",\"content\":\"x\"}")
+                .build();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
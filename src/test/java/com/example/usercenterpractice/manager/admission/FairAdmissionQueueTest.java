@@ -0,0 +1,75 @@
+package com.example.usercenterpractice.manager.admission;
+
+import com.example.usercenterpractice.exception.BusinessException;
+import com.example.usercenterpractice.manager.admission.FairAdmissionQueue.Permit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+class FairAdmissionQueueTest {
+
+    @Test
+    void backloggedUserDoesNotStarveOthers() {
+        FairAdmissionQueue queue = new FairAdmissionQueue("test", 1, 10, null);
+        List<String> order = new ArrayList<>();
+        AtomicReference<Permit> running = new AtomicReference<>();
+        for (String name : List.of("a1", "a2", "a3")) {
+            queue.acquire(1L, 1, null).subscribe(permit -> {
+                order.add(name);
+                running.set(permit);
+            });
+        }
+        queue.acquire(2L, 1, null).subscribe(permit -> {
+            order.add("b1");
+            running.set(permit);
+        });
+        Assertions.assertEquals(List.of("a1"), order);
+        Assertions.assertEquals(3, queue.getQueued());
+
+        for (int i = 0; i < 3; i++) {
+            running.get().release();
+        }
+        // 用户 2 的请求排在用户 1 积压的第三个请求之前
+        Assertions.assertEquals(List.of("a1", "a2", "b1", "a3"), order);
+        running.get().release();
+        Assertions.assertEquals(0, queue.getActive());
+    }
+
+    @Test
+    void reportsPositionsAndFreesSlotOnCancel() {
+        FairAdmissionQueue queue = new FairAdmissionQueue("test", 1, 10, null);
+        AtomicReference<Permit> first = new AtomicReference<>();
+        queue.acquire(1L, 1, null).subscribe(first::set);
+        List<Integer> secondPositions = new ArrayList<>();
+        List<Integer> thirdPositions = new ArrayList<>();
+        Disposable second = queue.acquire(2L, 1, (position, queued) -> secondPositions.add(position)).subscribe();
+        AtomicReference<Permit> third = new AtomicReference<>();
+        queue.acquire(3L, 1, (position, queued) -> thirdPositions.add(position)).subscribe(third::set);
+
+        Assertions.assertEquals(List.of(2), thirdPositions);
+        second.dispose();
+        Assertions.assertEquals(List.of(2, 1), thirdPositions);
+        Assertions.assertEquals(1, queue.getQueued());
+
+        first.get().release();
+        Assertions.assertNotNull(third.get());
+        Assertions.assertTrue(third.get().claim());
+        Assertions.assertEquals(1, queue.getActive());
+        Assertions.assertEquals(0, queue.getQueued());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        FairAdmissionQueue queue = new FairAdmissionQueue("test", 1, 1, null);
+        queue.acquire(1L, 1, null).subscribe();
+        queue.acquire(2L, 1, null).subscribe();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        queue.acquire(3L, 1, null).subscribe(permit -> {
+        }, error::set);
+        Assertions.assertInstanceOf(BusinessException.class, error.get());
+    }
+}
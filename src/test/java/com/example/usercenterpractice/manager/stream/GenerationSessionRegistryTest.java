@@ -0,0 +1,112 @@
+package com.example.usercenterpractice.manager.stream;
+
+import com.example.usercenterpractice.config.GenerationSessionConfig;
+import com.example.usercenterpractice.config.StreamReplayConfig;
+import com.example.usercenterpractice.exception.BusinessException;
+import com.example.usercenterpractice.exception.ErrorCode;
+import com.example.usercenterpractice.model.domain.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class GenerationSessionRegistryTest {
+
+    /**
+     * 两个节点共享的回放缓冲区（线上为 Redis）
+     */
+    private final SseReplayStore sharedStore = new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1));
+
+    @Test
+    void resumeOnAnotherNodeReplaysFromStoreAndFollowsNewEvents() throws InterruptedException {
+        GenerationSessionRegistry generatingNode = registry();
+        GenerationSessionRegistry otherNode = registry();
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = generatingNode.start(1L, 2L, content::asFlux);
+        content.tryEmitNext("c1");
+        content.tryEmitNext("c2");
+
+        // 客户端收到第 1 个事件后断线，重连落到另一个节点
+        List<ServerSentEvent<String>> resumed = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        otherNode.resume(session.eventId(1), 1L, user(2L, "user"))
+                .doOnComplete(completed::countDown)
+                .subscribe(resumed::add);
+        content.tryEmitNext("c3");
+        content.tryEmitComplete();
+
+        Assertions.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(session.eventId(2), session.eventId(3), session.eventId(4)),
+                resumed.stream().map(ServerSentEvent::id).toList());
+        Assertions.assertEquals("{\"d\":\"c2\"}", resumed.get(0).data());
+        Assertions.assertEquals("done", resumed.get(2).event());
+    }
+
+    @Test
+    void resumeOnAnotherNodeChecksOwnership() {
+        GenerationSessionRegistry generatingNode = registry();
+        GenerationSessionRegistry otherNode = registry();
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = generatingNode.start(1L, 2L, content::asFlux);
+
+        BusinessException noAuth = Assertions.assertThrows(BusinessException.class,
+                () -> otherNode.resume(session.eventId(0), 1L, user(3L, "user")));
+        Assertions.assertEquals(ErrorCode.NO_AUTH_ERROR.getCode(), noAuth.getCode());
+        BusinessException wrongApp = Assertions.assertThrows(BusinessException.class,
+                () -> otherNode.resume(session.eventId(0), 9L, user(2L, "user")));
+        Assertions.assertEquals(ErrorCode.NOT_FOUND_ERROR.getCode(), wrongApp.getCode());
+        BusinessException unknown = Assertions.assertThrows(BusinessException.class,
+                () -> otherNode.resume("missing:0", 1L, user(2L, "user")));
+        Assertions.assertEquals(ErrorCode.NOT_FOUND_ERROR.getCode(), unknown.getCode());
+        content.tryEmitComplete();
+    }
+
+    @Test
+    void defaultConfigCancelsUpstreamAfterPageClose() throws InterruptedException {
+        GenerationSessionConfig generationSessionConfig = new GenerationSessionConfig();
+        Assertions.assertEquals(GenerationSessionConfig.DetachPolicy.CANCEL, generationSessionConfig.getDetachPolicy());
+        generationSessionConfig.setDetachGraceSeconds(1L);
+        GenerationSessionRegistry registry = registry(generationSessionConfig);
+        CountDownLatch upstreamCancelled = new CountDownLatch(1);
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = registry.start(1L, 2L,
+                () -> content.asFlux().doOnCancel(upstreamCancelled::countDown));
+        // 页面接入后关闭
+        Disposable page = registry.attach(session, 0).subscribe();
+        content.tryEmitNext("c1");
+        page.dispose();
+
+        Assertions.assertTrue(upstreamCancelled.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(session.isTerminated());
+        Assertions.assertEquals(0, registry.getActiveCount());
+    }
+
+    private GenerationSessionRegistry registry() {
+        return registry(new GenerationSessionConfig());
+    }
+
+    private GenerationSessionRegistry registry(GenerationSessionConfig generationSessionConfig) {
+        StreamReplayConfig streamReplayConfig = new StreamReplayConfig();
+        streamReplayConfig.setRemotePollMillis(20L);
+        GenerationSessionRegistry registry = new GenerationSessionRegistry();
+        ReflectionTestUtils.setField(registry, "sseReplayStore", sharedStore);
+        ReflectionTestUtils.setField(registry, "streamReplayConfig", streamReplayConfig);
+        ReflectionTestUtils.setField(registry, "generationSessionConfig", generationSessionConfig);
+        return registry;
+    }
+
+    private static User user(Long id, String role) {
+        User user = new User();
+        user.setId(id);
+        user.setUserRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.usercenterpractice.manager.stream;
+
+import com.example.usercenterpractice.ai.handler.SimpleTextStreamHandler;
+import com.example.usercenterpractice.ai.handler.StreamChunkCoalescer;
+import com.example.usercenterpractice.config.GenerationAdmissionConfig;
+import com.example.usercenterpractice.config.GenerationSessionConfig.DetachPolicy;
+import com.example.usercenterpractice.config.StreamingChatModelConfig;
+import com.example.usercenterpractice.manager.admission.GenerationAdmissionScheduler;
+import com.example.usercenterpractice.model.domain.User;
+import com.example.usercenterpractice.model.enums.CodeGenTypeEnum;
+import com.example.usercenterpractice.service.ChatHistoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+class GenerationSessionTest {
+
+    @Test
+    void resumeReplaysMissedEventsThenFollowsLiveStream() {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = new GenerationSession("s1", 1L, 2L,
+                new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1)), DetachPolicy.FINISH, Duration.ZERO);
+        AtomicBoolean terminated = new AtomicBoolean();
+        session.start(content.asFlux(), () -> terminated.set(true));
+        for (int i = 1; i <= 5; i++) {
+            content.tryEmitNext("c" + i);
+        }
+        // 客户端收到第 2 个事件后断线，重连后应先补发 3~5，再接收实时事件
+        List<SseRecord> resumed = new CopyOnWriteArrayList<>();
+        session.attach(2).subscribe(resumed::add);
+        content.tryEmitNext("c6");
+        content.tryEmitComplete();
+
+        Assertions.assertTrue(terminated.get());
+        Assertions.assertEquals(List.of(3L, 4L, 5L, 6L, 7L), resumed.stream().map(SseRecord::getSeq).toList());
+        Assertions.assertEquals("{\"d\":\"c3\"}", resumed.get(0).getData());
+        Assertions.assertEquals("done", resumed.get(4).getEvent());
+        // 结束后重连只回放剩余事件
+        List<SseRecord> afterDone = session.attach(6).collectList().block();
+        Assertions.assertEquals(1, afterDone.size());
+        Assertions.assertEquals("done", afterDone.get(0).getEvent());
+    }
+
+    @Test
+    void generationContinuesAfterViewerCancels() {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = new GenerationSession("s2", 1L, 2L,
+                new InMemorySseReplayStore(10, 3, Duration.ofMinutes(1)), DetachPolicy.FINISH, Duration.ZERO);
+        session.start(content.asFlux(), () -> {
+        });
+        session.attach(0).take(1).subscribe();
+        for (int i = 1; i <= 5; i++) {
+            content.tryEmitNext("c" + i);
+        }
+        content.tryEmitError(new RuntimeException("模型异常"));
+
+        // 缓冲区只保留最近 3 条事件，之前的事件已淘汰，先发送 reset
+        List<SseRecord> replay = session.attach(0).collectList().block();
+        Assertions.assertEquals(List.of(3L, 4L, 5L, 6L), replay.stream().map(SseRecord::getSeq).toList());
+        Assertions.assertEquals("reset", replay.get(0).getEvent());
+        Assertions.assertEquals("business-error", replay.get(3).getEvent());
+        Assertions.assertEquals("{\"message\":\"模型异常\"}", replay.get(3).getData());
+    }
+
+    @Test
+    void multicastsToAllViewers() {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = new GenerationSession("s3", 1L, 2L,
+                new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1)), DetachPolicy.FINISH, Duration.ZERO);
+        session.start(content.asFlux(), () -> {
+        });
+        List<SseRecord> first = new CopyOnWriteArrayList<>();
+        List<SseRecord> second = new CopyOnWriteArrayList<>();
+        session.attach(0).subscribe(first::add);
+        content.tryEmitNext("c1");
+        session.attach(0).subscribe(second::add);
+        Assertions.assertEquals(2, session.getViewerCount());
+        content.tryEmitNext("c2");
+        content.tryEmitComplete();
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(3, first.size());
+        Assertions.assertEquals(0, session.getViewerCount());
+    }
+
+    @Test
+    void reattachWithinGracePeriodKeepsGenerating() throws InterruptedException {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        GenerationSession session = new GenerationSession("s4", 1L, 2L,
+                new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1)), DetachPolicy.CANCEL, Duration.ofMillis(100));
+        session.start(content.asFlux().doOnCancel(() -> upstreamCancelled.set(true)), () -> {
+        });
+        // 宽限期内重新接入则继续生成
+        session.attach(0).take(1).subscribe();
+        content.tryEmitNext("c1");
+        session.attach(1).subscribe();
+        Thread.sleep(200);
+        Assertions.assertFalse(session.isTerminated());
+
+        session.attach(0).take(1).subscribe();
+        content.tryEmitNext("c2");
+        Thread.sleep(100);
+        // 第二个观看者仍在，不取消
+        Assertions.assertFalse(session.isTerminated());
+        Assertions.assertFalse(upstreamCancelled.get());
+    }
+
+    @Test
+    void cancelPolicyCancelsWhenAllViewersLeave() throws InterruptedException {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        GenerationSession session = new GenerationSession("s5", 1L, 2L,
+                new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1)), DetachPolicy.CANCEL, Duration.ofMillis(50));
+        session.start(content.asFlux().doOnCancel(() -> upstreamCancelled.set(true)), () -> {
+        });
+        session.attach(0).take(1).subscribe();
+        content.tryEmitNext("c1");
+        Thread.sleep(300);
+
+        Assertions.assertTrue(session.isTerminated());
+        Assertions.assertTrue(upstreamCancelled.get());
+        List<SseRecord> replay = session.attach(0).collectList().block();
+        Assertions.assertEquals("business-error", replay.get(replay.size() - 1).getEvent());
+    }
+
+    @Test
+    void cancelPolicyCancelsWhenNoViewerEverAttaches() throws InterruptedException {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        GenerationSession session = new GenerationSession("s11", 1L, 2L,
+                new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1)), DetachPolicy.CANCEL, Duration.ofMillis(50));
+        session.start(content.asFlux().doOnCancel(() -> upstreamCancelled.set(true)), () -> {
+        });
+        // 发起请求的连接在接入前断开，宽限期后取消
+        Thread.sleep(300);
+        Assertions.assertTrue(session.isTerminated());
+        Assertions.assertTrue(upstreamCancelled.get());
+
+        // 宽限期内接入则解除计时
+        GenerationSession attached = new GenerationSession("s12", 1L, 2L,
+                new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1)), DetachPolicy.CANCEL, Duration.ofMillis(50));
+        attached.start(Sinks.many().unicast().<String>onBackpressureBuffer().asFlux(), () -> {
+        });
+        attached.attach(0).subscribe();
+        Thread.sleep(300);
+        Assertions.assertFalse(attached.isTerminated());
+    }
+
+    @Test
+    void requestsGenerationWithBoundedDemand() {
+        AtomicLong maxRequest = new AtomicLong();
+        Flux<String> content = Flux.range(1, 100).map(i -> "c" + i)
+                .doOnRequest(n -> maxRequest.accumulateAndGet(n, Math::max));
+        GenerationSession session = new GenerationSession("s7", 1L, 2L,
+                new InMemorySseReplayStore(10, 200, Duration.ofMinutes(1)), DetachPolicy.FINISH, Duration.ZERO);
+        session.start(content, () -> {
+        });
+
+        Assertions.assertTrue(session.isTerminated());
+        Assertions.assertEquals(101, session.attach(0).collectList().block().size());
+        // 上游看到的是有界请求量，而不是 Long.MAX_VALUE
+        Assertions.assertTrue(maxRequest.get() <= 32, "单次请求量: " + maxRequest.get());
+    }
+
+    @Test
+    void slowViewerIsDroppedWithoutError() {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = new GenerationSession("s8", 1L, 2L,
+                new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1)), DetachPolicy.CANCEL, Duration.ofMinutes(1), 4);
+        session.start(content.asFlux(), () -> {
+        });
+        List<SseRecord> received = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> viewerError = new AtomicReference<>();
+        AtomicBoolean viewerCompleted = new AtomicBoolean();
+        BaseSubscriber<SseRecord> slowViewer = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // 暂不请求，模拟接收过慢
+            }
+
+            @Override
+            protected void hookOnNext(SseRecord record) {
+                received.add(record);
+            }
+
+            @Override
+            protected void hookOnError(Throwable error) {
+                viewerError.set(error);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                viewerCompleted.set(true);
+            }
+        };
+        session.attach(0).subscribe(slowViewer);
+        for (int i = 1; i <= 10; i++) {
+            content.tryEmitNext("c" + i);
+        }
+        Assertions.assertEquals(0, session.getViewerCount());
+
+        // 已缓冲的事件发送完后正常结束，客户端凭最后事件 ID 从回放缓冲区继续，生成不受影响
+        slowViewer.request(Long.MAX_VALUE);
+        Assertions.assertNull(viewerError.get());
+        Assertions.assertTrue(viewerCompleted.get());
+        int delivered = received.size();
+        Assertions.assertTrue(delivered < 10, "已接收事件数: " + delivered);
+        Assertions.assertEquals(delivered, received.get(delivered - 1).getSeq());
+        Assertions.assertFalse(session.isTerminated());
+        List<SseRecord> resumed = session.attach(delivered).take(10 - delivered).collectList().block();
+        Assertions.assertEquals(delivered + 1, resumed.get(0).getSeq());
+        Assertions.assertEquals(10L, resumed.get(resumed.size() - 1).getSeq());
+    }
+
+    @Test
+    void resumeAfterTrimmedEventsSendsReset() {
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = new GenerationSession("s9", 1L, 2L,
+                new InMemorySseReplayStore(10, 3, Duration.ofMinutes(1)), DetachPolicy.FINISH, Duration.ZERO);
+        session.start(content.asFlux(), () -> {
+        });
+        for (int i = 1; i <= 10; i++) {
+            content.tryEmitNext("c" + i);
+        }
+        // 客户端收到第 2 个事件后断线，3~7 已被淘汰：先收到 reset，再从第 8 个事件继续
+        List<SseRecord> resumed = session.attach(2).take(4).collectList().block(Duration.ofSeconds(5));
+        Assertions.assertEquals("reset", resumed.get(0).getEvent());
+        Assertions.assertEquals("{\"fromSeq\":8}", resumed.get(0).getData());
+        Assertions.assertEquals(7L, resumed.get(0).getSeq());
+        Assertions.assertEquals(List.of(8L, 9L, 10L), resumed.subList(1, 4).stream().map(SseRecord::getSeq).toList());
+        // 未淘汰时不发送 reset
+        List<SseRecord> intact = session.attach(8).take(2).collectList().block(Duration.ofSeconds(5));
+        Assertions.assertEquals(List.of(9L, 10L), intact.stream().map(SseRecord::getSeq).toList());
+    }
+
+    @Test
+    void replayWritesAreBatchedOutsideSessionLock() throws InterruptedException {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        InMemorySseReplayStore delegate = new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1));
+        SseReplayStore slowStore = new SseReplayStore() {
+            @Override
+            public void saveSessionInfo(String sessionId, SseSessionInfo info) {
+                delegate.saveSessionInfo(sessionId, info);
+            }
+
+            @Override
+            public SseSessionInfo getSessionInfo(String sessionId) {
+                return delegate.getSessionInfo(sessionId);
+            }
+
+            @Override
+            public void appendAll(String sessionId, List<SseRecord> records) {
+                writeStarted.countDown();
+                try {
+                    releaseWrite.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                batchSizes.add(records.size());
+                delegate.appendAll(sessionId, records);
+            }
+
+            @Override
+            public List<SseRecord> readRange(String sessionId, long afterSeq, long upToSeq) {
+                return delegate.readRange(sessionId, afterSeq, upToSeq);
+            }
+
+            @Override
+            public void remove(String sessionId) {
+                delegate.remove(sessionId);
+            }
+        };
+        Sinks.Many<String> content = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = new GenerationSession("s10", 1L, 2L, slowStore, DetachPolicy.FINISH, Duration.ZERO);
+        session.start(content.asFlux(), () -> {
+        });
+        List<SseRecord> live = new CopyOnWriteArrayList<>();
+        session.attach(0).subscribe(live::add);
+        content.tryEmitNext("c1");
+        Assertions.assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+        // 第一批写入阻塞期间，推送不受影响
+        for (int i = 2; i <= 5; i++) {
+            content.tryEmitNext("c" + i);
+        }
+        Assertions.assertEquals(5, live.size());
+
+        releaseWrite.countDown();
+        content.tryEmitComplete();
+        List<SseRecord> replay = session.attach(0).collectList().block(Duration.ofSeconds(5));
+        Assertions.assertEquals(6, replay.size());
+        // 阻塞期间积压的 4 个事件（及结束事件）合并写入
+        Assertions.assertEquals(1, batchSizes.get(0));
+        Assertions.assertTrue(batchSizes.size() <= 3, "写入批次: " + batchSizes);
+    }
+
+    @Test
+    void queueEventReachesSessionThroughWholeChain() {
+        GenerationAdmissionConfig admissionConfig = new GenerationAdmissionConfig();
+        admissionConfig.setMaxConcurrent(1);
+        GenerationAdmissionScheduler scheduler = new GenerationAdmissionScheduler();
+        ReflectionTestUtils.setField(scheduler, "generationAdmissionConfig", admissionConfig);
+        ReflectionTestUtils.setField(scheduler, "streamingChatModelConfig", new StreamingChatModelConfig());
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", new SimpleMeterRegistry());
+        ChatHistoryService chatHistoryService = Mockito.mock(ChatHistoryService.class);
+
+        // 第一个生成占满唯一的名额
+        Sinks.Many<String> running = Sinks.many().unicast().onBackpressureBuffer();
+        scheduler.admit(CodeGenTypeEnum.HTML, user(1L), running::asFlux).subscribe();
+
+        // 第二个生成与线上一致：准入调度器 -> 流处理器 -> 片段合并器 -> 会话
+        Sinks.Many<String> queuedContent = Sinks.many().unicast().onBackpressureBuffer();
+        User queuedUser = user(2L);
+        Flux<String> admitted = scheduler.admit(CodeGenTypeEnum.HTML, queuedUser, queuedContent::asFlux);
+        Flux<String> handled = new SimpleTextStreamHandler(Schedulers.immediate())
+                .handle(admitted, chatHistoryService, 10L, queuedUser);
+        GenerationSession session = new GenerationSession("s6", 10L, 2L,
+                new InMemorySseReplayStore(10, 100, Duration.ofMinutes(1)), DetachPolicy.FINISH, Duration.ZERO);
+        session.start(StreamChunkCoalescer.coalesce(handled, 40, 2048, Schedulers.parallel()), () -> {
+        });
+
+        List<SseRecord> queued = session.attach(0).take(1).collectList().block(Duration.ofSeconds(5));
+        Assertions.assertEquals("queue", queued.get(0).getEvent());
+        Assertions.assertEquals("{\"position\":1,\"queued\":1}", queued.get(0).getData());
+
+        // 名额释放后排队的生成开始输出
+        running.tryEmitComplete();
+        queuedContent.tryEmitNext("hello");
+        queuedContent.tryEmitComplete();
+        List<SseRecord> events = session.attach(0).collectList().block(Duration.ofSeconds(5));
+        Assertions.assertEquals("{\"d\":\"hello\"}", events.get(1).getData());
+        Assertions.assertEquals("done", events.get(events.size() - 1).getEvent());
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUserRole("user");
+        return user;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.usercenterpractice.manager.stream;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+class RedisSseReplayStoreTest {
+
+    private static final String KEY = "code_gen:sse_replay:s1";
+
+    @SuppressWarnings("unchecked")
+    private final ListOperations<String, String> listOperations = Mockito.mock(ListOperations.class);
+
+    private final RedisSseReplayStore store = store();
+
+    @Test
+    void readsOnlyRequestedRange() {
+        // 列表保留序号 101~200
+        Mockito.when(listOperations.index(KEY, 0)).thenReturn(value(101));
+        Mockito.when(listOperations.range(KEY, 50, -1)).thenReturn(values(151, 200));
+        Mockito.when(listOperations.range(KEY, 0, 19)).thenReturn(values(101, 120));
+
+        Assertions.assertEquals(LongStream.rangeClosed(151, 200).boxed().toList(), seqs(store.readRange("s1", 150, Long.MAX_VALUE)));
+        // 请求的起点已被淘汰时从头部开始读
+        Assertions.assertEquals(LongStream.rangeClosed(101, 120).boxed().toList(), seqs(store.readRange("s1", 10, 120)));
+        Assertions.assertEquals(List.of(), store.readRange("s1", 200, 200));
+    }
+
+    @Test
+    void rereadsWhenHeadIsTrimmedBetweenReads() {
+        // 第一次读取头部后，新写入的 10 个事件把头部裁剪到 111，区间整体后移
+        Mockito.when(listOperations.index(KEY, 0)).thenReturn(value(101), value(111));
+        Mockito.when(listOperations.range(KEY, 50, -1)).thenReturn(values(161, 210));
+        Mockito.when(listOperations.range(KEY, 40, -1)).thenReturn(values(151, 210));
+
+        Assertions.assertEquals(LongStream.rangeClosed(151, 210).boxed().toList(), seqs(store.readRange("s1", 150, Long.MAX_VALUE)));
+    }
+
+    private RedisSseReplayStore store() {
+        StringRedisTemplate stringRedisTemplate = Mockito.mock(StringRedisTemplate.class);
+        Mockito.when(stringRedisTemplate.opsForList()).thenReturn(listOperations);
+        return new RedisSseReplayStore(stringRedisTemplate, 100, Duration.ofMinutes(1));
+    }
+
+    private static String value(long seq) {
+        return JSONUtil.toJsonStr(new SseRecord(seq, null, "{\"d\":\"c" + seq + "\"}"));
+    }
+
+    private static List<String> values(long fromSeq, long toSeq) {
+        return LongStream.rangeClosed(fromSeq, toSeq).mapToObj(RedisSseReplayStoreTest::value).toList();
+    }
+
+    private static List<Long> seqs(List<SseRecord> records) {
+        return records.stream().map(SseRecord::getSeq).toList();
+    }
+}
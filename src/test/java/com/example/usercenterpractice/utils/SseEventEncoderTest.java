@@ -0,0 +1,60 @@
+package com.example.usercenterpractice.utils;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SSE 编码器：输出与 Map.of("d", chunk) + JSONUtil.toJsonStr 等价的 JSON
+ */
+class SseEventEncoderTest {
+
+    private static final String[] SAMPLES = {"", "plain", "中文片段", "\"quoted\" \\ back", "line\nbreak\r\n\ttab",
+            "ctrl\u0001\u001f\b\f", "sep  ", "emoji 😀 </script>", "```html\n<div class=\"a\">`x`</div>\n```"};
+
+    @Test
+    void encodedDataRoundTrips() {
+        for (String sample : SAMPLES) {
+            JSONObject parsed = JSONUtil.parseObj(SseEventEncoder.encode("d", sample));
+            Assertions.assertEquals(sample, parsed.getStr("d"));
+        }
+        Assertions.assertEquals("{\"d\":\"\"}", SseEventEncoder.encode("d", null));
+    }
+
+    @Test
+    void dataEventMatchesHutoolJson() {
+        for (String sample : SAMPLES) {
+            ServerSentEvent<String> event = SseEventEncoder.dataEvent(sample);
+            Assertions.assertNull(event.event());
+            Assertions.assertEquals(JSONUtil.parseObj(JSONUtil.toJsonStr(Map.of("d", sample))),
+                    JSONUtil.parseObj(event.data()));
+        }
+    }
+
+    @Test
+    void largeChunkDoesNotLeakIntoNextEvent() {
+        String large = "<div>大片段</div>\n".repeat(10_000);
+        Assertions.assertEquals(large, JSONUtil.parseObj(SseEventEncoder.encode("d", large)).getStr("d"));
+        Assertions.assertEquals("{\"d\":\"ok\"}", SseEventEncoder.encode("d", "ok"));
+    }
+
+    @Test
+    void concurrentStreamsEncodeIndependently() {
+        // 多个流在 Reactor 调度线程上交错编码，复用的线程缓冲区不能串流
+        List<String> mismatches = Flux.range(0, 64)
+                .flatMap(stream -> Flux.range(0, 500)
+                        .subscribeOn(Schedulers.parallel())
+                        .map(i -> "流" + stream + "-\"" + i + "\"\n")
+                        .filter(chunk -> !chunk.equals(JSONUtil.parseObj(SseEventEncoder.dataEvent(chunk).data()).getStr("d"))), 64)
+                .collectList()
+                .block();
+        Assertions.assertEquals(List.of(), mismatches);
+    }
+}
@@ -0,0 +1,172 @@
+package dev.langchain4j.model.openai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.internal.chat.ChatCompletionChoice;
+import dev.langchain4j.model.openai.internal.chat.ChatCompletionResponse;
+import dev.langchain4j.model.openai.internal.chat.Delta;
+import dev.langchain4j.model.openai.internal.chat.FunctionCall;
+import dev.langchain4j.model.openai.internal.chat.ToolCall;
+import dev.langchain4j.model.openai.internal.shared.Usage;
+import dev.langchain4j.model.output.FinishReason;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单写者响应累加器与线程安全的 {@link OpenAiStreamingResponseBuilder} 对同一串流式片段应得到相同的结果
+ * 回放两类模拟的流式响应：HTML 模式的纯文本输出、Vue 工程模式的多个工具调用（参数为文件内容）
+ */
+class SingleWriterOpenAiStreamingResponseBuilderTest {
+
+    @Test
+    void textCompletionMatchesThreadSafeBuilder() {
+        List<ChatCompletionResponse> deltas = textCompletion(120 * 1024);
+
+        ChatResponse expected = runThreadSafe(deltas);
+        ChatResponse actual = runSingleWriter(deltas);
+
+        Assertions.assertEquals(expected.aiMessage(), actual.aiMessage());
+        Assertions.assertEquals(expected.metadata(), actual.metadata());
+        Assertions.assertEquals(FinishReason.STOP, actual.metadata().finishReason());
+        Assertions.assertEquals(31000, actual.metadata().tokenUsage().totalTokenCount());
+    }
+
+    @Test
+    void toolCallsMatchThreadSafeBuilder() {
+        List<ChatCompletionResponse> deltas = toolCallCompletion(6, 20 * 1024);
+
+        ChatResponse expected = runThreadSafe(deltas);
+        ChatResponse actual = runSingleWriter(deltas);
+
+        Assertions.assertEquals(expected.aiMessage(), actual.aiMessage());
+        Assertions.assertEquals(expected.metadata(), actual.metadata());
+        Assertions.assertEquals(6, actual.aiMessage().toolExecutionRequests().size());
+        Assertions.assertEquals("call_3", actual.aiMessage().toolExecutionRequests().get(3).id());
+    }
+
+    @Test
+    void missingToolCallIndexIsTreatedAsZero() {
+        SingleWriterOpenAiStreamingResponseBuilder builder = new SingleWriterOpenAiStreamingResponseBuilder();
+        builder.append(chunk(Delta.builder().toolCalls(List.of(ToolCall.builder()
+                .id("call_0")
+                .function(FunctionCall.builder().name("writeFile").arguments("{\"a\":").build())
+                .build())).build(), null));
+        builder.append(chunk(Delta.builder().toolCalls(List.of(ToolCall.builder()
+                .function(FunctionCall.builder().arguments("1}").build())
+                .build())).build(), "tool_calls"));
+
+        AiMessage aiMessage = builder.build().aiMessage();
+        Assertions.assertEquals(1, aiMessage.toolExecutionRequests().size());
+        Assertions.assertEquals("writeFile", aiMessage.toolExecutionRequests().get(0).name());
+        Assertions.assertEquals("{\"a\":1}", aiMessage.toolExecutionRequests().get(0).arguments());
+    }
+
+    @Test
+    void emptyStreamBuildsNothing() {
+        SingleWriterOpenAiStreamingResponseBuilder builder = new SingleWriterOpenAiStreamingResponseBuilder();
+        builder.append(chunk(null, "stop"));
+
+        Assertions.assertNull(builder.build());
+    }
+
+    @Test
+    void chunkedBufferKeepsContentAcrossChunks() {
+        SingleWriterOpenAiStreamingResponseBuilder.ChunkedCharBuffer buffer =
+                new SingleWriterOpenAiStreamingResponseBuilder.ChunkedCharBuffer();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            String piece = "片段" + i + ";";
+            buffer.append(piece);
+            expected.append(piece);
+        }
+        Assertions.assertEquals(expected.length(), buffer.length());
+        Assertions.assertEquals(expected.toString(), buffer.toString());
+    }
+
+    private static ChatResponse runSingleWriter(List<ChatCompletionResponse> deltas) {
+        SingleWriterOpenAiStreamingResponseBuilder builder = new SingleWriterOpenAiStreamingResponseBuilder();
+        for (ChatCompletionResponse delta : deltas) {
+            builder.append(delta);
+        }
+        return builder.build();
+    }
+
+    private static ChatResponse runThreadSafe(List<ChatCompletionResponse> deltas) {
+        OpenAiStreamingResponseBuilder builder = new OpenAiStreamingResponseBuilder();
+        for (ChatCompletionResponse delta : deltas) {
+            builder.append(delta);
+        }
+        return builder.build();
+    }
+
+    private static List<ChatCompletionResponse> textCompletion(int size) {
+        List<ChatCompletionResponse> deltas = new ArrayList<>();
+        StringBuilder content = new StringBuilder("```html\n");
+        for (int i = 0; content.length() < size; i++) {
+            content.append("    <div class=\"card\"><span>商品 ").append(i).append("</span></div>\n");
+        }
+        content.append("```");
+        for (String token : splitIntoTokens(content.toString())) {
+            deltas.add(chunk(Delta.builder().content(token).build(), null));
+        }
+        deltas.add(chunk(null, "stop"));
+        return deltas;
+    }
+
+    private static List<ChatCompletionResponse> toolCallCompletion(int toolCalls, int argumentsSize) {
+        List<ChatCompletionResponse> deltas = new ArrayList<>();
+        for (int index = 0; index < toolCalls; index++) {
+            deltas.add(chunk(Delta.builder().toolCalls(List.of(ToolCall.builder()
+                    .index(index)
+                    .id("call_" + index)
+                    .function(FunctionCall.builder().name("writeFile").build())
+                    .build())).build(), null));
+            StringBuilder arguments = new StringBuilder("{\"relativeFilePath\":\"src/pages/Page" + index + ".vue\",\"content\":\"");
+            for (int i = 0; arguments.length() < argumentsSize; i++) {
+                arguments.append("<div class=\\\"row-").append(i).append("\\\">{{ item.name }}</div>\\n");
+            }
+            arguments.append("\"}");
+            for (String token : splitIntoTokens(arguments.toString())) {
+                deltas.add(chunk(Delta.builder().toolCalls(List.of(ToolCall.builder()
+                        .index(index)
+                        .function(FunctionCall.builder().arguments(token).build())
+                        .build())).build(), null));
+            }
+        }
+        deltas.add(chunk(null, "tool_calls"));
+        return deltas;
+    }
+
+    /**
+     * 与真实流一致，每个片段都携带 id、model、created，最后一个片段携带 usage
+     */
+    private static ChatCompletionResponse chunk(Delta delta, String finishReason) {
+        return ChatCompletionResponse.builder()
+                .id("chatcmpl-test")
+                .created(1_700_000_000L)
+                .model("deepseek-chat")
+                .systemFingerprint("fp_test")
+                .usage(finishReason == null ? null : Usage.builder().promptTokens(1000).completionTokens(30000).totalTokens(31000).build())
+                .choices(List.of(ChatCompletionChoice.builder().index(0).delta(delta).finishReason(finishReason).build()))
+                .build();
+    }
+
+    /**
+     * 按 LLM 输出习惯切成 2 ~ 8 个字符的小片段
+     */
+    private static List<String> splitIntoTokens(String content) {
+        List<String> chunks = new ArrayList<>();
+        int i = 0;
+        int step = 2;
+        while (i < content.length()) {
+            int end = Math.min(content.length(), i + step);
+            chunks.add(content.substring(i, end));
+            i = end;
+            step = step % 8 + 2;
+        }
+        return chunks;
+    }
+}
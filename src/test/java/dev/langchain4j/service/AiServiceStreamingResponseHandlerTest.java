@@ -0,0 +1,133 @@
+package dev.langchain4j.service;
+
+import com.example.usercenterpractice.ai.stream.CancellationToken;
+import com.example.usercenterpractice.ai.tools.BaseTool;
+import com.example.usercenterpractice.ai.tools.ExitTool;
+import com.example.usercenterpractice.ai.tools.FileDirReadTool;
+import com.example.usercenterpractice.ai.tools.FileReadTool;
+import com.example.usercenterpractice.ai.tools.FileWriteTool;
+import com.example.usercenterpractice.ai.tools.ParallelToolExecutor;
+import com.example.usercenterpractice.ai.tools.ToolManager;
+import com.example.usercenterpractice.config.ToolExecutionConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.guardrail.ChatExecutor;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.tool.ToolExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AiServiceStreamingResponseHandlerTest {
+
+    private final ParallelToolExecutor parallelToolExecutor = new ParallelToolExecutor();
+
+    @BeforeEach
+    void setUp() {
+        ToolManager toolManager = new ToolManager();
+        ReflectionTestUtils.setField(toolManager, "tools",
+                new BaseTool[]{new FileWriteTool(), new FileReadTool(), new FileDirReadTool(), new ExitTool()});
+        toolManager.initTools();
+        ReflectionTestUtils.setField(parallelToolExecutor, "toolManager", toolManager);
+        ReflectionTestUtils.setField(parallelToolExecutor, "toolExecutionConfig", new ToolExecutionConfig());
+        parallelToolExecutor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelToolExecutor.destroy();
+    }
+
+    @Test
+    void cancelledRoundLeavesNoToolWriteBehind() throws Exception {
+        CancellationToken cancellationToken = new CancellationToken();
+        CountDownLatch slowWriteStarted = new CountDownLatch(1);
+        List<String> writes = new CopyOnWriteArrayList<>();
+        // a.vue 先被取消的调用占用，b.vue 的写入正在进行，第二次写 a.vue 依赖第一次、尚未开始
+        List<ToolExecutionRequest> requests = List.of(write("1", "src/a.vue"), write("2", "src/b.vue"),
+                write("3", "src/a.vue"));
+        ToolExecutor toolExecutor = (request, memoryId) -> {
+            switch (request.id()) {
+                case "1" -> {
+                    await(slowWriteStarted);
+                    cancellationToken.cancel();
+                }
+                case "2" -> {
+                    slowWriteStarted.countDown();
+                    sleep(300);
+                    writes.add("src/b.vue");
+                }
+                default -> writes.add("src/a.vue");
+            }
+            return "ok";
+        };
+        AiServiceStreamingResponseHandler handler = handler(toolExecutor, cancellationToken);
+
+        handler.onCompleteResponse(ChatResponse.builder()
+                .aiMessage(AiMessage.from(requests))
+                .build());
+        List<String> writesAtReturn = List.copyOf(writes);
+        sleep(500);
+
+        // 正在进行的写入在本轮结束前完成，之后不再有写入，未开始的调用被跳过
+        Assertions.assertEquals(List.of("src/b.vue"), writesAtReturn);
+        Assertions.assertEquals(writesAtReturn, List.copyOf(writes));
+    }
+
+    private static AiServiceStreamingResponseHandler handler(ToolExecutor toolExecutor,
+                                                             CancellationToken cancellationToken) {
+        return new AiServiceStreamingResponseHandler(
+                Mockito.mock(ChatExecutor.class),
+                new AiServiceContext(Object.class),
+                "memory",
+                partialResponse -> {
+                },
+                null,
+                null,
+                null,
+                null,
+                null,
+                MessageWindowChatMemory.withMaxMessages(10),
+                new TokenUsage(),
+                List.of(),
+                Map.of("writeFile", toolExecutor),
+                null,
+                null,
+                cancellationToken);
+    }
+
+    private static ToolExecutionRequest write(String id, String path) {
+        return ToolExecutionRequest.builder()
+                .id(id)
+                .name("writeFile")
+                .arguments("{\"relativeFilePath\":\"" + path + "\",\"content\":\"x\"}")
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}